@@ -0,0 +1,48 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.models.Session;
+import org.bootcamp.services.AccountService;
+import org.bootcamp.services.AccountServiceException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures AccountService.login with different numbers of registered users.<br>
+ * The passwords are hashed with a single iteration, so the lookup is measured rather than the
+ * cost of the hash, which grows with the iterations configured in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djournal.enabled=false", "-Dpassword.iterations=1"})
+public class AccountServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int userCount;
+
+    private AccountService accountService;
+    private String[] emails;
+    private String[] passwords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountService = AccountService.getInstance();
+        BenchmarkData.registerUsers(userCount);
+        emails = new String[userCount];
+        passwords = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            emails[i] = BenchmarkData.email(i);
+            passwords[i] = BenchmarkData.password(i);
+        }
+    }
+
+    @Benchmark
+    public Session login() throws AccountServiceException {
+        int index = next++ % userCount;
+        return accountService.login(emails[index], passwords[index]);
+    }
+}
@@ -0,0 +1,79 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.User;
+import org.bootcamp.services.AccountService;
+import org.bootcamp.services.AccountServiceException;
+import org.bootcamp.services.ExchangeService;
+
+import java.util.Comparator;
+
+/**
+ * Builds the users and instruments shared by the benchmark suites.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    /**
+     * Registers the specified number of users in the AccountService.<br>
+     * The suites that register users hash their passwords with a single iteration, so a
+     * large population is registered quickly.
+     *
+     * @param count the number of users to register
+     * @return the sessions of the registered users
+     */
+    static Session[] registerUsers(int count) {
+        AccountService accountService = AccountService.getInstance();
+        Session[] sessions = new Session[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                sessions[i] = accountService.registerUser("Trader " + i, email(i), password(i));
+            }
+        } catch (AccountServiceException e) {
+            throw new IllegalStateException(e);
+        }
+        return sessions;
+    }
+
+    /**
+     * Returns the users of the specified sessions.
+     *
+     * @param sessions the sessions
+     * @return the user of every session
+     */
+    static User[] users(Session[] sessions) {
+        User[] users = new User[sessions.length];
+        for (int i = 0; i < sessions.length; i++) {
+            users[i] = sessions[i].getUser();
+        }
+        return users;
+    }
+
+    /**
+     * Returns the first cryptocurrencies listed in the ExchangeService, sorted by symbol.
+     *
+     * @param count the number of cryptocurrencies needed
+     * @return the selected cryptocurrencies
+     */
+    static CryptoCurrency[] cryptoCurrencies(int count) {
+        CryptoCurrency[] listed = ExchangeService.getInstance().getAvailableCryptoCurrencies().stream()
+                .sorted(Comparator.comparing(CryptoCurrency::getShorthandSymbol))
+                .toArray(CryptoCurrency[]::new);
+        if (count > listed.length) {
+            throw new IllegalArgumentException("Only " + listed.length + " cryptocurrencies are listed");
+        }
+        CryptoCurrency[] selected = new CryptoCurrency[count];
+        System.arraycopy(listed, 0, selected, 0, count);
+        return selected;
+    }
+
+    static String email(int index) {
+        return "trader" + index + "@bench.org";
+    }
+
+    static String password(int index) {
+        return "secret" + index;
+    }
+}
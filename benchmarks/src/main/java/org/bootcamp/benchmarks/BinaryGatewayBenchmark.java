@@ -0,0 +1,147 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.gateway.BinaryClient;
+import org.bootcamp.gateway.BinaryGateway;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.Session;
+import org.bootcamp.services.AccountService;
+import org.bootcamp.services.ExchangeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round trips of the binary gateway over the loopback interface.<br>
+ * The place-and-cancel benchmark sends an order that rests far below the market, waits for its
+ * ack, cancels it and waits for the ack of the cancel, so the book stays empty during the run. The
+ * fill benchmark rests a selling order from one client and crosses it with a buy order from
+ * another, waiting until both clients have received their fill. Both include the matching shard
+ * and the network stack of the loopback interface, so they are the latency a local client sees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djournal.enabled=false", "-Dpassword.iterations=1", "-Dbinary.port=0"})
+public class BinaryGatewayBenchmark {
+
+    private BinaryGateway gateway;
+    private BinaryClient buyer;
+    private BinaryClient seller;
+    private Session[] sessions;
+    private int ordinal;
+    private long quantity;
+    private long restingPrice;
+    private long crossingPrice;
+    private long next;
+    private final Answers buyerAnswers = new Answers();
+    private final Answers sellerAnswers = new Answers();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sessions = BenchmarkData.registerUsers(2);
+        CryptoCurrency cryptoCurrency = BenchmarkData.cryptoCurrencies(1)[0];
+        ordinal = cryptoCurrency.getOrdinal();
+        quantity = 1;
+        restingPrice = 1;
+        crossingPrice = FixedPoint.toFiat(BigDecimal.ONE);
+        for (Session session : sessions) {
+            AccountService.getInstance().deposit(session, FixedPoint.toFiat(new BigDecimal(1_000_000)));
+        }
+        ExchangeService.getInstance().buyFromExchange(sessions[1], cryptoCurrency, cryptoCurrency.toQuantity(BigDecimal.ONE));
+        gateway = BinaryGateway.getInstance();
+        gateway.start();
+        buyer = connect(sessions[0], buyerAnswers);
+        seller = connect(sessions[1], sellerAnswers);
+    }
+
+    private BinaryClient connect(Session session, Answers answers) throws Exception {
+        BinaryClient client = new BinaryClient("127.0.0.1", gateway.getPort());
+        client.login(session.getToken());
+        client.poll(answers);
+        return client;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        buyer.close();
+        seller.close();
+        gateway.stop();
+    }
+
+    /**
+     * The fills keep recording transactions, so they are dropped between iterations
+     * to keep the heap of a long run bounded.
+     */
+    @Setup(Level.Iteration)
+    public void clearTransactions() {
+        for (Session session : sessions) {
+            session.getUser().getTransactionHistory().clear();
+        }
+    }
+
+    @Benchmark
+    public long placeAndCancel() throws Exception {
+        long clientOrderID = next++;
+        long acks = buyerAnswers.acks;
+        buyer.newOrder(clientOrderID, OrderType.BUY, ordinal, quantity, restingPrice);
+        while (buyerAnswers.acks == acks) {
+            buyer.poll(buyerAnswers);
+        }
+        buyer.cancel(clientOrderID, buyerAnswers.orderID);
+        while (buyerAnswers.acks == acks + 1) {
+            buyer.poll(buyerAnswers);
+        }
+        return buyerAnswers.orderID;
+    }
+
+    @Benchmark
+    public long fill() throws Exception {
+        long clientOrderID = next++;
+        long acks = sellerAnswers.acks;
+        long buyerFills = buyerAnswers.fills;
+        long sellerFills = sellerAnswers.fills;
+        seller.newOrder(clientOrderID, OrderType.SELLING, ordinal, quantity, restingPrice);
+        while (sellerAnswers.acks == acks) {
+            seller.poll(sellerAnswers);
+        }
+        buyer.newOrder(clientOrderID, OrderType.BUY, ordinal, quantity, crossingPrice);
+        while (buyerAnswers.fills == buyerFills) {
+            buyer.poll(buyerAnswers);
+        }
+        while (sellerAnswers.fills == sellerFills) {
+            seller.poll(sellerAnswers);
+        }
+        return sellerAnswers.fills;
+    }
+
+    /**
+     * Counts the answers received by a client and keeps the last order ID acked. Rejects end the
+     * benchmark, since every order sent is valid.
+     */
+    private static final class Answers implements BinaryClient.Listener {
+        private long acks;
+        private long fills;
+        private long orderID;
+
+        @Override
+        public void onAck(long clientOrderID, long orderID) {
+            this.orderID = orderID;
+            acks++;
+        }
+
+        @Override
+        public void onFill(long orderID, long quantity, long price, long remainingAmount) {
+            fills++;
+        }
+
+        @Override
+        public void onReject(long clientOrderID, int reason) {
+            throw new IllegalStateException("Order rejected with reason " + reason);
+        }
+    }
+}
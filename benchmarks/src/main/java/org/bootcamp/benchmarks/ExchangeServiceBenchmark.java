@@ -0,0 +1,67 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.CryptoCurrencyException;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.User;
+import org.bootcamp.services.AccountServiceException;
+import org.bootcamp.services.ExchangeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ExchangeService.buyFromExchange for different numbers of users and cryptocurrencies.<br>
+ * Every purchase is the smallest quantity of the cryptocurrency, so the inventory of the exchange lasts the whole run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djournal.enabled=false", "-Dpassword.iterations=1"})
+public class ExchangeServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int userCount;
+
+    @Param({"1", "2"})
+    private int instrumentCount;
+
+    /**
+     * The smallest quantity of every cryptocurrency.
+     */
+    private static final long QUANTITY = 1;
+
+    private ExchangeService exchangeService;
+    private Session[] sessions;
+    private User[] users;
+    private CryptoCurrency[] cryptoCurrencies;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        exchangeService = ExchangeService.getInstance();
+        sessions = BenchmarkData.registerUsers(userCount);
+        users = BenchmarkData.users(sessions);
+        cryptoCurrencies = BenchmarkData.cryptoCurrencies(instrumentCount);
+        for (User user : users) {
+            user.depositFiatMoney(FixedPoint.toFiat(new BigDecimal(1_000_000_000)));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTransactions() {
+        for (User user : users) {
+            user.getTransactionHistory().clear();
+        }
+    }
+
+    @Benchmark
+    public void buyFromExchange() throws CryptoCurrencyException, AccountServiceException {
+        int index = next++;
+        exchangeService.buyFromExchange(sessions[index % userCount], cryptoCurrencies[index % instrumentCount], QUANTITY);
+    }
+}
@@ -0,0 +1,44 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.metrics.LatencyRecorder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording a latency in a LatencyRecorder.<br>
+ * {@code record} only adds a value, {@code recordSince} also reads the clock as the services do,
+ * and the threaded variants record from several threads at once into the same recorder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djournal.enabled=false"})
+public class LatencyRecorderBenchmark {
+
+    private LatencyRecorder recorder;
+    private long value;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        recorder = new LatencyRecorder("benchmark");
+    }
+
+    @Benchmark
+    public void record() {
+        recorder.record(value++ & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void recordSince() {
+        recorder.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordThreaded() {
+        recorder.recordSince(System.nanoTime());
+    }
+}
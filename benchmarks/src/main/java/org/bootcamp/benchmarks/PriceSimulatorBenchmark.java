@@ -0,0 +1,47 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.services.PriceModel;
+import org.bootcamp.services.PriceSimulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a tick of the PriceSimulator over sets of cryptocurrencies of different sizes.<br>
+ * The cryptocurrencies are created for the benchmark and are not listed in the ExchangeService.
+ * Every invocation advances all of them by one millisecond, so the score is the time a tick of
+ * that many cryptocurrencies takes; sets larger than a chunk are updated in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djournal.enabled=false"})
+public class PriceSimulatorBenchmark {
+
+    @Param({"gbm", "mean-reversion"})
+    private String priceModel;
+
+    @Param({"2", "1000", "10000"})
+    private int instrumentCount;
+
+    private PriceSimulator simulator;
+    private CryptoCurrency[] cryptoCurrencies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simulator = new PriceSimulator(PriceModel.create(priceModel), 42);
+        cryptoCurrencies = new CryptoCurrency[instrumentCount];
+        for (int i = 0; i < instrumentCount; i++) {
+            cryptoCurrencies[i] = new CryptoCurrency("Coin " + i, "C" + i, BigDecimal.valueOf(100 + i % 1000));
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        simulator.advance(cryptoCurrencies, 0.001);
+    }
+}
@@ -0,0 +1,121 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.User;
+import org.bootcamp.services.TradingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures TradingService.putOrder with books of different depths.<br>
+ * The books are filled with resting orders that do not cross: bids below 900 and asks from 1000.
+ * Every invocation places a selling order inside the spread, which rests, and a buy order from
+ * another user that fills it, so the depth of the book stays the same during the run.<br>
+ * Matching runs on the shard threads of the TradingService, so the throughput is the sustained
+ * matching rate once the shard queues are full. The concurrent benchmark places orders from all
+ * the available cores, each thread trading its own cryptocurrency, to check that shards scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djournal.enabled=false", "-Dpassword.iterations=1"})
+public class TradingServiceBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int bookDepth;
+
+    @Param({"10", "1000"})
+    private int userCount;
+
+    @Param({"1", "2"})
+    private int instrumentCount;
+
+    private static final long SPREAD_PRICE = FixedPoint.toFiat(new BigDecimal(950));
+
+    private TradingService tradingService;
+    private User[] users;
+    private CryptoCurrency[] cryptoCurrencies;
+    private long[] units;
+    private int next;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tradingService = TradingService.getInstance();
+        users = BenchmarkData.users(BenchmarkData.registerUsers(userCount));
+        cryptoCurrencies = BenchmarkData.cryptoCurrencies(instrumentCount);
+        units = new long[instrumentCount];
+        for (int i = 0; i < instrumentCount; i++) {
+            units[i] = cryptoCurrencies[i].toQuantity(BigDecimal.ONE);
+        }
+        for (int i = 0; i < bookDepth; i++) {
+            User user = users[i % userCount];
+            int instrument = i % instrumentCount;
+            int level = (i / 2) % 500;
+            if (i % 2 == 0) {
+                long price = FixedPoint.toFiat(BigDecimal.valueOf(1000 + level));
+                tradingService.putOrder(new MarketOrder(OrderType.SELLING, user, cryptoCurrencies[instrument], units[instrument], price));
+            } else {
+                long price = FixedPoint.toFiat(BigDecimal.valueOf(900 - level));
+                tradingService.putOrder(new MarketOrder(OrderType.BUY, user, cryptoCurrencies[instrument], units[instrument], price));
+            }
+        }
+    }
+
+    /**
+     * The fills keep recording transactions, so they are dropped between iterations
+     * to keep the heap of a long run bounded.
+     */
+    @Setup(Level.Iteration)
+    public void clearTransactions() {
+        for (User user : users) {
+            user.getTransactionHistory().clear();
+        }
+    }
+
+    @Benchmark
+    public void putAndMatch() {
+        int index = next++;
+        int instrument = index % instrumentCount;
+        User seller = users[index % userCount];
+        User buyer = users[(index + 1) % userCount];
+        tradingService.putOrder(new MarketOrder(OrderType.SELLING, seller, cryptoCurrencies[instrument], units[instrument], SPREAD_PRICE));
+        tradingService.putOrder(new MarketOrder(OrderType.BUY, buyer, cryptoCurrencies[instrument], units[instrument], SPREAD_PRICE));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void putAndMatchConcurrently(ThreadCursor cursor) {
+        int index = cursor.next++;
+        int instrument = cursor.instrument;
+        User seller = users[(cursor.userOffset + index) % userCount];
+        User buyer = users[(cursor.userOffset + index + 1) % userCount];
+        tradingService.putOrder(new MarketOrder(OrderType.SELLING, seller, cryptoCurrencies[instrument], units[instrument], SPREAD_PRICE));
+        tradingService.putOrder(new MarketOrder(OrderType.BUY, buyer, cryptoCurrencies[instrument], units[instrument], SPREAD_PRICE));
+    }
+
+    /**
+     * Position of every benchmark thread: the cryptocurrency it trades and the users it uses.
+     */
+    @State(Scope.Thread)
+    public static class ThreadCursor {
+        private int instrument;
+        private int userOffset;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(TradingServiceBenchmark benchmark) {
+            int thread = benchmark.threadCount.getAndIncrement();
+            instrument = thread % benchmark.instrumentCount;
+            userOffset = thread * 2;
+        }
+    }
+}
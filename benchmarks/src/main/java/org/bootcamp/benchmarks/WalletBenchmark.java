@@ -0,0 +1,94 @@
+package org.bootcamp.benchmarks;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.Transfer;
+import org.bootcamp.models.Wallet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the debit operations of the Wallet over a population of wallets,
+ * so the results include the cost of touching wallets that are not in cache.
+ * It also measures a settlement transfer between two wallets, and debits and credits
+ * made by several threads on the same wallet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djournal.enabled=false")
+public class WalletBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int userCount;
+
+    @Param({"1", "2"})
+    private int instrumentCount;
+
+    private static final long FIAT_AMOUNT = FixedPoint.toFiat(new BigDecimal("0.01"));
+    private static final long CRYPTO_AMOUNT = 1;
+
+    private Wallet[] wallets;
+    private CryptoCurrency[] cryptoCurrencies;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cryptoCurrencies = BenchmarkData.cryptoCurrencies(instrumentCount);
+        wallets = new Wallet[userCount];
+        for (int i = 0; i < userCount; i++) {
+            Wallet wallet = new Wallet();
+            wallet.addFiatMoney(FixedPoint.toFiat(new BigDecimal(1_000_000_000)));
+            for (CryptoCurrency cryptoCurrency : cryptoCurrencies) {
+                wallet.rechargeCryptoCurrency(cryptoCurrency, cryptoCurrency.toQuantity(new BigDecimal(1_000_000)));
+            }
+            wallets[i] = wallet;
+        }
+    }
+
+    @Benchmark
+    public boolean subtractFiatMoney() {
+        return wallets[next++ % userCount].subtractFiatMoney(FIAT_AMOUNT);
+    }
+
+    @Benchmark
+    public void subtractCryptoCurrency(Blackhole blackhole) {
+        int index = next++;
+        blackhole.consume(wallets[index % userCount].subtractCryptoCurrency(cryptoCurrencies[index % instrumentCount], CRYPTO_AMOUNT));
+    }
+
+    @Benchmark
+    public boolean transfer(Settlement settlement) {
+        int index = next++;
+        Wallet buyer = wallets[index % userCount];
+        Wallet seller = wallets[(index + 1) % userCount];
+        CryptoCurrency cryptoCurrency = cryptoCurrencies[index % instrumentCount];
+        return settlement.transfer
+                .debitFiat(buyer, FIAT_AMOUNT)
+                .debitCrypto(seller, cryptoCurrency, CRYPTO_AMOUNT)
+                .creditFiat(seller, FIAT_AMOUNT)
+                .creditCrypto(buyer, cryptoCurrency, CRYPTO_AMOUNT)
+                .commit();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean contendedDebitCredit() {
+        Wallet wallet = wallets[0];
+        wallet.addFiatMoney(FIAT_AMOUNT);
+        return wallet.subtractFiatMoney(FIAT_AMOUNT);
+    }
+
+    /**
+     * The transfer of each benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Settlement {
+        private final Transfer transfer = new Transfer();
+    }
+}
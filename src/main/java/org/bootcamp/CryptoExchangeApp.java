@@ -1,13 +1,19 @@
 package org.bootcamp;
 
+import org.bootcamp.gateway.BinaryGateway;
+import org.bootcamp.gateway.HttpGateway;
 import org.bootcamp.services.AccountService;
 import org.bootcamp.services.ExchangeService;
+import org.bootcamp.services.RecoveryService;
+import org.bootcamp.services.SnapshotService;
 import org.bootcamp.services.TradingService;
 
 /**
  * It is the starting point of the application,
  * initializes the consumed services and sets
- * the initial navigation route.
+ * the initial navigation route. The HTTP gateway is started
+ * alongside the console when {@value HttpGateway#ENABLED_PROPERTY} is set, and the
+ * binary gateway when {@value BinaryGateway#ENABLED_PROPERTY} is set.
  * @see Router
  * @see ExchangeService
  * @see AccountService
@@ -17,19 +23,32 @@ public class CryptoExchangeApp {
 
     public static void main(String[] args) {
         init();
+        if (Boolean.getBoolean(HttpGateway.ENABLED_PROPERTY)) {
+            HttpGateway.getInstance().start();
+        }
+        if (Boolean.getBoolean(BinaryGateway.ENABLED_PROPERTY)) {
+            BinaryGateway.getInstance().start();
+        }
         Router router = Router.getInstance();
         router.navigateTo(Router.ROOT);
+        // The services keep non-daemon threads running, so leaving the navigation ends the process
+        System.exit(0);
     }
 
     /**
-     * Initializes the platform services
+     * Initializes the platform services, restores their state from the latest snapshot and
+     * the journal, and starts taking snapshots
      * @see ExchangeService
      * @see AccountService
      * @see TradingService
+     * @see RecoveryService
+     * @see SnapshotService
      */
     public static void init() {
         ExchangeService.getInstance();
         AccountService.getInstance();
         TradingService.getInstance();
+        RecoveryService.getInstance().recover();
+        SnapshotService.getInstance();
     }
 }
\ No newline at end of file
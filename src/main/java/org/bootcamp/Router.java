@@ -4,6 +4,7 @@ import org.bootcamp.controllers.Controller;
 import org.bootcamp.controllers.HomeController;
 import org.bootcamp.controllers.RootController;
 import org.bootcamp.controllers.MarketController;
+import org.bootcamp.models.Session;
 
 /**
  * The Router class uses the strategy pattern and singleton
@@ -11,7 +12,10 @@ import org.bootcamp.controllers.MarketController;
  * Consider using the constants attributes of the class
  * to navigate between routes using the navigateTo() method,
  * which is responsible for calling to execute() the view
- * controller automatically.
+ * controller automatically.<br>
+ * Navigation is a loop: every controller returns the next route
+ * instead of navigating itself, so a long session keeps a constant
+ * stack depth.
  * @see #navigateTo(String)
  * @see #execute()
  */
@@ -34,6 +38,11 @@ public class Router {
      * @see MarketController
      */
     public static final String MARKET = "market";
+    /**
+     * Return it from a controller to end the navigation
+     * @see #navigateTo(String)
+     */
+    public static final String EXIT = "exit";
     /**
      * Represents the current strategy of the strategy pattern.<br>
      * Allows you to execute the controller when you navigate to a route.
@@ -41,6 +50,11 @@ public class Router {
      * @see #navigateTo(String)
      */
     private Controller controller;
+    /**
+     * Session of the user logged in on the console, null while nobody is logged in.<br>
+     * The controllers pass it to every service call made on behalf of the console user.
+     */
+    private Session session;
     /**
      * Represents the instance of the singleton pattern
      */
@@ -62,8 +76,17 @@ public class Router {
         return instance;
     }
 
+    public Session getSession() {
+        return session;
+    }
+
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
     /**
-     * Navigates to the specified route
+     * Navigates to the specified route and keeps running the controllers
+     * of the routes they return, until one of them returns {@link #EXIT}
      * @param route If the route is not in the list, navigates to the default route
      * @see #execute()
      * @see HomeController
@@ -71,23 +94,26 @@ public class Router {
      * @see RootController
      */
     public void navigateTo(String route) {
-        switch (route) {
-            case HOME: controller = HomeController.getInstance();
-            break;
-            case MARKET: controller = MarketController.getInstance();
-            break;
-            case ROOT:
-            default: controller = new RootController();
+        while (!EXIT.equals(route)) {
+            switch (route) {
+                case HOME: controller = HomeController.getInstance();
+                break;
+                case MARKET: controller = MarketController.getInstance();
+                break;
+                case ROOT:
+                default: controller = new RootController();
+            }
+            route = execute();
         }
-        execute();
     }
 
     /**
      * Calls to execute the specified controller according
      * to the strategy pattern
+     * @return the next route returned by the controller
      * @see #navigateTo(String)
      */
-    public void execute() {
-        controller.run();
+    public String execute() {
+        return controller.run();
     }
 }
@@ -4,7 +4,10 @@ import org.bootcamp.Router;
 
 /**
  * Interface representing a generic controller in the system.
- * Provides a method to run the controller and a router for navigation.
+ * Provides a method to run the controller and a router for navigation.<br>
+ * Controllers do not navigate by themselves: they return the route to go next
+ * and the Router runs it, so the stack does not grow with every action.
+ * @see Router#navigateTo(String)
  */
 public interface Controller {
     /**
@@ -12,7 +15,9 @@ public interface Controller {
       */
     Router router = Router.getInstance();
     /**
-     * Runs the main loop of the controller, handling user interactions and actions.
+     * Runs one step of the controller, handling a user interaction and its action.
+     *
+     * @return the route to navigate to next, one of the constants of the Router
      */
-    void run();
+    String run();
 }
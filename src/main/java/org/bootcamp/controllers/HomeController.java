@@ -1,16 +1,17 @@
 package org.bootcamp.controllers;
 
 import org.bootcamp.Router;
+import org.bootcamp.models.Fill;
+import org.bootcamp.models.FixedPoint;
 import org.bootcamp.models.MarketOrder;
-import org.bootcamp.models.Transaction;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.TransactionHistory;
 import org.bootcamp.services.AccountService;
+import org.bootcamp.services.AccountServiceException;
 import org.bootcamp.services.TradingService;
 import org.bootcamp.views.HomeView;
 import org.bootcamp.views.TradingServiceSubscriber;
 
-import java.math.BigDecimal;
-import java.util.List;
-
 /**
  * Controller class for managing the home view and user interactions on the home screen.
  * Implements a singleton pattern to ensure only one instance of HomeController exists.
@@ -20,6 +21,10 @@ import java.util.List;
  * @see TradingService
  */
 public class HomeController implements Controller, TradingServiceSubscriber {
+    /**
+     * Number of transactions shown at a time in the transaction history.
+     */
+    private static final int HISTORY_PAGE_SIZE = 20;
     /**
      * The view associated with the home controller, responsible for user interactions on the home screen.
      */
@@ -64,9 +69,11 @@ public class HomeController implements Controller, TradingServiceSubscriber {
     /**
      * Runs the main loop of the home controller, handling user choices for various actions
      * such as depositing funds, showing the wallet, viewing transaction history, going to the market, and logging out.
+     *
+     * @return the next route, the home route unless the user goes to the market or logs out
      */
     @Override
-    public void run() {
+    public String run() {
         int choice = view.getUserChoice();
         switch (choice) {
             case 1:
@@ -79,55 +86,64 @@ public class HomeController implements Controller, TradingServiceSubscriber {
                 showTransactionHistory();
                 break;
             case 4:
-                goToMarket();
-                break;
+                return goToMarket();
             case 5:
-                logout();
-                break;
+                return logout();
             default:
                 view.showError("Invalid option. Please try again.");
         }
-        router.navigateTo(Router.HOME);
+        return Router.HOME;
     }
 
     /**
      * Logs out the current user, shows a success message, unsubscribes from the trading service,
      * and navigates to the root view.
+     *
+     * @return the root route
      */
-    private void logout() {
-        accountService.logout();
+    private String logout() {
+        accountService.logout(router.getSession());
+        router.setSession(null);
         view.showSuccessMessage("Logging out...");
         tradingService.unSubscribe(this);
-        router.navigateTo(Router.ROOT);
+        return Router.ROOT;
     }
 
     /**
      * Displays the transaction history of the current user. If there are no transactions,
-     * an informational message is shown. Otherwise, the details of each transaction are displayed.
+     * an informational message is shown. Otherwise, the transactions are displayed from the newest
+     * to the oldest, {@value #HISTORY_PAGE_SIZE} at a time, for as long as the user asks for more.
      */
     private void showTransactionHistory() {
-        List<Transaction> transactions = accountService.getCurrentUser().getTransactions();
-        if (transactions.isEmpty()){
+        TransactionHistory history = router.getSession().getUser().getTransactionHistory();
+        TransactionHistory.Page page = history.latest(HISTORY_PAGE_SIZE);
+        if (page.getTransactions().isEmpty()) {
             view.showInfo("You don't have transactions yet!");
-        } else {
-            view.showInfo("Type\tCrypto\tAmount\tPrice");
-            transactions.forEach(transaction -> view.showInfo(transaction.toString()));
+            return;
+        }
+        view.showInfo("Type\tCrypto\tAmount\tPrice");
+        page.getTransactions().forEach(transaction -> view.showInfo(transaction.toString()));
+        while (page.hasNext() && view.getShowMoreInput()) {
+            page = history.query(null, null, null, null, page.getNextCursor(), HISTORY_PAGE_SIZE);
+            page.getTransactions().forEach(transaction -> view.showInfo(transaction.toString()));
         }
     }
 
     /**
      * Navigates to the market view, unsubscribes from the trading service, and updates the router.
+     *
+     * @return the market route
      */
-    private void goToMarket() {
+    private String goToMarket() {
         tradingService.unSubscribe(this);
-        router.navigateTo(Router.MARKET);
+        return Router.MARKET;
     }
 
     /**
      * Displays the current user's wallet information in the view.
      */
     private void showWallet() {
-        view.showWallet(accountService.getCurrentUser().getWallet());
+        view.showWallet(router.getSession().getUser().getWallet());
     }
 
     /**
@@ -135,34 +151,62 @@ public class HomeController implements Controller, TradingServiceSubscriber {
      * updating the user's balance, and displaying the updated wallet information.
      */
     private void depositAction() {
-        BigDecimal amount = view.getAmountMoneyInput();
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        long amount;
+        try {
+            amount = FixedPoint.toFiat(view.getAmountMoneyInput());
+        } catch (ArithmeticException e) {
+            view.showError("Amount out of range");
+            return;
+        }
+        if (amount <= 0) {
             view.showError("Enter positive numbers only");
         } else {
-            accountService.getCurrentUser().depositFiatMoney(amount);
-            view.showSuccessMessage("Balance updated!");
-            showWallet();
+            try {
+                accountService.deposit(router.getSession(), amount);
+                view.showSuccessMessage("Balance updated!");
+                showWallet();
+            } catch (AccountServiceException e) {
+                view.showError(e.getMessage());
+            }
         }
     }
 
     /**
-     * Updates the view with the status of completed market orders. If the current user's buy order
-     * is completed, a success message is displayed. Similarly, if the current user's selling order
-     * is completed, a success message is shown.
+     * Updates the view with the status of filled market orders. If the current user's buy order
+     * or selling order takes part in the fill, a success message is displayed saying whether the
+     * order is completed or only partially filled.
      *
-     * @param buyOrder the completed buy order
-     * @param sellingOrder the completed selling order
+     * @param fill the fill between the buy order and the selling order
      */
     @Override
-    public void update(MarketOrder buyOrder, MarketOrder sellingOrder) {
-        if (buyOrder.getUser().equals(accountService.getCurrentUser())) {
-            view.showSuccessMessage("Congrats, your buy order " + buyOrder.getOrderID() + " is completed");
-            view.showSuccessMessage("Check your wallet!");
+    public void update(Fill fill) {
+        Session session = router.getSession();
+        if (session == null) {
+            return;
+        }
+        if (fill.getBuyOrder().getUser().equals(session.getUser())) {
+            showFillMessage("buy", fill.getBuyOrder(), fill.isBuyOrderCompleted(), fill);
         }
-        if (sellingOrder.getUser().equals(accountService.getCurrentUser())) {
-            view.showSuccessMessage("Congrats, your selling order " + sellingOrder.getOrderID() + " is completed");
-            view.showSuccessMessage("Check your wallet!");
+        if (fill.getSellingOrder().getUser().equals(session.getUser())) {
+            showFillMessage("selling", fill.getSellingOrder(), fill.isSellingOrderCompleted(), fill);
+        }
+    }
+
+    /**
+     * Displays the status of one of the current user's orders after a fill.
+     *
+     * @param orderName the name of the order type shown to the user
+     * @param order the order of the current user
+     * @param completed whether the fill completed the order
+     * @param fill the fill that involves the order
+     */
+    private void showFillMessage(String orderName, MarketOrder order, boolean completed, Fill fill) {
+        if (completed) {
+            view.showSuccessMessage("Congrats, your " + orderName + " order " + order.getOrderID() + " is completed (" + fill + ")");
+        } else {
+            view.showSuccessMessage("Your " + orderName + " order " + order.getOrderID() + " was partially filled (" + fill + ")");
         }
+        view.showSuccessMessage("Check your wallet!");
     }
 
 }
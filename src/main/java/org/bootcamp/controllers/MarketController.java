@@ -2,7 +2,6 @@ package org.bootcamp.controllers;
 
 import org.bootcamp.Router;
 import org.bootcamp.models.*;
-import org.bootcamp.services.AccountService;
 import org.bootcamp.services.AccountServiceException;
 import org.bootcamp.services.ExchangeService;
 import org.bootcamp.services.TradingService;
@@ -10,7 +9,6 @@ import org.bootcamp.views.ExchangeServiceSubscriber;
 import org.bootcamp.views.MarketView;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -39,11 +37,6 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
      */
     private final TradingService tradingService;
 
-    /**
-     * The account service used for user authentication and account management.
-     */
-    private final AccountService accountService;
-
     /**
      * Flag indicating whether notifications for cryptocurrency fluctuations are enabled.
      */
@@ -56,12 +49,11 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
 
     /**
      * Private constructor for the MarketController. Initializes the view, exchange service,
-     * account service, and trading service.
+     * and trading service.
      */
     private MarketController() {
         view = new MarketView();
         exchangeService = ExchangeService.getInstance();
-        accountService = AccountService.getInstance();
         tradingService = TradingService.getInstance();
     }
 
@@ -80,11 +72,13 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
 
     /**
      * Runs the main loop of the market controller, handling user choices for various market actions
-     * such as toggling notifications, buying from the exchange, placing buy and sell orders, and navigating back.
+     * such as toggling notifications, buying from the exchange, placing buy and sell orders, cancelling orders, and navigating back.
+     *
+     * @return the next route, the market route unless the user goes back
      * @see Controller#run()
      */
     @Override
-    public void run() {
+    public String run() {
         int choice = view.getUserChoice();
         switch (choice) {
             case 0:
@@ -100,21 +94,25 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
                 placeSellingOrder();
                 break;
             case 4:
-                back();
+                cancelOrder();
                 break;
+            case 5:
+                return back();
             default:
                 view.showError("Invalid option. Please try again.");
         }
-        router.navigateTo(Router.MARKET);
+        return Router.MARKET;
     }
 
     /**
      * Navigates back to the home screen and unsubscribes from the exchange service.
+     *
+     * @return the home route
      * @see ExchangeService
      */
-    private void back() {
+    private String back() {
         exchangeService.unSubscribe(this);
-        router.navigateTo(Router.HOME);
+        return Router.HOME;
     }
 
     /**
@@ -142,22 +140,23 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
      * @see CryptoCurrency
      */
     private void buyFromExchange() {
-        User user = accountService.getCurrentUser();
-        List<CryptoCurrency> cryptoCurrencies = user.getWallet().getMyCryptoCurrencies().keySet().stream().toList();
+        Session session = router.getSession();
+        List<CryptoCurrency> cryptoCurrencies = session.getUser().getWallet().getMyCryptoCurrencies().stream().toList();
         CryptoCurrency selected = view.getCryptoCurrencyType(cryptoCurrencies);
         if (selected != null) {
-            view.showInfo("Current Price: " + selected.getShorthandSymbol() + " (" + selected.getCurrentValue() + ")");
-            view.showError("Price up to date at " + LocalDateTime.now());
-            BigDecimal quantity = view.getQuantityCryptoCurrencyInput();
-            if (quantity.compareTo(BigDecimal.ZERO) > 0) {
-                try {
-                    exchangeService.buyFromExchange(user, selected, quantity);
-                    view.showSuccessMessage("+" + quantity + " " + selected.getShorthandSymbol() + " added successfully");
-                } catch (CryptoCurrencyException | AccountServiceException e) {
-                    view.showError(e.getMessage());
+            showCurrentPrice(selected);
+            try {
+                long quantity = selected.toQuantity(view.getQuantityCryptoCurrencyInput());
+                if (quantity > 0) {
+                    exchangeService.buyFromExchange(session, selected, quantity);
+                    view.showSuccessMessage("+" + selected.quantityToBigDecimal(quantity) + " " + selected.getShorthandSymbol() + " added successfully");
+                } else {
+                    view.showError("Quantity must be positive");
                 }
-            } else {
-                view.showError("Quantity must be positive");
+            } catch (CryptoCurrencyException | AccountServiceException e) {
+                view.showError(e.getMessage());
+            } catch (ArithmeticException e) {
+                view.showError("Quantity out of range");
             }
         } else {
             view.showError("Not cryptocurrency selected");
@@ -173,28 +172,28 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
      * @see CryptoCurrency
      */
     private void placeBuyOrder() {
-        User user = accountService.getCurrentUser();
-        List<CryptoCurrency> cryptoCurrencies = user.getWallet().getMyCryptoCurrencies().keySet().stream().toList();
+        Session session = router.getSession();
+        List<CryptoCurrency> cryptoCurrencies = session.getUser().getWallet().getMyCryptoCurrencies().stream().toList();
         CryptoCurrency selected = view.getCryptoCurrencyType(cryptoCurrencies);
         if (selected != null) {
-            view.showInfo("Current Price: " + selected.getShorthandSymbol() + " (" + selected.getCurrentValue() + ")");
-            view.showError("Price up to date at " + LocalDateTime.now());
-            BigDecimal quantity = view.getQuantityCryptoCurrencyInput();
-            if (quantity.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal price = view.getPurchasingPriceInput();
-                if (price.compareTo(BigDecimal.ZERO) > 0) {
-                    if (user.subtractFiatMoney(price)) {
-                        MarketOrder marketOrder = new MarketOrder(OrderType.BUY, user, selected, quantity, price);
-                        tradingService.putOrder(marketOrder);
+            showCurrentPrice(selected);
+            try {
+                long quantity = selected.toQuantity(view.getQuantityCryptoCurrencyInput());
+                if (quantity > 0) {
+                    long price = FixedPoint.toFiat(view.getPurchasingPriceInput());
+                    if (price > 0) {
+                        tradingService.placeOrder(session, OrderType.BUY, selected, quantity, price);
                         view.showSuccessMessage("Buy order placed to the Market");
                     } else {
-                        view.showError("User has not enough funds to complete the transaction.");
+                        view.showError("Price must be positive");
                     }
                 } else {
-                    view.showError("Price must be positive");
+                    view.showError("Quantity must be positive");
                 }
-            } else {
-                view.showError("Quantity must be positive");
+            } catch (AccountServiceException | IllegalArgumentException e) {
+                view.showError(e.getMessage());
+            } catch (ArithmeticException e) {
+                view.showError("Value out of range");
             }
         } else {
             view.showError("Not cryptocurrency selected");
@@ -210,28 +209,28 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
      * @see CryptoCurrency
      */
     private void placeSellingOrder() {
-        User user = accountService.getCurrentUser();
-        List<CryptoCurrency> cryptoCurrencies = user.getWallet().getMyCryptoCurrencies().keySet().stream().toList();
+        Session session = router.getSession();
+        List<CryptoCurrency> cryptoCurrencies = session.getUser().getWallet().getMyCryptoCurrencies().stream().toList();
         CryptoCurrency selected = view.getCryptoCurrencyType(cryptoCurrencies);
         if (selected != null) {
-            view.showInfo("Current Price: " + selected.getShorthandSymbol() + " (" + selected.getCurrentValue() + ")");
-            view.showError("Price up to date at " + LocalDateTime.now());
-            BigDecimal quantity = view.getQuantityCryptoCurrencyInput();
-            if (quantity.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal price = view.getSellingPriceInput();
-                if (price.compareTo(BigDecimal.ZERO) > 0) {
-                    if (user.subtractCryptoCurrency(selected, quantity)) {
-                        MarketOrder marketOrder = new MarketOrder(OrderType.SELLING, user, selected, quantity, price);
-                        tradingService.putOrder(marketOrder);
+            showCurrentPrice(selected);
+            try {
+                long quantity = selected.toQuantity(view.getQuantityCryptoCurrencyInput());
+                if (quantity > 0) {
+                    long price = FixedPoint.toFiat(view.getSellingPriceInput());
+                    if (price > 0) {
+                        tradingService.placeOrder(session, OrderType.SELLING, selected, quantity, price);
                         view.showSuccessMessage("Selling order placed to the Market");
                     } else {
-                        view.showError("User has not enough cryptocurrencies to complete the transaction.");
+                        view.showError("Price must be positive");
                     }
                 } else {
-                    view.showError("Price must be positive");
+                    view.showError("Quantity must be positive");
                 }
-            } else {
-                view.showError("Quantity must be positive");
+            } catch (AccountServiceException | IllegalArgumentException e) {
+                view.showError(e.getMessage());
+            } catch (ArithmeticException e) {
+                view.showError("Value out of range");
             }
         } else {
             view.showError("Not cryptocurrency selected");
@@ -239,29 +238,62 @@ public class MarketController implements Controller, ExchangeServiceSubscriber {
     }
 
     /**
-     * Updates the view with the latest cryptocurrency market changes. Displays a message indicating
-     * that the market has changed, followed by the updated values of each cryptocurrency. If the current
-     * value of a cryptocurrency is higher than its original value, a success message is shown; otherwise,
-     * an error message is displayed.
-     *
-     * @param cryptoCurrencies the list of cryptocurrencies with updated values
+     * Cancels one of the open orders of the current user. The method lists the orders that are
+     * not yet filled, prompts the user to select one, and asks the trading service to cancel it,
+     * which gives the reserved funds back to the wallet.
+     * @see TradingService#cancelOrder(Session, long)
      */
-    @Override
-    public void update(List<CryptoCurrency> cryptoCurrencies) {
-        String message = "*** THE MARKET HAS CHANGED ***";
-        view.showInfo('\n' + message);
-        cryptoCurrencies.forEach(cryptoCurrency -> {
-            BigDecimal originalValue = cryptoCurrency.getOriginalValue();
-            BigDecimal currentValue = cryptoCurrency.getCurrentValue();
-            BigDecimal differenceValue;
-            if (currentValue.compareTo(originalValue) >= 0) {
-                differenceValue = currentValue.subtract(originalValue).setScale(2, RoundingMode.HALF_UP);
-                view.showSuccessMessage("%s (+%s)".formatted(cryptoCurrency, differenceValue));
+    private void cancelOrder() {
+        Session session = router.getSession();
+        try {
+            List<MarketOrder> orders = tradingService.getOpenOrders(session);
+            if (orders.isEmpty()) {
+                view.showInfo("You don't have open orders");
+                return;
+            }
+            MarketOrder selected = view.getOrderChoice(orders);
+            if (selected == null) {
+                view.showError("Not order selected");
+            } else if (tradingService.cancelOrder(session, selected.getOrderID()).join()) {
+                view.showSuccessMessage("Order cancelled, the reserved funds are back in your wallet");
             } else {
-                differenceValue = originalValue.subtract(currentValue).setScale(2, RoundingMode.HALF_UP);
-                view.showError("%s (-%s)".formatted(cryptoCurrency, differenceValue));
+                view.showError("The order has already been filled");
             }
-        });
-        view.showInfo("*".repeat(message.length()));
+        } catch (AccountServiceException e) {
+            view.showError(e.getMessage());
+        }
+    }
+
+    /**
+     * Displays the current price of the selected cryptocurrency and the time it was checked.
+     *
+     * @param selected the selected cryptocurrency
+     */
+    private void showCurrentPrice(CryptoCurrency selected) {
+        view.showInfo("Current Price: " + selected.getShorthandSymbol() + " (" + selected.priceToBigDecimal(selected.getCurrentValue()) + ")");
+        view.showError("Price up to date at " + LocalDateTime.now());
+    }
+
+    /**
+     * Updates the view with the latest change of a cryptocurrency. If the new value of the
+     * cryptocurrency is higher than its original value, a success message is shown; otherwise,
+     * an error message is displayed.<br>
+     * It is called from a delivery thread of the exchange service, and only the latest change of
+     * each cryptocurrency is shown if the console falls behind.
+     *
+     * @param tick the price update of the cryptocurrency
+     */
+    @Override
+    public void update(Tick tick) {
+        CryptoCurrency cryptoCurrency = tick.getCryptoCurrency();
+        long originalValue = tick.getOriginalValue();
+        long currentValue = tick.getValue();
+        if (currentValue >= originalValue) {
+            BigDecimal differenceValue = cryptoCurrency.priceToBigDecimal(currentValue - originalValue);
+            view.showSuccessMessage("*** %s (+%s)".formatted(tick, differenceValue));
+        } else {
+            BigDecimal differenceValue = cryptoCurrency.priceToBigDecimal(originalValue - currentValue);
+            view.showError("*** %s (-%s)".formatted(tick, differenceValue));
+        }
     }
 }
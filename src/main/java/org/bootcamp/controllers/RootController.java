@@ -1,7 +1,7 @@
 package org.bootcamp.controllers;
 
 import org.bootcamp.Router;
-import org.bootcamp.models.User;
+import org.bootcamp.models.Session;
 import org.bootcamp.services.AccountService;
 import org.bootcamp.services.AccountServiceException;
 import org.bootcamp.views.RootView;
@@ -32,64 +32,67 @@ public class RootController implements Controller {
 
     /**
      * Runs the main loop of the application, handling user choices for registration, login, and exit.
+     * @return the next route
      * @see Controller
      */
-    public void run() {
+    public String run() {
         int choice = view.getUserChoice();
         switch (choice) {
             case 1:
-                register();
-                break;
+                return register();
             case 2:
-                login();
-                break;
+                return login();
             case 3:
                 view.close();
-                System.exit(0);
+                return Router.EXIT;
             default:
                 view.showError("Invalid option. Please try again.");
-                router.navigateTo(Router.ROOT);
+                return Router.ROOT;
         }
     }
 
     /**
      * Handles the user registration process by collecting input from the view,
      * registering the user through the account service, and navigating based on the result.
+     *
+     * @return the home route if the user was registered, the root route otherwise
      */
-    private void register() {
+    private String register() {
         String name = view.getNameInput().trim();
         String email = view.getEmailInput().trim();
         String password = view.getPasswordInput().trim();
         try {
-            User verified = accountService.registerUser(name, email, password);
-            if (verified != null) {
-                view.showSuccessMessage("Usuario registrado exitosamente");
-                router.navigateTo(Router.HOME);
-            }
+            Session session = accountService.registerUser(name, email, password);
+            router.setSession(session);
+            view.showSuccessMessage("Usuario registrado exitosamente");
+            return Router.HOME;
         } catch (AccountServiceException e) {
             view.showError(e.getMessage());
-            router.navigateTo(Router.ROOT);
+            return Router.ROOT;
         }
     }
 
     /**
      * Handles the user login process by collecting input from the view,
-     * logging in the user through the account service, and navigating based on the result.
+     * logging in the user through the account service, keeping the session of the console
+     * in the router, and navigating based on the result.
+     *
+     * @return the home route if the user logged in, the root route otherwise
      */
-    private void login() {
+    private String login() {
         String email = view.getEmailInput().trim();
         String password = view.getPasswordInput().trim();
-        User user = null;
+        Session session = null;
         try {
-            user = accountService.login(email, password);
+            session = accountService.login(email, password);
         } catch (AccountServiceException e) {
             view.showError(e.getMessage());
         }
-        if (user != null) {
-            view.showSuccessMessage("Logged as " + user.getEmail());
-            router.navigateTo(Router.HOME);
-        } else {
-            router.navigateTo(Router.ROOT);
+        if (session != null) {
+            router.setSession(session);
+            view.showSuccessMessage("Logged as " + session.getUser().getEmail());
+            return Router.HOME;
         }
+        return Router.ROOT;
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package org.bootcamp.gateway;
+
+import org.bootcamp.models.OrderType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking client of the {@link BinaryGateway}, used by tests and benchmarks.<br>
+ * Requests are encoded into a reused buffer and written at once; the answers are read with
+ * {@link #poll(Listener)} and decoded in place into calls to a {@link Listener}, so the client does
+ * not allocate objects per message either. A client is not thread-safe.
+ * @see BinaryProtocol
+ */
+public class BinaryClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer out;
+    private final ByteBuffer in;
+
+    /**
+     * Receiver of the answers of the gateway.
+     */
+    public interface Listener {
+        /**
+         * Called when a login, a new order or a cancel is accepted.
+         *
+         * @param clientOrderID the ID given by the client, 0 for a login
+         * @param orderID the ID of the order, 0 for a login
+         */
+        void onAck(long clientOrderID, long orderID);
+
+        /**
+         * Called when an order of the user is filled, fully or partially.
+         *
+         * @param orderID the ID of the order
+         * @param quantity the unscaled quantity exchanged
+         * @param price the unscaled price paid for the quantity
+         * @param remainingAmount the unscaled amount of the order still to be filled
+         */
+        void onFill(long orderID, long quantity, long price, long remainingAmount);
+
+        /**
+         * Called when a login, a new order or a cancel is refused.
+         *
+         * @param clientOrderID the ID given by the client, 0 for a login
+         * @param reason the reason, one of the REJECT constants of {@link BinaryProtocol}
+         */
+        void onReject(long clientOrderID, int reason);
+    }
+
+    /**
+     * Connects to a binary gateway.
+     *
+     * @param host the address of the gateway
+     * @param port the port of the gateway
+     * @throws IOException if the connection fails
+     */
+    public BinaryClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        out = ByteBuffer.allocateDirect(256);
+        in = ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    /**
+     * Sends the token of a session; the gateway answers with an ack or a reject with client order ID 0.
+     *
+     * @param token the token of a session opened by the AccountService
+     * @throws IOException if the connection fails
+     * @throws IllegalArgumentException if the token does not have the length of a session token
+     */
+    public void login(String token) throws IOException {
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != BinaryProtocol.TOKEN_LENGTH) {
+            throw new IllegalArgumentException("Invalid token length: " + bytes.length);
+        }
+        out.put(BinaryProtocol.LOGIN).put(bytes);
+        send();
+    }
+
+    /**
+     * Sends a new market order.
+     *
+     * @param clientOrderID an ID chosen by the client, sent back in the answer
+     * @param orderType the type of order
+     * @param ordinal the ordinal of the cryptocurrency
+     * @param amount the unscaled amount of cryptocurrency
+     * @param price the unscaled total price of the order, in fiat money
+     * @throws IOException if the connection fails
+     */
+    public void newOrder(long clientOrderID, OrderType orderType, int ordinal, long amount, long price) throws IOException {
+        out.put(BinaryProtocol.NEW_ORDER).putLong(clientOrderID).put((byte) orderType.ordinal())
+                .putInt(ordinal).putLong(amount).putLong(price);
+        send();
+    }
+
+    /**
+     * Sends the cancellation of an open order.
+     *
+     * @param clientOrderID an ID chosen by the client, sent back in the answer
+     * @param orderID the ID of the order
+     * @throws IOException if the connection fails
+     */
+    public void cancel(long clientOrderID, long orderID) throws IOException {
+        out.put(BinaryProtocol.CANCEL).putLong(clientOrderID).putLong(orderID);
+        send();
+    }
+
+    /**
+     * Waits for answers of the gateway and dispatches every complete one to a listener.
+     *
+     * @param listener the receiver of the answers
+     * @return the number of answers dispatched, at least one
+     * @throws IOException if the connection fails or the gateway closes it
+     */
+    public int poll(Listener listener) throws IOException {
+        int count = 0;
+        while (count == 0) {
+            if (channel.read(in) < 0) {
+                throw new IOException("Connection closed by the gateway");
+            }
+            in.flip();
+            while (in.hasRemaining()) {
+                int size = BinaryProtocol.sizeOf(in.get(in.position()));
+                if (size < 0) {
+                    throw new IOException("Unknown message " + in.get(in.position()));
+                }
+                if (in.remaining() < size) {
+                    break;
+                }
+                switch (in.get()) {
+                    case BinaryProtocol.ACK -> listener.onAck(in.getLong(), in.getLong());
+                    case BinaryProtocol.FILL -> listener.onFill(in.getLong(), in.getLong(), in.getLong(), in.getLong());
+                    case BinaryProtocol.REJECT -> listener.onReject(in.getLong(), in.get());
+                    default -> throw new IOException("Unexpected message from the gateway");
+                }
+                count++;
+            }
+            in.compact();
+        }
+        return count;
+    }
+
+    private void send() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,50 @@
+package org.bootcamp.gateway;
+
+import org.bootcamp.models.Session;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * State of a client connected to the binary gateway.<br>
+ * The input buffer is only used by the selector thread. The output buffer is shared by the
+ * selector thread, which writes the acks and rejects, and the shard threads, which write the fills,
+ * so it is guarded by the lock of the connection; the bytes waiting to be sent are the ones
+ * between the start of the buffer and its position.<br>
+ * While an order is being placed, the space of its answer is reserved at the end of the output
+ * buffer, so the fills that the shard publishes before the selector thread learns the ID of the
+ * order are queued behind the answer and the client always receives the ack of an order before its
+ * fills.
+ * @see BinaryGateway
+ */
+final class BinaryConnection {
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer in;
+    final ByteBuffer out;
+    /**
+     * Reused storage of the token of a login.
+     */
+    final byte[] token = new byte[BinaryProtocol.TOKEN_LENGTH];
+    /**
+     * Session of the user, set by the selector thread on login.
+     */
+    volatile Session session;
+    /**
+     * Position in the output buffer of the answer reserved for the order being placed, or -1.
+     */
+    int reserved = -1;
+    /**
+     * Whether the selector is waiting for the channel to accept more bytes.
+     */
+    boolean writeInterest;
+    volatile boolean closed;
+
+    BinaryConnection(SocketChannel channel, SelectionKey key, int bufferSize) {
+        this.channel = channel;
+        this.key = key;
+        in = ByteBuffer.allocateDirect(bufferSize);
+        out = ByteBuffer.allocateDirect(bufferSize);
+    }
+}
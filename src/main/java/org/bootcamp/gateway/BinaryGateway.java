@@ -0,0 +1,531 @@
+package org.bootcamp.gateway;
+
+import org.bootcamp.CryptoExchangeApp;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.Fill;
+import org.bootcamp.models.InstrumentRegistry;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.User;
+import org.bootcamp.services.AccountService;
+import org.bootcamp.services.AccountServiceException;
+import org.bootcamp.services.ExchangeService;
+import org.bootcamp.services.TradingService;
+import org.bootcamp.views.TradingServiceSubscriber;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The BinaryGateway class accepts orders from low-latency clients over TCP with the fixed-layout
+ * {@link BinaryProtocol binary protocol} and follows the singleton pattern.<br>
+ * A single thread serves every connection with a non-blocking selector. The messages are decoded
+ * in place from the reused input buffer of each connection and handed to the TradingService as
+ * primitive values, and the answers are encoded into the reused output buffer of the connection,
+ * so the gateway does not allocate objects per message. Clients log in first with the token of a
+ * session opened by the AccountService; the acks, rejects and fills of their orders are sent back
+ * on the same connection. Fills are written by the shard thread that executes them, so they do not
+ * wait for the selector; only the bytes the socket cannot take at once are left to the selector.
+ * A client that does not read its answers fast enough to keep the output buffer from overflowing
+ * is disconnected.<br>
+ * The gateway is configured with system properties:
+ * <ul>
+ *   <li>{@value #ENABLED_PROPERTY} - "true" starts the gateway with the console application (default "false")</li>
+ *   <li>{@value #HOST_PROPERTY} - address the gateway listens on (default "127.0.0.1")</li>
+ *   <li>{@value #PORT_PROPERTY} - port the gateway listens on, 0 for any free port (default 9090)</li>
+ *   <li>{@value #BUFFER_SIZE_PROPERTY} - size in bytes of the input and output buffers of each connection (default 65536)</li>
+ * </ul>
+ * @see BinaryProtocol
+ * @see BinaryClient
+ * @see TradingService
+ */
+public class BinaryGateway implements TradingServiceSubscriber {
+    /**
+     * System property that starts the gateway with the console application.
+     */
+    public static final String ENABLED_PROPERTY = "binary.enabled";
+    /**
+     * System property with the address the gateway listens on.
+     */
+    public static final String HOST_PROPERTY = "binary.host";
+    /**
+     * System property with the port the gateway listens on.
+     */
+    public static final String PORT_PROPERTY = "binary.port";
+    /**
+     * System property with the size of the buffers of each connection.
+     */
+    public static final String BUFFER_SIZE_PROPERTY = "binary.bufferSize";
+
+    private static final Logger LOGGER = Logger.getLogger(BinaryGateway.class.getName());
+    private static final int ACK_SIZE = BinaryProtocol.sizeOf(BinaryProtocol.ACK);
+    private static final int FILL_SIZE = BinaryProtocol.sizeOf(BinaryProtocol.FILL);
+    private static final int REJECT_SIZE = BinaryProtocol.sizeOf(BinaryProtocol.REJECT);
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+
+    /**
+     * Singleton instance of the BinaryGateway.
+     */
+    private static BinaryGateway instance;
+
+    private final AccountService accountService;
+    private final ExchangeService exchangeService;
+    private final TradingService tradingService;
+    private final InstrumentRegistry instrumentRegistry;
+    /**
+     * Connection of every logged-in user, where the fills of its orders are sent.
+     */
+    private final Map<User, BinaryConnection> connections;
+    /**
+     * Every open connection, logged in or not.
+     */
+    private final Set<BinaryConnection> openConnections;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private int bufferSize;
+
+    /**
+     * Private constructor to initialize the BinaryGateway with the services.
+     */
+    private BinaryGateway() {
+        accountService = AccountService.getInstance();
+        exchangeService = ExchangeService.getInstance();
+        tradingService = TradingService.getInstance();
+        instrumentRegistry = InstrumentRegistry.getInstance();
+        connections = new ConcurrentHashMap<>();
+        openConnections = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the singleton instance of the BinaryGateway.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of BinaryGateway
+     */
+    public static synchronized BinaryGateway getInstance() {
+        if (instance == null) {
+            instance = new BinaryGateway();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the platform services and serves the gateway until the process is stopped.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        CryptoExchangeApp.init();
+        BinaryGateway gateway = getInstance();
+        gateway.start();
+        System.out.println("Binary gateway listening on port " + gateway.getPort());
+    }
+
+    /**
+     * Starts listening for connections, if the gateway is not started yet.
+     *
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        String host = System.getProperty(HOST_PROPERTY, "127.0.0.1");
+        int port = Integer.getInteger(PORT_PROPERTY, 9090);
+        bufferSize = Math.max(1024, Integer.getInteger(BUFFER_SIZE_PROPERTY, 64 * 1024));
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(host, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Cannot listen on " + host + ":" + port, e);
+        }
+        tradingService.subscribe(this);
+        Selector selector = this.selector;
+        thread = new Thread(() -> run(selector), "binary-gateway");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops listening and closes every connection.
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        tradingService.unSubscribe(this);
+        closeQuietly();
+        openConnections.forEach(this::close);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Returns the port the gateway listens on.
+     *
+     * @return the port, or -1 if the gateway is not started
+     */
+    public synchronized int getPort() {
+        return thread == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close the binary gateway", e);
+        }
+        serverChannel = null;
+        selector = null;
+    }
+
+    /**
+     * Loop of the selector thread: accepts connections, reads and decodes their messages and sends
+     * the answers the channels could not take at once.
+     *
+     * @param selector the selector of the gateway
+     */
+    private void run(Selector selector) {
+        while (selector.isOpen()) {
+            try {
+                selector.select(this::ready);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "The binary gateway selector failed", e);
+                return;
+            } catch (RuntimeException e) {
+                if (selector.isOpen()) {
+                    LOGGER.log(Level.SEVERE, "Could not serve a binary connection", e);
+                }
+            }
+        }
+    }
+
+    private void ready(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept(key);
+            return;
+        }
+        BinaryConnection connection = (BinaryConnection) key.attachment();
+        try {
+            if (key.isWritable()) {
+                synchronized (connection) {
+                    flush(connection);
+                }
+            }
+            if (key.isReadable()) {
+                read(connection);
+            }
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    private void accept(SelectionKey serverKey) {
+        try {
+            SocketChannel channel = ((ServerSocketChannel) serverKey.channel()).accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(serverKey.selector(), SelectionKey.OP_READ);
+            BinaryConnection connection = new BinaryConnection(channel, key, bufferSize);
+            key.attach(connection);
+            openConnections.add(connection);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not accept a binary connection", e);
+        }
+    }
+
+    /**
+     * Reads the bytes available on a connection and executes every complete message. The bytes of
+     * an incomplete message are kept at the start of the buffer until the rest arrives.
+     *
+     * @param connection the connection
+     * @throws IOException if the channel fails or sends an unknown message
+     */
+    private void read(BinaryConnection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            throw new IOException("Connection closed by the client");
+        }
+        in.flip();
+        while (in.hasRemaining() && !connection.closed) {
+            int size = BinaryProtocol.sizeOf(in.get(in.position()));
+            if (size < 0) {
+                throw new IOException("Unknown message " + in.get(in.position()));
+            }
+            if (in.remaining() < size) {
+                break;
+            }
+            switch (in.get()) {
+                case BinaryProtocol.LOGIN -> login(connection, in);
+                case BinaryProtocol.NEW_ORDER -> newOrder(connection, in);
+                case BinaryProtocol.CANCEL -> cancel(connection, in);
+                default -> throw new IOException("Unexpected message from a client");
+            }
+        }
+        in.compact();
+    }
+
+    private void login(BinaryConnection connection, ByteBuffer in) {
+        in.get(connection.token);
+        Session session;
+        try {
+            session = accountService.getSession(new String(connection.token, StandardCharsets.US_ASCII));
+        } catch (AccountServiceException e) {
+            session = null;
+        }
+        Session previous = connection.session;
+        if (previous != null) {
+            connections.remove(previous.getUser(), connection);
+        }
+        connection.session = session;
+        synchronized (connection) {
+            if (session == null) {
+                reject(connection, 0, BinaryProtocol.REJECT_NOT_LOGGED_IN);
+            } else {
+                connections.put(session.getUser(), connection);
+                ack(connection, 0, 0);
+            }
+            flushQuietly(connection);
+        }
+    }
+
+    private void newOrder(BinaryConnection connection, ByteBuffer in) {
+        long clientOrderID = in.getLong();
+        int side = in.get();
+        int ordinal = in.getInt();
+        long amount = in.getLong();
+        long price = in.getLong();
+        byte reason = 0;
+        CryptoCurrency cryptoCurrency = instrumentRegistry.get(ordinal);
+        if (connection.session == null) {
+            reason = BinaryProtocol.REJECT_NOT_LOGGED_IN;
+        } else if (cryptoCurrency == null || !exchangeService.isListed(cryptoCurrency)) {
+            reason = BinaryProtocol.REJECT_UNKNOWN_INSTRUMENT;
+        } else if (side < 0 || side >= ORDER_TYPES.length || amount <= 0 || price <= 0) {
+            reason = BinaryProtocol.REJECT_INVALID;
+        }
+        synchronized (connection) {
+            if (reason != 0) {
+                reject(connection, clientOrderID, reason);
+                flushQuietly(connection);
+                return;
+            }
+            if (!reserve(connection, ACK_SIZE)) {
+                return;
+            }
+        }
+        MarketOrder order = null;
+        try {
+            order = tradingService.placeOrder(connection.session, ORDER_TYPES[side], cryptoCurrency, amount, price);
+        } catch (AccountServiceException | IllegalArgumentException e) {
+            // Not enough funds, the session was closed or the cryptocurrency was delisted meanwhile
+        }
+        synchronized (connection) {
+            int reserved = connection.reserved;
+            connection.reserved = -1;
+            if (connection.closed) {
+                return;
+            }
+            ByteBuffer out = connection.out;
+            if (order != null) {
+                out.put(reserved, BinaryProtocol.ACK).putLong(reserved + 1, clientOrderID).putLong(reserved + 1 + Long.BYTES, order.getOrderID());
+            } else {
+                // The reject is shorter than the reserved ack, so the fills queued behind it move back
+                for (int i = reserved + ACK_SIZE; i < out.position(); i++) {
+                    out.put(i - ACK_SIZE + REJECT_SIZE, out.get(i));
+                }
+                out.position(out.position() - ACK_SIZE + REJECT_SIZE);
+                out.put(reserved, BinaryProtocol.REJECT).putLong(reserved + 1, clientOrderID).put(reserved + 1 + Long.BYTES, BinaryProtocol.REJECT_REFUSED);
+            }
+            flushQuietly(connection);
+        }
+    }
+
+    private void cancel(BinaryConnection connection, ByteBuffer in) {
+        long clientOrderID = in.getLong();
+        long orderID = in.getLong();
+        CompletableFuture<Boolean> result;
+        try {
+            result = tradingService.cancelOrder(connection.session, orderID);
+        } catch (AccountServiceException e) {
+            synchronized (connection) {
+                reject(connection, clientOrderID, BinaryProtocol.REJECT_NOT_LOGGED_IN);
+                flushQuietly(connection);
+            }
+            return;
+        }
+        result.thenAccept(cancelled -> {
+            synchronized (connection) {
+                if (cancelled) {
+                    ack(connection, clientOrderID, orderID);
+                } else {
+                    reject(connection, clientOrderID, BinaryProtocol.REJECT_UNKNOWN_ORDER);
+                }
+                flushQuietly(connection);
+            }
+        });
+    }
+
+    /**
+     * Sends a fill to the connections of the users of its orders. Called by the shard thread that
+     * executed the fill.
+     *
+     * @param fill The fill between the buy order and the selling order.
+     */
+    @Override
+    public void update(Fill fill) {
+        send(fill.getBuyOrder(), fill);
+        send(fill.getSellingOrder(), fill);
+    }
+
+    private void send(MarketOrder order, Fill fill) {
+        BinaryConnection connection = connections.get(order.getUser());
+        if (connection == null) {
+            return;
+        }
+        synchronized (connection) {
+            if (connection.closed || !ensure(connection, FILL_SIZE)) {
+                return;
+            }
+            BinaryProtocol.putFill(connection.out, order.getOrderID(), fill.getQuantity(), fill.getPrice(), order.getRemainingAmount());
+            flushQuietly(connection);
+        }
+    }
+
+    // The methods below are called with the lock of the connection held
+
+    private void ack(BinaryConnection connection, long clientOrderID, long orderID) {
+        if (ensure(connection, ACK_SIZE)) {
+            BinaryProtocol.putAck(connection.out, clientOrderID, orderID);
+        }
+    }
+
+    private void reject(BinaryConnection connection, long clientOrderID, byte reason) {
+        if (ensure(connection, REJECT_SIZE)) {
+            BinaryProtocol.putReject(connection.out, clientOrderID, reason);
+        }
+    }
+
+    /**
+     * Reserves the space of the ack of the order being placed at the end of the output buffer;
+     * the ack, or the reject if the order is refused, is written there once the order is placed.
+     *
+     * @return false if the connection has been closed
+     */
+    private boolean reserve(BinaryConnection connection, int size) {
+        if (connection.closed || !ensure(connection, size)) {
+            return false;
+        }
+        ByteBuffer out = connection.out;
+        connection.reserved = out.position();
+        out.position(out.position() + size);
+        return true;
+    }
+
+    /**
+     * Checks that the output buffer has room for a message, closing the connection if it has not.
+     */
+    private boolean ensure(BinaryConnection connection, int size) {
+        if (connection.out.remaining() >= size) {
+            return true;
+        }
+        close(connection);
+        return false;
+    }
+
+    private void flushQuietly(BinaryConnection connection) {
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Writes as many pending bytes as the channel takes without blocking, up to the reserved
+     * answer if an order is being placed, and asks the selector to finish the write if some bytes
+     * are left.
+     */
+    private void flush(BinaryConnection connection) throws IOException {
+        if (connection.closed) {
+            return;
+        }
+        ByteBuffer out = connection.out;
+        int end = out.position();
+        int sendable = connection.reserved >= 0 ? connection.reserved : end;
+        int written = 0;
+        if (sendable > 0) {
+            out.position(0).limit(sendable);
+            written = connection.channel.write(out);
+            out.limit(end).position(written);
+            out.compact();
+            if (connection.reserved >= 0) {
+                connection.reserved -= written;
+            }
+        }
+        boolean pending = written < sendable;
+        if (pending != connection.writeInterest) {
+            connection.writeInterest = pending;
+            SelectionKey key = connection.key;
+            key.interestOps(pending ? key.interestOps() | SelectionKey.OP_WRITE : key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (pending) {
+                key.selector().wakeup();
+            }
+        }
+    }
+
+    private void close(BinaryConnection connection) {
+        synchronized (connection) {
+            if (connection.closed) {
+                return;
+            }
+            connection.closed = true;
+        }
+        openConnections.remove(connection);
+        Session session = connection.session;
+        if (session != null) {
+            connections.remove(session.getUser(), connection);
+        }
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close a binary connection", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.bootcamp.gateway;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the messages of the binary order-entry protocol.<br>
+ * Every message starts with a byte with its type and has a fixed size given by the type, so a
+ * message is decoded in place from the buffer it was read into, without any intermediate object.
+ * Numbers are big-endian. Cryptocurrencies are identified by their
+ * {@link org.bootcamp.models.CryptoCurrency#getOrdinal() ordinal}, amounts are unscaled quantities
+ * with the quantity scale of the cryptocurrency and prices are unscaled fiat money, like in the
+ * services. The messages are:
+ * <ul>
+ *   <li>LOGIN (client) - token of a session opened by the AccountService, {@value #TOKEN_LENGTH} ASCII bytes</li>
+ *   <li>NEW_ORDER (client) - client order ID (long), order type (byte, the ordinal of the OrderType),
+ *   cryptocurrency ordinal (int), amount (long), total price (long)</li>
+ *   <li>CANCEL (client) - client order ID (long), order ID (long)</li>
+ *   <li>ACK (server) - client order ID (long), order ID (long); answers a login with zeros, a new
+ *   order with the ID of the placed order, and a cancel with the ID of the cancelled order</li>
+ *   <li>FILL (server) - order ID (long), quantity (long), price (long), remaining amount (long)</li>
+ *   <li>REJECT (server) - client order ID (long), reason (byte)</li>
+ * </ul>
+ * @see BinaryGateway
+ * @see BinaryClient
+ */
+public final class BinaryProtocol {
+    public static final byte LOGIN = 1;
+    public static final byte NEW_ORDER = 2;
+    public static final byte CANCEL = 3;
+    public static final byte ACK = 4;
+    public static final byte FILL = 5;
+    public static final byte REJECT = 6;
+
+    /**
+     * Length of a session token.
+     */
+    public static final int TOKEN_LENGTH = 32;
+
+    /**
+     * The connection has not logged in with a valid session.
+     */
+    public static final byte REJECT_NOT_LOGGED_IN = 1;
+    /**
+     * The services refused the request, usually for lack of funds.
+     */
+    public static final byte REJECT_REFUSED = 2;
+    /**
+     * The cryptocurrency is not traded by the exchange.
+     */
+    public static final byte REJECT_UNKNOWN_INSTRUMENT = 3;
+    /**
+     * The order type, amount or price is not valid.
+     */
+    public static final byte REJECT_INVALID = 4;
+    /**
+     * The order to cancel is not an open order of the user.
+     */
+    public static final byte REJECT_UNKNOWN_ORDER = 5;
+
+    private static final int[] SIZES = {
+            -1,
+            1 + TOKEN_LENGTH,
+            1 + Long.BYTES + 1 + Integer.BYTES + 2 * Long.BYTES,
+            1 + 2 * Long.BYTES,
+            1 + 2 * Long.BYTES,
+            1 + 4 * Long.BYTES,
+            1 + Long.BYTES + 1
+    };
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Returns the size of a message.
+     *
+     * @param type the type of the message
+     * @return the size in bytes, including the type, or -1 if the type is unknown
+     */
+    public static int sizeOf(int type) {
+        return type > 0 && type < SIZES.length ? SIZES[type] : -1;
+    }
+
+    static void putAck(ByteBuffer buffer, long clientOrderID, long orderID) {
+        buffer.put(ACK).putLong(clientOrderID).putLong(orderID);
+    }
+
+    static void putFill(ByteBuffer buffer, long orderID, long quantity, long price, long remainingAmount) {
+        buffer.put(FILL).putLong(orderID).putLong(quantity).putLong(price).putLong(remainingAmount);
+    }
+
+    static void putReject(ByteBuffer buffer, long clientOrderID, byte reason) {
+        buffer.put(REJECT).putLong(clientOrderID).put(reason);
+    }
+}
@@ -0,0 +1,23 @@
+package org.bootcamp.gateway;
+
+/**
+ * Ends a request of the gateway with an HTTP status and an error message.
+ */
+class GatewayException extends RuntimeException {
+    private final int status;
+
+    /**
+     * Constructs a new GatewayException.
+     *
+     * @param status the HTTP status of the response
+     * @param message the error message sent to the client
+     */
+    GatewayException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,565 @@
+package org.bootcamp.gateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bootcamp.CryptoExchangeApp;
+import org.bootcamp.metrics.LatencyHistogram;
+import org.bootcamp.metrics.ServiceMetrics;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.CryptoCurrencyException;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.Transaction;
+import org.bootcamp.models.TransactionAction;
+import org.bootcamp.models.TransactionHistory;
+import org.bootcamp.models.Wallet;
+import org.bootcamp.services.AccountService;
+import org.bootcamp.services.AccountServiceException;
+import org.bootcamp.services.ExchangeService;
+import org.bootcamp.services.TradingService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The HttpGateway class exposes the services of the platform as a local HTTP/JSON API and follows
+ * the singleton pattern.<br>
+ * It is built on the HttpServer of the JDK and calls the services directly, without going through
+ * the views, so it can run alongside the console or on its own. Every request is handled on its own
+ * virtual thread when the Java runtime has them (Java 21 or later), so thousands of concurrent
+ * clients only cost their sockets; on older runtimes the requests share a fixed pool of threads.<br>
+ * Clients log in or register to get a session token and send it back in the header
+ * {@code Authorization: Bearer <token>}. Decimal values are exchanged as strings. The endpoints are:
+ * <ul>
+ *   <li>POST /api/register - {name, email, password}, returns the token</li>
+ *   <li>POST /api/login - {email, password}, returns the token</li>
+ *   <li>POST /api/logout - closes the session</li>
+ *   <li>POST /api/deposit - {amount} of fiat money</li>
+ *   <li>POST /api/exchange - {symbol, quantity} bought from the exchange</li>
+ *   <li>GET /api/market - current value, inventory and ordinal of every cryptocurrency</li>
+ *   <li>GET /api/wallet - fiat money and cryptocurrencies of the user</li>
+ *   <li>GET /api/history - transactions of the user, newest first, filtered by the query parameters
+ *   symbol, action, from and to, and paged with cursor and limit</li>
+ *   <li>GET /api/orders - open orders of the user</li>
+ *   <li>POST /api/orders - {type, symbol, amount, price}, places a market order</li>
+ *   <li>DELETE /api/orders/{orderID} - cancels an open order</li>
+ *   <li>GET /api/metrics - latency percentiles of the services, in nanoseconds, since startup or, with
+ *   interval=true, since the previous interval request</li>
+ * </ul>
+ * Invalid requests are answered with status 400, requests without a valid session with 401, and a
+ * purchase the exchange cannot cover with 409; the body of an error is {@code {"error": message}}.
+ * The gateway is configured with system properties:
+ * <ul>
+ *   <li>{@value #ENABLED_PROPERTY} - "true" starts the gateway with the console application (default "false")</li>
+ *   <li>{@value #HOST_PROPERTY} - address the gateway listens on (default "127.0.0.1")</li>
+ *   <li>{@value #PORT_PROPERTY} - port the gateway listens on, 0 for any free port (default 8080)</li>
+ *   <li>{@value #THREADS_PROPERTY} - threads of the pool used without virtual threads (default 4 per processor)</li>
+ * </ul>
+ * @see AccountService
+ * @see ExchangeService
+ * @see TradingService
+ */
+public class HttpGateway {
+    /**
+     * System property that starts the gateway with the console application.
+     */
+    public static final String ENABLED_PROPERTY = "gateway.enabled";
+    /**
+     * System property with the address the gateway listens on.
+     */
+    public static final String HOST_PROPERTY = "gateway.host";
+    /**
+     * System property with the port the gateway listens on.
+     */
+    public static final String PORT_PROPERTY = "gateway.port";
+    /**
+     * System property with the threads of the pool used when virtual threads are not available.
+     */
+    public static final String THREADS_PROPERTY = "gateway.threads";
+
+    /**
+     * Largest request body read, in bytes.
+     */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    /**
+     * Largest page of the transaction history.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final Logger LOGGER = Logger.getLogger(HttpGateway.class.getName());
+
+    /**
+     * Singleton instance of the HttpGateway.
+     */
+    private static HttpGateway instance;
+
+    private final AccountService accountService;
+    private final ExchangeService exchangeService;
+    private final TradingService tradingService;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Private constructor to initialize the HttpGateway with the services.
+     */
+    private HttpGateway() {
+        accountService = AccountService.getInstance();
+        exchangeService = ExchangeService.getInstance();
+        tradingService = TradingService.getInstance();
+    }
+
+    /**
+     * Returns the singleton instance of the HttpGateway.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of HttpGateway
+     */
+    public static synchronized HttpGateway getInstance() {
+        if (instance == null) {
+            instance = new HttpGateway();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the platform services and serves the gateway until the process is stopped.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        CryptoExchangeApp.init();
+        HttpGateway gateway = getInstance();
+        gateway.start();
+        System.out.println("HTTP gateway listening on port " + gateway.getPort());
+    }
+
+    /**
+     * Starts listening for requests, if the gateway is not started yet.
+     *
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        String host = System.getProperty(HOST_PROPERTY, "127.0.0.1");
+        int port = Integer.getInteger(PORT_PROPERTY, 8080);
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on " + host + ":" + port, e);
+        }
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/register", exchange -> handle(exchange, "POST", this::register));
+        server.createContext("/api/login", exchange -> handle(exchange, "POST", this::login));
+        server.createContext("/api/logout", exchange -> handle(exchange, "POST", this::logout));
+        server.createContext("/api/deposit", exchange -> handle(exchange, "POST", this::deposit));
+        server.createContext("/api/exchange", exchange -> handle(exchange, "POST", this::buyFromExchange));
+        server.createContext("/api/market", exchange -> handle(exchange, "GET", this::market));
+        server.createContext("/api/wallet", exchange -> handle(exchange, "GET", this::wallet));
+        server.createContext("/api/history", exchange -> handle(exchange, "GET", this::history));
+        server.createContext("/api/orders", this::orders);
+        server.createContext("/api/metrics", exchange -> handle(exchange, "GET", this::metrics));
+        server.start();
+    }
+
+    /**
+     * Stops listening and waits up to a second for the requests in progress.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the port the gateway listens on.
+     *
+     * @return the port, or -1 if the gateway is not started
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * Creates the executor of the requests: one virtual thread per request when the runtime has
+     * them, looked up reflectively since the project is built for Java 17, or a fixed pool otherwise.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, 4 * Runtime.getRuntime().availableProcessors()));
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "http-gateway-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private Json.Writer register(HttpExchange exchange) throws AccountServiceException {
+        Map<String, String> body = readBody(exchange);
+        Session session = accountService.registerUser(required(body, "name"), required(body, "email"), required(body, "password"));
+        return writeSession(session);
+    }
+
+    private Json.Writer login(HttpExchange exchange) throws AccountServiceException {
+        Map<String, String> body = readBody(exchange);
+        return writeSession(accountService.login(required(body, "email"), required(body, "password")));
+    }
+
+    private Json.Writer logout(HttpExchange exchange) throws AccountServiceException {
+        accountService.logout(session(exchange));
+        return new Json.Writer().beginObject().endObject();
+    }
+
+    private Json.Writer deposit(HttpExchange exchange) throws AccountServiceException {
+        Session session = session(exchange);
+        long amount = FixedPoint.toFiat(decimal(readBody(exchange), "amount"));
+        if (amount <= 0) {
+            throw new GatewayException(400, "Amount must be positive");
+        }
+        accountService.deposit(session, amount);
+        return writeWallet(session.getUser().getWallet());
+    }
+
+    private Json.Writer buyFromExchange(HttpExchange exchange) throws AccountServiceException, CryptoCurrencyException {
+        Session session = session(exchange);
+        Map<String, String> body = readBody(exchange);
+        CryptoCurrency cryptoCurrency = cryptoCurrency(required(body, "symbol"));
+        long quantity = cryptoCurrency.toQuantity(decimal(body, "quantity"));
+        if (quantity <= 0) {
+            throw new GatewayException(400, "Quantity must be positive");
+        }
+        exchangeService.buyFromExchange(session, cryptoCurrency, quantity);
+        return writeWallet(session.getUser().getWallet());
+    }
+
+    private Json.Writer market(HttpExchange exchange) {
+        Json.Writer json = new Json.Writer().beginObject().name("cryptoCurrencies").beginArray();
+        for (CryptoCurrency cryptoCurrency : sortedCryptoCurrencies()) {
+            json.beginObject()
+                    .name("symbol").value(cryptoCurrency.getShorthandSymbol())
+                    .name("ordinal").value(cryptoCurrency.getOrdinal())
+                    .name("name").value(cryptoCurrency.getDisplayName())
+                    .name("value").value(cryptoCurrency.priceToBigDecimal(cryptoCurrency.getCurrentValue()).toPlainString())
+                    .name("tickSize").value(cryptoCurrency.priceToBigDecimal(cryptoCurrency.getTickSize()).toPlainString())
+                    .name("available").value(cryptoCurrency.quantityToBigDecimal(exchangeService.getAvailableQuantity(cryptoCurrency)).toPlainString())
+                    .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private Json.Writer metrics(HttpExchange exchange) {
+        boolean interval = Boolean.parseBoolean(readQuery(exchange).get("interval"));
+        ServiceMetrics metrics = ServiceMetrics.getInstance();
+        Map<String, LatencyHistogram> histograms = interval ? metrics.intervalSnapshot() : metrics.snapshot();
+        Json.Writer json = new Json.Writer().beginObject().name("latencies").beginArray();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            json.beginObject()
+                    .name("name").value(entry.getKey())
+                    .name("count").value(histogram.getCount())
+                    .name("mean").value(Math.round(histogram.getMean()))
+                    .name("p50").value(histogram.getValueAtPercentile(50))
+                    .name("p90").value(histogram.getValueAtPercentile(90))
+                    .name("p99").value(histogram.getValueAtPercentile(99))
+                    .name("p999").value(histogram.getValueAtPercentile(99.9))
+                    .name("max").value(histogram.getMax())
+                    .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private Json.Writer wallet(HttpExchange exchange) throws AccountServiceException {
+        return writeWallet(session(exchange).getUser().getWallet());
+    }
+
+    private Json.Writer history(HttpExchange exchange) {
+        Session session = session(exchange);
+        Map<String, String> query = readQuery(exchange);
+        CryptoCurrency cryptoCurrency = query.containsKey("symbol") ? cryptoCurrency(query.get("symbol")) : null;
+        TransactionAction action = query.containsKey("action") ? enumValue(TransactionAction.class, query.get("action")) : null;
+        LocalDateTime from = query.containsKey("from") ? dateTime(query.get("from")) : null;
+        LocalDateTime to = query.containsKey("to") ? dateTime(query.get("to")) : null;
+        long cursor = query.containsKey("cursor") ? integer(query.get("cursor")) : TransactionHistory.FIRST_PAGE;
+        int limit = (int) Math.min(MAX_PAGE_SIZE, query.containsKey("limit") ? integer(query.get("limit")) : DEFAULT_PAGE_SIZE);
+        TransactionHistory.Page page = session.getUser().getTransactionHistory()
+                .query(cryptoCurrency, action, from, to, cursor, limit);
+        Json.Writer json = new Json.Writer().beginObject().name("transactions").beginArray();
+        for (Transaction transaction : page.getTransactions()) {
+            CryptoCurrency transacted = transaction.getCryptoCurrency();
+            json.beginObject()
+                    .name("transactionID").value(transaction.getTransactionID())
+                    .name("action").value(transaction.getAction().name())
+                    .name("symbol").value(transacted.getShorthandSymbol())
+                    .name("amount").value(transacted.quantityToBigDecimal(transaction.getAmount()).toPlainString())
+                    .name("price").value(FixedPoint.fiatToBigDecimal(transaction.getPrice()).toPlainString())
+                    .name("dateTime").value(transaction.getDateTime().toString())
+                    .endObject();
+        }
+        json.endArray().name("nextCursor");
+        return page.hasNext() ? json.value(page.getNextCursor()).endObject() : json.value((String) null).endObject();
+    }
+
+    /**
+     * Handles the collection of orders and every order of the collection.
+     */
+    private void orders(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if (path.equals("/api/orders") || path.equals("/api/orders/")) {
+            handle(exchange, method.equals("POST") ? "POST" : "GET", method.equals("POST") ? this::placeOrder : this::openOrders);
+        } else {
+            handle(exchange, "DELETE", this::cancelOrder);
+        }
+    }
+
+    private Json.Writer openOrders(HttpExchange exchange) throws AccountServiceException {
+        List<MarketOrder> orders = tradingService.getOpenOrders(session(exchange));
+        orders.sort(Comparator.comparingLong(MarketOrder::getOrderID));
+        Json.Writer json = new Json.Writer().beginObject().name("orders").beginArray();
+        for (MarketOrder order : orders) {
+            writeOrder(json, order);
+        }
+        return json.endArray().endObject();
+    }
+
+    private Json.Writer placeOrder(HttpExchange exchange) throws AccountServiceException {
+        Session session = session(exchange);
+        Map<String, String> body = readBody(exchange);
+        OrderType orderType = enumValue(OrderType.class, required(body, "type"));
+        CryptoCurrency cryptoCurrency = cryptoCurrency(required(body, "symbol"));
+        long amount = cryptoCurrency.toQuantity(decimal(body, "amount"));
+        long price = FixedPoint.toFiat(decimal(body, "price"));
+        if (amount <= 0 || price <= 0) {
+            throw new GatewayException(400, "Amount and price must be positive");
+        }
+        MarketOrder order = tradingService.placeOrder(session, orderType, cryptoCurrency, amount, price);
+        return writeOrder(new Json.Writer(), order);
+    }
+
+    private Json.Writer cancelOrder(HttpExchange exchange) throws AccountServiceException {
+        Session session = session(exchange);
+        String path = exchange.getRequestURI().getPath();
+        long orderID = integer(path.substring(path.lastIndexOf('/') + 1));
+        boolean cancelled = tradingService.cancelOrder(session, orderID).join();
+        if (!cancelled) {
+            throw new GatewayException(404, "Order " + orderID + " is not an open order");
+        }
+        return new Json.Writer().beginObject().name("orderID").value(orderID).name("cancelled").value(true).endObject();
+    }
+
+    /**
+     * Runs an endpoint and sends its response, or the error it ended with.
+     *
+     * @param exchange the request
+     * @param method the method accepted by the endpoint
+     * @param endpoint the endpoint
+     */
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) {
+        int status = 200;
+        Json.Writer response;
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new GatewayException(405, "Method not allowed");
+            }
+            response = endpoint.handle(exchange);
+        } catch (GatewayException e) {
+            status = e.getStatus();
+            response = error(e.getMessage());
+        } catch (AccountServiceException | IllegalArgumentException | ArithmeticException e) {
+            status = 400;
+            response = error(e.getMessage());
+        } catch (CryptoCurrencyException e) {
+            status = 409;
+            response = error(e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Request failed: " + exchange.getRequestURI(), e);
+            status = 500;
+            response = error("Internal error");
+        }
+        try (exchange) {
+            byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client went away before the response was sent
+        }
+    }
+
+    private Session session(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new GatewayException(401, "Missing session token");
+        }
+        try {
+            return accountService.getSession(authorization.substring("Bearer ".length()).trim());
+        } catch (AccountServiceException e) {
+            throw new GatewayException(401, e.getMessage());
+        }
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new GatewayException(413, "Request body too large");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, String> readQuery(HttpExchange exchange) {
+        Map<String, String> values = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    values.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null || value.isBlank()) {
+            throw new GatewayException(400, "Missing " + name);
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(Map<String, String> values, String name) {
+        try {
+            return new BigDecimal(required(values, name));
+        } catch (NumberFormatException e) {
+            throw new GatewayException(400, "Invalid " + name);
+        }
+    }
+
+    private static long integer(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new GatewayException(400, "Invalid number " + value);
+        }
+    }
+
+    private static LocalDateTime dateTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new GatewayException(400, "Invalid date and time " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new GatewayException(400, "Invalid " + type.getSimpleName() + " " + value);
+        }
+    }
+
+    private CryptoCurrency cryptoCurrency(String symbol) {
+        CryptoCurrency cryptoCurrency = exchangeService.findCryptoCurrency(symbol.toUpperCase());
+        if (cryptoCurrency == null) {
+            throw new GatewayException(400, "Unknown cryptocurrency " + symbol);
+        }
+        return cryptoCurrency;
+    }
+
+    private List<CryptoCurrency> sortedCryptoCurrencies() {
+        return exchangeService.getAvailableCryptoCurrencies().stream()
+                .sorted(Comparator.comparingInt(CryptoCurrency::getOrdinal)).toList();
+    }
+
+    private static Json.Writer writeSession(Session session) {
+        return new Json.Writer().beginObject()
+                .name("token").value(session.getToken())
+                .name("name").value(session.getUser().getName())
+                .name("email").value(session.getUser().getEmail())
+                .endObject();
+    }
+
+    private Json.Writer writeWallet(Wallet wallet) {
+        Json.Writer json = new Json.Writer().beginObject()
+                .name("fiatMoney").value(FixedPoint.fiatToBigDecimal(wallet.getFiatMoney()).toPlainString())
+                .name("cryptoCurrencies").beginObject();
+        List<CryptoCurrency> held = wallet.getHeldCryptoCurrencies();
+        held.sort(Comparator.comparing(CryptoCurrency::getShorthandSymbol));
+        for (CryptoCurrency cryptoCurrency : held) {
+            json.name(cryptoCurrency.getShorthandSymbol())
+                    .value(cryptoCurrency.quantityToBigDecimal(wallet.getCryptoCurrencyQuantity(cryptoCurrency)).toPlainString());
+        }
+        return json.endObject().endObject();
+    }
+
+    private static Json.Writer writeOrder(Json.Writer json, MarketOrder order) {
+        CryptoCurrency cryptoCurrency = order.getCryptoCurrency();
+        return json.beginObject()
+                .name("orderID").value(order.getOrderID())
+                .name("type").value(order.getOrderType().name())
+                .name("symbol").value(cryptoCurrency.getShorthandSymbol())
+                .name("amount").value(cryptoCurrency.quantityToBigDecimal(order.getAmount()).toPlainString())
+                .name("price").value(FixedPoint.fiatToBigDecimal(order.getPrice()).toPlainString())
+                .name("remainingAmount").value(cryptoCurrency.quantityToBigDecimal(order.getRemainingAmount()).toPlainString())
+                .name("remainingPrice").value(FixedPoint.fiatToBigDecimal(order.getRemainingPrice()).toPlainString())
+                .endObject();
+    }
+
+    private static Json.Writer error(String message) {
+        return new Json.Writer().beginObject().name("error").value(message).endObject();
+    }
+
+    /**
+     * An endpoint of the gateway.
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        /**
+         * Handles a request.
+         *
+         * @param exchange the request
+         * @return the body of the response
+         * @throws AccountServiceException if a service rejects the request of the user
+         * @throws CryptoCurrencyException if the exchange cannot cover a purchase
+         */
+        Json.Writer handle(HttpExchange exchange) throws AccountServiceException, CryptoCurrencyException;
+    }
+}
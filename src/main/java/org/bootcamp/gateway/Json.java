@@ -0,0 +1,242 @@
+package org.bootcamp.gateway;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the requests and responses of the gateway.<br>
+ * Requests are flat objects whose values are strings, numbers, booleans or null, so they are read
+ * into a map of texts; responses are written with a {@link Writer}. Decimal values are exchanged as
+ * strings, so they keep the exact scale of the fixed-point values.
+ * @see HttpGateway
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Reads a flat JSON object.
+     *
+     * @param text the JSON text, blank for an empty object
+     * @return the values of the object as texts, indexed by name; null values are left out
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    static Map<String, String> parseObject(String text) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (text.isBlank()) {
+            return values;
+        }
+        Parser parser = new Parser(text);
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String name = parser.string();
+                parser.expect(':');
+                String value = parser.value();
+                if (value != null) {
+                    values.put(name, value);
+                }
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.end();
+        return values;
+    }
+
+    /**
+     * Reader of the tokens of a flat JSON object.
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        String value() {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Only strings, numbers and booleans are accepted at " + start);
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Invalid unicode escape");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+        }
+
+        void expect(char expected) {
+            if (!consume(expected)) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at " + position);
+            }
+        }
+
+        boolean consume(char expected) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw new IllegalArgumentException("Unexpected content at " + position);
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Builder of a JSON response.
+     */
+    static final class Writer {
+        private final StringBuilder out = new StringBuilder();
+        /**
+         * Whether the next member or element must be preceded by a comma.
+         */
+        private boolean separate;
+
+        Writer beginObject() {
+            separator();
+            out.append('{');
+            separate = false;
+            return this;
+        }
+
+        Writer endObject() {
+            out.append('}');
+            separate = true;
+            return this;
+        }
+
+        Writer beginArray() {
+            separator();
+            out.append('[');
+            separate = false;
+            return this;
+        }
+
+        Writer endArray() {
+            out.append(']');
+            separate = true;
+            return this;
+        }
+
+        Writer name(String name) {
+            separator();
+            quote(name);
+            out.append(':');
+            separate = false;
+            return this;
+        }
+
+        Writer value(String value) {
+            separator();
+            if (value == null) {
+                out.append("null");
+            } else {
+                quote(value);
+            }
+            separate = true;
+            return this;
+        }
+
+        Writer value(long value) {
+            separator();
+            out.append(value);
+            separate = true;
+            return this;
+        }
+
+        Writer value(boolean value) {
+            separator();
+            out.append(value);
+            separate = true;
+            return this;
+        }
+
+        private void separator() {
+            if (separate) {
+                out.append(',');
+            }
+        }
+
+        private void quote(String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            out.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.bootcamp.metrics;
+
+/**
+ * Histogram of latencies in log-scaled buckets, in the style of HdrHistogram.<br>
+ * Values below {@value #SUB_BUCKETS} nanoseconds have a bucket each; above them every power of two
+ * is split into half as many linear buckets, so any value is known within 1/64 of itself while the
+ * histogram keeps a fixed size of a few thousand buckets from nanoseconds to {@link #MAX_VALUE}. The
+ * bucket of a value is found with a few shifts, without any search, and larger values are counted
+ * in the highest bucket.<br>
+ * A histogram is a plain copy of the counts, not safe for concurrent use; it is built by a
+ * {@link LatencyRecorder}, which takes the concurrent recordings.
+ * @see LatencyRecorder
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of bits of the precision of the buckets.
+     */
+    static final int PRECISION_BITS = 7;
+    /**
+     * Number of buckets of the linear range, and twice the buckets of every power of two.
+     */
+    static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    /**
+     * Highest value told apart by the buckets, about 18 minutes in nanoseconds.
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+    /**
+     * Number of buckets of a histogram.
+     */
+    static final int BUCKET_COUNT = bucketOf(MAX_VALUE) + 1;
+
+    private final long[] counts;
+    private long count;
+    private long sum;
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param value the value, negative values are counted as 0
+     * @return the index of the bucket
+     */
+    static int bucketOf(long value) {
+        long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+        int shift = 63 - Long.numberOfLeadingZeros(clamped | (SUB_BUCKETS - 1)) - (PRECISION_BITS - 1);
+        return (shift << (PRECISION_BITS - 1)) + (int) (clamped >>> shift);
+    }
+
+    /**
+     * Returns the lowest value counted in a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the lowest value of the bucket
+     */
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> (PRECISION_BITS - 1)) - 1;
+        return (long) (bucket - (shift << (PRECISION_BITS - 1))) << shift;
+    }
+
+    /**
+     * Returns the highest value counted in a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the highest value of the bucket
+     */
+    static long highestValueOf(int bucket) {
+        return bucket + 1 == BUCKET_COUNT ? MAX_VALUE : lowestValueOf(bucket + 1) - 1;
+    }
+
+    /**
+     * Adds recordings to a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @param recordings the number of recordings
+     */
+    void add(int bucket, long recordings) {
+        counts[bucket] += recordings;
+        count += recordings;
+    }
+
+    /**
+     * Adds to the sum of the recorded values.
+     *
+     * @param values the sum of the values to add
+     */
+    void addSum(long values) {
+        sum += values;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, in nanoseconds
+     */
+    public void record(long value) {
+        add(bucketOf(value), 1);
+        sum += value;
+    }
+
+    /**
+     * Adds the recordings of another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recordings
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the exact mean, in nanoseconds, or 0 if the histogram is empty
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the highest recorded value.
+     *
+     * @return the highest value of the highest bucket with recordings, or 0 if the histogram is empty
+     */
+    public long getMax() {
+        for (int bucket = BUCKET_COUNT - 1; bucket >= 0; bucket--) {
+            if (counts[bucket] > 0) {
+                return highestValueOf(bucket);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value below which a percentage of the recorded values fall.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the highest value of the bucket of the percentile, in nanoseconds, or 0 if the histogram is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return highestValueOf(bucket);
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count %d, mean %.1f us, p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+                count, getMean() / 1e3, getValueAtPercentile(50) / 1e3, getValueAtPercentile(90) / 1e3,
+                getValueAtPercentile(99) / 1e3, getValueAtPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+}
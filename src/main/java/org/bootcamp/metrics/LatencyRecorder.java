@@ -0,0 +1,141 @@
+package org.bootcamp.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records latencies from any number of threads without locks, into the buckets of a {@link LatencyHistogram}.<br>
+ * The recordings are spread over stripes of counters chosen by the id of the recording thread, so
+ * threads rarely share a stripe and an uncontended atomic add is all a recording costs. The stripes
+ * are allocated the first time a thread uses them, so a recorder used by a few threads stays small.
+ * Stripes are not tied to the lifetime of a thread, so recorders used from short-lived or virtual
+ * threads do not grow with the number of threads.<br>
+ * Readers add up the stripes into a histogram while the recordings go on, so a snapshot may miss
+ * the recordings being made at that moment, which are seen by the next one. Interval snapshots
+ * return the recordings since the previous interval snapshot, without ever clearing the counters,
+ * so no recording is lost between two intervals.
+ * @see LatencyHistogram
+ * @see ServiceMetrics
+ */
+public final class LatencyRecorder {
+    /**
+     * Access to the counters of the stripes with atomic updates.
+     */
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+    /**
+     * Slot of a stripe holding the sum of its values, after the buckets.
+     */
+    private static final int SUM_SLOT = LatencyHistogram.BUCKET_COUNT;
+    /**
+     * Maximum number of stripes of a recorder.
+     */
+    private static final int MAX_STRIPES = 64;
+
+    private final String name;
+    /**
+     * Counters of every bucket and the sum of the values, per stripe; null until a thread uses the stripe.
+     */
+    private final AtomicReferenceArray<long[]> stripes;
+    private final int mask;
+    /**
+     * Counters added up at the previous interval snapshot.
+     */
+    private long[] intervalStart;
+
+    /**
+     * Constructs a recorder with a stripe per processor, doubled to make collisions rare.
+     *
+     * @param name the name of the recorded latency
+     */
+    public LatencyRecorder(String name) {
+        this.name = name;
+        int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 2);
+        this.stripes = new AtomicReferenceArray<>(stripeCount);
+        this.mask = stripeCount - 1;
+        this.intervalStart = new long[SUM_SLOT + 1];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        long[] stripe = stripe();
+        COUNTERS.getAndAdd(stripe, LatencyHistogram.bucketOf(nanos), 1L);
+        COUNTERS.getAndAdd(stripe, SUM_SLOT, nanos);
+    }
+
+    /**
+     * Records the time elapsed since a start time.
+     *
+     * @param startNanos the start time, from {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    private long[] stripe() {
+        int index = (int) (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L >>> 32) & mask;
+        long[] stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new long[SUM_SLOT + 1]);
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    /**
+     * Adds up the counters of every stripe.
+     */
+    private long[] total() {
+        long[] total = new long[SUM_SLOT + 1];
+        for (int i = 0; i < stripes.length(); i++) {
+            long[] stripe = stripes.get(i);
+            if (stripe != null) {
+                for (int slot = 0; slot <= SUM_SLOT; slot++) {
+                    total[slot] += (long) COUNTERS.getOpaque(stripe, slot);
+                }
+            }
+        }
+        return total;
+    }
+
+    private static LatencyHistogram histogram(long[] total, long[] start) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int bucket = 0; bucket < SUM_SLOT; bucket++) {
+            long recordings = total[bucket] - start[bucket];
+            if (recordings != 0) {
+                histogram.add(bucket, recordings);
+            }
+        }
+        histogram.addSum(total[SUM_SLOT] - start[SUM_SLOT]);
+        return histogram;
+    }
+
+    /**
+     * Returns the latencies recorded since the recorder was created.
+     *
+     * @return a new histogram with the recordings
+     */
+    public LatencyHistogram snapshot() {
+        return histogram(total(), new long[SUM_SLOT + 1]);
+    }
+
+    /**
+     * Returns the latencies recorded since the previous interval snapshot, and starts a new interval.
+     *
+     * @return a new histogram with the recordings of the interval
+     */
+    public synchronized LatencyHistogram intervalSnapshot() {
+        long[] total = total();
+        LatencyHistogram histogram = histogram(total, intervalStart);
+        intervalStart = total;
+        return histogram;
+    }
+}
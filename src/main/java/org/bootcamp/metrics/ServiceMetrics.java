@@ -0,0 +1,109 @@
+package org.bootcamp.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ServiceMetrics class holds the latency recorders of the services and follows the singleton pattern.<br>
+ * The latencies are always recorded; a recording costs two reads of the clock and a couple of
+ * uncontended atomic adds, so it can stay on in production. The recorded latencies are:
+ * <ul>
+ *   <li>{@value #ORDER_TO_FILL} - from the order handed to its matching shard to its first fill as the
+ *   incoming order, including the wait in the ring buffer</li>
+ *   <li>{@value #MATCHING} - a matching pass of an order against its book, with the settlement of its fills</li>
+ *   <li>{@value #FILL_NOTIFY} - the notification of a fill to the subscribers of the trading service</li>
+ *   <li>{@value #PURCHASE} - a purchase from the exchange</li>
+ *   <li>{@value #TICK_NOTIFY} - the publication of a price update to the subscribers of the exchange</li>
+ *   <li>{@value #LOGIN} - a login, successful or not</li>
+ * </ul>
+ * The instance is created eagerly, because the recorders are used from many threads.
+ * @see LatencyRecorder
+ */
+public final class ServiceMetrics {
+    public static final String ORDER_TO_FILL = "trading.orderToFill";
+    public static final String MATCHING = "trading.matching";
+    public static final String FILL_NOTIFY = "trading.notify";
+    public static final String PURCHASE = "exchange.purchase";
+    public static final String TICK_NOTIFY = "exchange.notify";
+    public static final String LOGIN = "account.login";
+
+    private static final ServiceMetrics INSTANCE = new ServiceMetrics();
+
+    private final LatencyRecorder orderToFill;
+    private final LatencyRecorder matching;
+    private final LatencyRecorder fillNotify;
+    private final LatencyRecorder purchase;
+    private final LatencyRecorder tickNotify;
+    private final LatencyRecorder login;
+    private final List<LatencyRecorder> recorders;
+
+    private ServiceMetrics() {
+        orderToFill = new LatencyRecorder(ORDER_TO_FILL);
+        matching = new LatencyRecorder(MATCHING);
+        fillNotify = new LatencyRecorder(FILL_NOTIFY);
+        purchase = new LatencyRecorder(PURCHASE);
+        tickNotify = new LatencyRecorder(TICK_NOTIFY);
+        login = new LatencyRecorder(LOGIN);
+        recorders = List.of(orderToFill, matching, fillNotify, purchase, tickNotify, login);
+    }
+
+    /**
+     * Returns the singleton instance of the ServiceMetrics.
+     *
+     * @return the singleton instance of ServiceMetrics
+     */
+    public static ServiceMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public LatencyRecorder getOrderToFill() {
+        return orderToFill;
+    }
+
+    public LatencyRecorder getMatching() {
+        return matching;
+    }
+
+    public LatencyRecorder getFillNotify() {
+        return fillNotify;
+    }
+
+    public LatencyRecorder getPurchase() {
+        return purchase;
+    }
+
+    public LatencyRecorder getTickNotify() {
+        return tickNotify;
+    }
+
+    public LatencyRecorder getLogin() {
+        return login;
+    }
+
+    /**
+     * Returns the latencies recorded since startup.
+     *
+     * @return a histogram per recorder, indexed by name
+     */
+    public Map<String, LatencyHistogram> snapshot() {
+        Map<String, LatencyHistogram> snapshot = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : recorders) {
+            snapshot.put(recorder.getName(), recorder.snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the latencies recorded since the previous interval snapshot, and starts a new interval.
+     *
+     * @return a histogram per recorder, indexed by name
+     */
+    public Map<String, LatencyHistogram> intervalSnapshot() {
+        Map<String, LatencyHistogram> snapshot = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : recorders) {
+            snapshot.put(recorder.getName(), recorder.intervalSnapshot());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,92 @@
+package org.bootcamp.models;
+
+/**
+ * The prices and the traded volume of a cryptocurrency over a span of time.<br>
+ * The open, high, low and close prices are taken from the ticks of the exchange, and the volume
+ * and turnover from the fills of the market orders.
+ * @see CandleResolution
+ * @see org.bootcamp.services.MarketHistoryService
+ */
+public final class Candle {
+    private final CryptoCurrency cryptoCurrency;
+    private final CandleResolution resolution;
+    private final long openTime;
+    private final long open;
+    private final long high;
+    private final long low;
+    private final long close;
+    private final long volume;
+    private final long turnover;
+
+    /**
+     * Constructor for a Candle
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @param resolution the time span of the candle
+     * @param openTime the opening time, in milliseconds since the epoch
+     * @param open the unscaled first price of the span
+     * @param high the unscaled highest price of the span
+     * @param low the unscaled lowest price of the span
+     * @param close the unscaled last price of the span
+     * @param volume the unscaled quantity traded in the span
+     * @param turnover the unscaled fiat money paid for the quantity traded
+     */
+    public Candle(CryptoCurrency cryptoCurrency, CandleResolution resolution, long openTime,
+                  long open, long high, long low, long close, long volume, long turnover) {
+        this.cryptoCurrency = cryptoCurrency;
+        this.resolution = resolution;
+        this.openTime = openTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.turnover = turnover;
+    }
+
+    public CryptoCurrency getCryptoCurrency() {
+        return cryptoCurrency;
+    }
+
+    public CandleResolution getResolution() {
+        return resolution;
+    }
+
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    public long getOpen() {
+        return open;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public long getClose() {
+        return close;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public long getTurnover() {
+        return turnover;
+    }
+
+    @Override
+    public String toString() {
+        return cryptoCurrency.getShorthandSymbol() + ' ' + resolution + ' ' + openTime +
+                " O:" + cryptoCurrency.priceToBigDecimal(open) +
+                " H:" + cryptoCurrency.priceToBigDecimal(high) +
+                " L:" + cryptoCurrency.priceToBigDecimal(low) +
+                " C:" + cryptoCurrency.priceToBigDecimal(close) +
+                " V:" + cryptoCurrency.quantityToBigDecimal(volume);
+    }
+}
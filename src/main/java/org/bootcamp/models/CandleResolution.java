@@ -0,0 +1,53 @@
+package org.bootcamp.models;
+
+/**
+ * Enum representing the time spans of the candles kept for every cryptocurrency.
+ * The resolutions include:
+ * <ul>
+ *   <li>SECOND - Candles of one second, kept for the last hour</li>
+ *   <li>MINUTE - Candles of one minute, kept for the last day</li>
+ *   <li>HOUR - Candles of one hour, kept for the last thirty days</li>
+ * </ul>
+ * @see Candle
+ */
+public enum CandleResolution {
+    SECOND(1_000L, 3_600),
+    MINUTE(60_000L, 1_440),
+    HOUR(3_600_000L, 720);
+
+    private final long millis;
+    private final int capacity;
+
+    CandleResolution(long millis, int capacity) {
+        this.millis = millis;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the time span of a candle.
+     *
+     * @return the span in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Returns the number of candles kept; older candles are overwritten by newer ones.
+     *
+     * @return the number of candles kept per cryptocurrency
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the opening time of the candle that contains a point in time.
+     *
+     * @param timestamp the point in time, in milliseconds since the epoch
+     * @return the opening time of the candle, in milliseconds since the epoch
+     */
+    public long openTime(long timestamp) {
+        return Math.floorDiv(timestamp, millis) * millis;
+    }
+}
@@ -1,54 +1,136 @@
 package org.bootcamp.models;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Objects;
 
 /**
  * Represents a cryptocurrency with a display name, shorthand symbol, original value, and current value.<br>
- * Each cryptocurrency has a unique ID generated based on its shorthand symbol.
+ * Each cryptocurrency has a dense ordinal assigned by the {@link InstrumentRegistry} to its shorthand symbol,
+ * which identifies it in equality checks, hash maps and arrays.<br>
+ * Values are kept as fixed-point longs: quantities use the quantity scale of the cryptocurrency
+ * and unit prices use its price scale. The values published for a cryptocurrency are multiples of
+ * its tick size.
+ * @see FixedPoint
  * @see org.bootcamp.services.ExchangeService
  * @see org.bootcamp.services.TradingService
  */
 public final class CryptoCurrency {
-    private String cryptoID;
+    /**
+     * Default number of decimals of the quantities.
+     */
+    public static final int DEFAULT_QUANTITY_SCALE = 8;
+    /**
+     * Default number of decimals of the unit prices.
+     */
+    public static final int DEFAULT_PRICE_SCALE = 2;
+
+    private final int ordinal;
     private final String displayName;
     private final String shorthandSymbol;
-    private BigDecimal currentValue;
-    private final BigDecimal originalValue;
+    private final int quantityScale;
+    private final int priceScale;
+    private final long tickSize;
+    private volatile long currentValue;
+    private final long originalValue;
 
     /**
-     * Constructs a new CryptoCurrency with the specified display name, shorthand symbol, and original value.
-     * Initializes the current value to the original value and generates a unique cryptocurrency ID.
+     * Constructs a new CryptoCurrency with the specified display name, shorthand symbol, and original value,
+     * using the default quantity and price scales.
      *
      * @param displayName the display name of the cryptocurrency
      * @param shorthandSymbol the shorthand symbol of the cryptocurrency
      * @param originalValue the original value of the cryptocurrency
      */
     public CryptoCurrency(String displayName, String shorthandSymbol, BigDecimal originalValue) {
+        this(displayName, shorthandSymbol, originalValue, DEFAULT_QUANTITY_SCALE, DEFAULT_PRICE_SCALE);
+    }
+
+    /**
+     * Constructs a new CryptoCurrency with the specified display name, shorthand symbol, original value and scales.
+     * Initializes the current value to the original value and registers the symbol to get its ordinal.
+     *
+     * @param displayName the display name of the cryptocurrency
+     * @param shorthandSymbol the shorthand symbol of the cryptocurrency
+     * @param originalValue the original value of the cryptocurrency
+     * @param quantityScale the number of decimals of the quantities
+     * @param priceScale the number of decimals of the unit prices
+     */
+    public CryptoCurrency(String displayName, String shorthandSymbol, BigDecimal originalValue, int quantityScale, int priceScale) {
+        this(displayName, shorthandSymbol, originalValue, quantityScale, priceScale, BigDecimal.ONE.movePointLeft(priceScale));
+    }
+
+    /**
+     * Constructs a new CryptoCurrency with the specified display name, shorthand symbol, original value, scales
+     * and tick size.
+     * Initializes the current value to the original value and registers the symbol to get its ordinal.
+     *
+     * @param displayName the display name of the cryptocurrency
+     * @param shorthandSymbol the shorthand symbol of the cryptocurrency
+     * @param originalValue the original value of the cryptocurrency
+     * @param quantityScale the number of decimals of the quantities
+     * @param priceScale the number of decimals of the unit prices
+     * @param tickSize the smallest change of the unit price, positive and within the price scale
+     * @throws IllegalArgumentException if the tick size is not positive
+     * @throws ArithmeticException if the tick size has more decimals than the price scale
+     */
+    public CryptoCurrency(String displayName, String shorthandSymbol, BigDecimal originalValue, int quantityScale, int priceScale, BigDecimal tickSize) {
         this.displayName = displayName;
-        this.originalValue = originalValue;
-        this.currentValue = originalValue;
         this.shorthandSymbol = shorthandSymbol;
-        generateCryptoID();
+        this.quantityScale = quantityScale;
+        this.priceScale = priceScale;
+        this.tickSize = tickSize.setScale(priceScale).unscaledValue().longValueExact();
+        if (this.tickSize <= 0) {
+            throw new IllegalArgumentException("The tick size must be positive");
+        }
+        this.originalValue = FixedPoint.fromBigDecimal(originalValue, priceScale);
+        this.currentValue = this.originalValue;
+        this.ordinal = InstrumentRegistry.getInstance().register(this);
     }
 
     /**
-     * Generates a unique cryptocurrency ID based on the shorthand symbol and its hash code.
+     * Returns the ordinal of the cryptocurrency, shared by every cryptocurrency with the same symbol.
+     *
+     * @return the dense ordinal assigned by the InstrumentRegistry
      */
-    private void generateCryptoID() {
-        cryptoID = shorthandSymbol + '@' + shorthandSymbol.hashCode();
+    public int getOrdinal() {
+        return ordinal;
     }
 
     public String getDisplayName() {
         return displayName;
     }
 
-    public BigDecimal getCurrentValue() {
+    public int getQuantityScale() {
+        return quantityScale;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * Returns the smallest change of the unit price.
+     *
+     * @return the unscaled tick size, with the price scale
+     */
+    public long getTickSize() {
+        return tickSize;
+    }
+
+    /**
+     * Returns the current unit price.
+     *
+     * @return the unscaled current value, with the price scale
+     */
+    public long getCurrentValue() {
         return currentValue;
     }
 
-    public BigDecimal getOriginalValue() {
+    /**
+     * Returns the original unit price.
+     *
+     * @return the unscaled original value, with the price scale
+     */
+    public long getOriginalValue() {
         return originalValue;
     }
 
@@ -59,26 +141,57 @@ public final class CryptoCurrency {
     /**
      * Updates the current value of the cryptocurrency to the specified new value.
      *
-     * @param newValue the new value of the cryptocurrency
+     * @param newValue the new unscaled value, with the price scale
      */
-    public void updateCurrentValue(BigDecimal newValue) {
+    public void updateCurrentValue(long newValue) {
         currentValue = newValue;
     }
 
+    /**
+     * Converts a quantity entered in the views to the quantity scale of the cryptocurrency.
+     *
+     * @param quantity the quantity of cryptocurrency
+     * @return the unscaled quantity
+     * @throws ArithmeticException if the quantity does not fit in a long
+     */
+    public long toQuantity(BigDecimal quantity) {
+        return FixedPoint.fromBigDecimal(quantity, quantityScale);
+    }
+
+    /**
+     * Converts an unscaled quantity of the cryptocurrency to a BigDecimal.
+     *
+     * @param quantity the unscaled quantity
+     * @return the quantity as a BigDecimal
+     */
+    public BigDecimal quantityToBigDecimal(long quantity) {
+        return FixedPoint.toBigDecimal(quantity, quantityScale);
+    }
+
+    /**
+     * Converts an unscaled unit price of the cryptocurrency to a BigDecimal.
+     *
+     * @param price the unscaled unit price
+     * @return the unit price as a BigDecimal
+     */
+    public BigDecimal priceToBigDecimal(long price) {
+        return FixedPoint.toBigDecimal(price, priceScale);
+    }
+
     @Override
     public String toString() {
-        return displayName + '(' + shorthandSymbol + ')' + ": " + currentValue.setScale(2, RoundingMode.HALF_UP);
+        return displayName + '(' + shorthandSymbol + ')' + ": " + priceToBigDecimal(currentValue);
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof CryptoCurrency that)) return false;
-        return Objects.equals(cryptoID, that.cryptoID);
+        return ordinal == that.ordinal;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(cryptoID);
+        return ordinal;
     }
-}
\ No newline at end of file
+}
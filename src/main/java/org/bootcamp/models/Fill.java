@@ -0,0 +1,92 @@
+package org.bootcamp.models;
+
+/**
+ * Represents a single execution between a buy order and a selling order.<br>
+ * An order can be filled by several counter-orders, so each fill holds the
+ * quantity exchanged and the price paid for that quantity only, whether each order
+ * was completed by this fill, and the transactions it recorded for the buyer and the seller.
+ * @see MarketOrder
+ * @see org.bootcamp.services.TradingService
+ */
+public class Fill {
+    private final MarketOrder buyOrder;
+    private final MarketOrder sellingOrder;
+    private final long quantity;
+    private final long price;
+    private final boolean buyOrderCompleted;
+    private final boolean sellingOrderCompleted;
+    private final Transaction buyTransaction;
+    private final Transaction sellingTransaction;
+
+    /**
+     * Constructor for a Fill
+     *
+     * @param buyOrder the buy order involved in the fill
+     * @param sellingOrder the selling order involved in the fill
+     * @param quantity the unscaled quantity of cryptocurrency exchanged
+     * @param price the unscaled total price paid for the quantity, in fiat money
+     */
+    public Fill(MarketOrder buyOrder, MarketOrder sellingOrder, long quantity, long price) {
+        this(buyOrder, sellingOrder, quantity, price, null, null);
+    }
+
+    /**
+     * Constructor for a Fill with the transactions recorded for the buyer and the seller
+     *
+     * @param buyOrder the buy order involved in the fill
+     * @param sellingOrder the selling order involved in the fill
+     * @param quantity the unscaled quantity of cryptocurrency exchanged
+     * @param price the unscaled total price paid for the quantity, in fiat money
+     * @param buyTransaction the transaction recorded for the buyer, or null if none was recorded
+     * @param sellingTransaction the transaction recorded for the seller, or null if none was recorded
+     */
+    public Fill(MarketOrder buyOrder, MarketOrder sellingOrder, long quantity, long price,
+                Transaction buyTransaction, Transaction sellingTransaction) {
+        this.buyOrder = buyOrder;
+        this.sellingOrder = sellingOrder;
+        this.quantity = quantity;
+        this.price = price;
+        this.buyOrderCompleted = buyOrder.isFilled();
+        this.sellingOrderCompleted = sellingOrder.isFilled();
+        this.buyTransaction = buyTransaction;
+        this.sellingTransaction = sellingTransaction;
+    }
+
+    public MarketOrder getBuyOrder() {
+        return buyOrder;
+    }
+
+    public MarketOrder getSellingOrder() {
+        return sellingOrder;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public boolean isBuyOrderCompleted() {
+        return buyOrderCompleted;
+    }
+
+    public boolean isSellingOrderCompleted() {
+        return sellingOrderCompleted;
+    }
+
+    public Transaction getBuyTransaction() {
+        return buyTransaction;
+    }
+
+    public Transaction getSellingTransaction() {
+        return sellingTransaction;
+    }
+
+    @Override
+    public String toString() {
+        CryptoCurrency cryptoCurrency = buyOrder.getCryptoCurrency();
+        return cryptoCurrency.quantityToBigDecimal(quantity) + cryptoCurrency.getShorthandSymbol() + " for $" + FixedPoint.fiatToBigDecimal(price);
+    }
+}
@@ -0,0 +1,215 @@
+package org.bootcamp.models;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point arithmetic over scaled longs, used for balances, prices and quantities.<br>
+ * A value is stored as an unscaled long together with a scale, the number of decimals it keeps:
+ * with scale 2, the long 1050 represents 10.50. Fiat money always uses {@link #FIAT_SCALE},
+ * while every cryptocurrency defines the scale of its quantities and of its prices.<br>
+ * All the operations are exact or use an explicit rounding mode, and they throw an
+ * ArithmeticException instead of overflowing silently. Conversions from and to BigDecimal
+ * are only meant for the boundary with the views.
+ * @see CryptoCurrency
+ * @see Wallet
+ */
+public final class FixedPoint {
+    /**
+     * Number of decimals kept for fiat money.
+     */
+    public static final int FIAT_SCALE = 2;
+    /**
+     * Rounding mode used when a value has to drop decimals and no other mode is specified.
+     */
+    public static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_EVEN;
+    /**
+     * Powers of ten that fit in a long, indexed by the exponent.
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * The class only offers static operations.
+     */
+    private FixedPoint() {}
+
+    /**
+     * Converts a BigDecimal to an unscaled long with the specified scale.
+     *
+     * @param value the value to convert
+     * @param scale the number of decimals to keep
+     * @return the unscaled value, rounded with {@link #ROUNDING_MODE}
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public static long fromBigDecimal(BigDecimal value, int scale) {
+        return value.setScale(scale, ROUNDING_MODE).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts an unscaled long to a BigDecimal.
+     *
+     * @param value the unscaled value
+     * @param scale the number of decimals of the value
+     * @return the value as a BigDecimal
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    /**
+     * Converts fiat money to an unscaled long with {@link #FIAT_SCALE}.
+     *
+     * @param value the amount of fiat money
+     * @return the unscaled amount
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long toFiat(BigDecimal value) {
+        return fromBigDecimal(value, FIAT_SCALE);
+    }
+
+    /**
+     * Converts an unscaled amount of fiat money to a BigDecimal.
+     *
+     * @param value the unscaled amount
+     * @return the amount as a BigDecimal
+     */
+    public static BigDecimal fiatToBigDecimal(long value) {
+        return toBigDecimal(value, FIAT_SCALE);
+    }
+
+    /**
+     * Adds two values with the same scale.
+     *
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts two values with the same scale.
+     *
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Multiplies two values and expresses the product with the result scale.
+     *
+     * @param a the first value
+     * @param aScale the scale of the first value
+     * @param b the second value
+     * @param bScale the scale of the second value
+     * @param resultScale the scale of the product
+     * @param roundingMode the rounding mode used if the product loses decimals
+     * @return the unscaled product
+     * @throws ArithmeticException if the product does not fit in a long
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, int resultScale, RoundingMode roundingMode) {
+        int shift = aScale + bScale - resultScale;
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if (high != (low >> 63) || shift < 0 || shift >= POWERS_OF_TEN.length) {
+            BigDecimal product = BigDecimal.valueOf(a, aScale).multiply(BigDecimal.valueOf(b, bScale));
+            return product.setScale(resultScale, roundingMode).unscaledValue().longValueExact();
+        }
+        return divideRounded(low, POWERS_OF_TEN[shift], roundingMode);
+    }
+
+    /**
+     * Divides two values and expresses the quotient with the result scale.
+     *
+     * @param dividend the dividend
+     * @param dividendScale the scale of the dividend
+     * @param divisor the divisor, must not be zero
+     * @param divisorScale the scale of the divisor
+     * @param resultScale the scale of the quotient
+     * @param roundingMode the rounding mode used if the quotient loses decimals
+     * @return the unscaled quotient
+     * @throws ArithmeticException if the divisor is zero or the quotient does not fit in a long
+     */
+    public static long divide(long dividend, int dividendScale, long divisor, int divisorScale, int resultScale, RoundingMode roundingMode) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        int shift = resultScale + divisorScale - dividendScale;
+        if (shift >= 0 && shift < POWERS_OF_TEN.length) {
+            long high = Math.multiplyHigh(dividend, POWERS_OF_TEN[shift]);
+            long low = dividend * POWERS_OF_TEN[shift];
+            if (high == (low >> 63)) {
+                return divideRounded(low, divisor, roundingMode);
+            }
+        }
+        BigDecimal quotient = BigDecimal.valueOf(dividend, dividendScale).divide(BigDecimal.valueOf(divisor, divisorScale), resultScale, roundingMode);
+        return quotient.unscaledValue().longValueExact();
+    }
+
+    /**
+     * Changes the scale of a value.
+     *
+     * @param value the unscaled value
+     * @param scale the current scale of the value
+     * @param newScale the scale of the result
+     * @param roundingMode the rounding mode used if the value loses decimals
+     * @return the value with the new scale
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long rescale(long value, int scale, int newScale, RoundingMode roundingMode) {
+        return multiply(value, scale, 1, 0, newScale, roundingMode);
+    }
+
+    /**
+     * Divides two longs applying the rounding mode to the discarded remainder.
+     *
+     * @param dividend the dividend
+     * @param divisor the divisor, must not be zero
+     * @param roundingMode the rounding mode
+     * @return the rounded quotient
+     * @throws ArithmeticException if the rounding mode is UNNECESSARY and the division is not exact
+     */
+    private static long divideRounded(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        boolean increment = switch (roundingMode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sign > 0;
+            case FLOOR -> sign < 0;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                long absRemainder = Math.abs(remainder);
+                long distanceToNext = Math.abs(divisor) - absRemainder;
+                if (absRemainder != distanceToNext) {
+                    yield absRemainder > distanceToNext;
+                }
+                yield roundingMode == RoundingMode.HALF_UP
+                        || (roundingMode == RoundingMode.HALF_EVEN && (quotient & 1) != 0);
+            }
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+        return increment ? quotient + sign : quotient;
+    }
+
+    /**
+     * Returns ten raised to the specified exponent.
+     *
+     * @param exponent the exponent, between 0 and 18
+     * @return the power of ten
+     */
+    public static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+}
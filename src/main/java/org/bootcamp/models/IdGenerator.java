@@ -0,0 +1,53 @@
+package org.bootcamp.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The IdGenerator class hands out the 64-bit IDs of orders, transactions and users.<br>
+ * IDs are strictly increasing and unique within the process: they start at the current time in
+ * milliseconds shifted left by {@value #TIMESTAMP_SHIFT} bits, so a restart begins above the IDs
+ * of the previous run, and the IDs restored from the journal or a snapshot move the generator
+ * past them in any case. Taking an ID is a single atomic increment.<br>
+ * The instance is created eagerly, because IDs are taken from many threads from the start.
+ */
+public final class IdGenerator {
+    /**
+     * Number of low bits left for the IDs taken within the same millisecond.
+     */
+    public static final int TIMESTAMP_SHIFT = 20;
+
+    private static final IdGenerator INSTANCE = new IdGenerator();
+
+    private final AtomicLong lastId;
+
+    private IdGenerator() {
+        lastId = new AtomicLong(System.currentTimeMillis() << TIMESTAMP_SHIFT);
+    }
+
+    /**
+     * Returns the singleton instance of the IdGenerator.
+     *
+     * @return the singleton instance of IdGenerator
+     */
+    public static IdGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a new ID, greater than every ID handed out or restored before.
+     *
+     * @return the new ID
+     */
+    public long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * Moves the generator past an ID restored from the journal or a snapshot.
+     *
+     * @param id the restored ID
+     */
+    public void advancePast(long id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+}
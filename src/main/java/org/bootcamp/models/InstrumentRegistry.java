@@ -0,0 +1,95 @@
+package org.bootcamp.models;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The InstrumentRegistry class assigns a dense ordinal to every cryptocurrency.<br>
+ * Ordinals start at 0 and grow by one with every new shorthand symbol, so they can index arrays
+ * directly, and equality and hashing of cryptocurrencies compare ints instead of strings.
+ * A cryptocurrency created again with a symbol that is already registered gets the same ordinal.<br>
+ * The instance is created eagerly, because cryptocurrencies are created from many threads.
+ * @see CryptoCurrency
+ */
+public final class InstrumentRegistry {
+    /**
+     * Maximum number of cryptocurrencies that can be registered.
+     */
+    public static final int MAX_INSTRUMENTS = Short.MAX_VALUE;
+
+    private static final InstrumentRegistry INSTANCE = new InstrumentRegistry();
+
+    private final Map<String, Integer> ordinals;
+    private final AtomicReferenceArray<CryptoCurrency> instruments;
+    private volatile int size;
+
+    private InstrumentRegistry() {
+        ordinals = new ConcurrentHashMap<>();
+        instruments = new AtomicReferenceArray<>(MAX_INSTRUMENTS);
+    }
+
+    /**
+     * Returns the singleton instance of the InstrumentRegistry.
+     *
+     * @return the singleton instance of InstrumentRegistry
+     */
+    public static InstrumentRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the ordinal of a cryptocurrency, registering it if its symbol is new.
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @return the ordinal of the shorthand symbol of the cryptocurrency
+     * @throws IllegalStateException if there are already {@value #MAX_INSTRUMENTS} cryptocurrencies
+     */
+    int register(CryptoCurrency cryptoCurrency) {
+        Integer ordinal = ordinals.get(cryptoCurrency.getShorthandSymbol());
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (this) {
+            return ordinals.computeIfAbsent(cryptoCurrency.getShorthandSymbol(), symbol -> {
+                int next = size;
+                if (next == MAX_INSTRUMENTS) {
+                    throw new IllegalStateException("Too many cryptocurrencies");
+                }
+                instruments.set(next, cryptoCurrency);
+                size = next + 1;
+                return next;
+            });
+        }
+    }
+
+    /**
+     * Returns the first cryptocurrency registered with an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the cryptocurrency, or null if the ordinal has not been assigned
+     */
+    public CryptoCurrency get(int ordinal) {
+        return ordinal >= 0 && ordinal < size ? instruments.get(ordinal) : null;
+    }
+
+    /**
+     * Returns the ordinal of a shorthand symbol.
+     *
+     * @param symbol the shorthand symbol
+     * @return the ordinal, or -1 if no cryptocurrency has that symbol
+     */
+    public int ordinalOf(String symbol) {
+        Integer ordinal = ordinals.get(symbol);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Returns the number of ordinals assigned so far; every ordinal is lower than it.
+     *
+     * @return the number of registered cryptocurrencies
+     */
+    public int size() {
+        return size;
+    }
+}
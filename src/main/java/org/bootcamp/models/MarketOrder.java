@@ -1,23 +1,28 @@
 package org.bootcamp.models;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.Objects;
+import java.math.RoundingMode;
 
 /**
  * Represents a market order in the system. Each market order includes the type of order
  * (selling or buying), the user who placed the order, the cryptocurrency involved, the amount,
- * the price, and the date and time the order was created. A unique order ID is generated based
- * on the order type, cryptocurrency, and timestamp.
+ * and the price. Each order gets a unique 64-bit ID from the {@link IdGenerator}, and IDs grow
+ * in the order the orders are created.<br>
+ * The price is the total price of the order in fiat money; the unit price derived from it, with the
+ * price scale of the cryptocurrency, is used to rank the order inside the order book.<br>
+ * The amount uses the quantity scale of the cryptocurrency and the price uses {@link FixedPoint#FIAT_SCALE}.<br>
+ * An order can be partially filled, so it also keeps the amount still to be exchanged and the
+ * part of the price that is still pending.
  */
 public class MarketOrder {
     private final OrderType orderType;
     private final User user;
     private final CryptoCurrency cryptoCurrency;
-    private final BigDecimal amount;
-    private final BigDecimal price;
-    private String orderID;
-    private final LocalDateTime dateTime;
+    private final long amount;
+    private final long price;
+    private final long unitPrice;
+    private long remainingAmount;
+    private long remainingPrice;
+    private final long orderID;
 
     /**
      * Constructor for the MarketOrder
@@ -25,20 +30,45 @@ public class MarketOrder {
      * @param orderType the type of order (SELLING or BUY)
      * @param user the user who placed the order
      * @param cryptoCurrency the type of cryptocurrency involved in the order
-     * @param amount the amount of cryptocurrency involved in the order
-     * @param price the price of the cryptocurrency at the time of the order
+     * @param amount the unscaled amount of cryptocurrency involved in the order, must be positive
+     * @param price the unscaled total price of the order, in fiat money
      */
-    public MarketOrder(OrderType orderType, User user, CryptoCurrency cryptoCurrency, BigDecimal amount, BigDecimal price) {
+    public MarketOrder(OrderType orderType, User user, CryptoCurrency cryptoCurrency, long amount, long price) {
         this.orderType = orderType;
         this.user = user;
         this.cryptoCurrency = cryptoCurrency;
         this.amount = amount;
         this.price = price;
-        dateTime = LocalDateTime.now();
-        generateOrderID();
+        this.unitPrice = calculateUnitPrice();
+        this.remainingAmount = amount;
+        this.remainingPrice = price;
+        this.orderID = IdGenerator.getInstance().nextId();
     }
 
-    public String getOrderID() {
+    /**
+     * Constructor for a MarketOrder restored from the journal, keeping the ID it was placed with.
+     *
+     * @param orderID the ID generated when the order was placed
+     * @param orderType the type of order (SELLING or BUY)
+     * @param user the user who placed the order
+     * @param cryptoCurrency the type of cryptocurrency involved in the order
+     * @param amount the unscaled amount of cryptocurrency involved in the order, must be positive
+     * @param price the unscaled total price of the order, in fiat money
+     */
+    public MarketOrder(long orderID, OrderType orderType, User user, CryptoCurrency cryptoCurrency, long amount, long price) {
+        this.orderType = orderType;
+        this.user = user;
+        this.cryptoCurrency = cryptoCurrency;
+        this.amount = amount;
+        this.price = price;
+        this.unitPrice = calculateUnitPrice();
+        this.remainingAmount = amount;
+        this.remainingPrice = price;
+        this.orderID = orderID;
+        IdGenerator.getInstance().advancePast(orderID);
+    }
+
+    public long getOrderID() {
         return orderID;
     }
 
@@ -54,38 +84,101 @@ public class MarketOrder {
         return cryptoCurrency;
     }
 
-    public BigDecimal getAmount() {
+    public long getAmount() {
         return amount;
     }
 
-    public BigDecimal getPrice() {
+    public long getPrice() {
         return price;
     }
 
     /**
-     * Generates a unique order ID based on the order type, cryptocurrency, and current timestamp.
-     * The order ID is a combination of the order type name, cryptocurrency shorthand symbol, and timestamp.
+     * Returns the price of a single unit of cryptocurrency for this order.
+     *
+     * @return the unscaled unit price, rounded down for buy orders and up for selling orders
+     */
+    public long getUnitPrice() {
+        return unitPrice;
+    }
+
+    public long getRemainingAmount() {
+        return remainingAmount;
+    }
+
+    public long getRemainingPrice() {
+        return remainingPrice;
+    }
+
+    /**
+     * Checks if the whole amount of the order has been exchanged.
+     *
+     * @return true if there is no amount left to fill, false otherwise
+     */
+    public boolean isFilled() {
+        return remainingAmount == 0;
+    }
+
+    /**
+     * Registers a fill of the order, reducing the remaining amount and the pending price.
+     *
+     * @param quantity the unscaled quantity of cryptocurrency exchanged
+     * @param value the unscaled total price paid for the quantity
+     */
+    public void fill(long quantity, long value) {
+        remainingAmount = FixedPoint.subtract(remainingAmount, quantity);
+        remainingPrice = Math.max(FixedPoint.subtract(remainingPrice, value), 0);
+    }
+
+    /**
+     * Releases the pending price of the order once there is nothing left to pay with it.
+     *
+     * @return the unscaled price that was still pending
+     */
+    public long releaseRemainingPrice() {
+        long released = remainingPrice;
+        remainingPrice = 0;
+        return released;
+    }
+
+    /**
+     * Releases the amount of the order that has not been filled, once it will no longer be exchanged.
+     *
+     * @return the unscaled amount that was still to be filled
+     */
+    public long releaseRemainingAmount() {
+        long released = remainingAmount;
+        remainingAmount = 0;
+        return released;
+    }
+
+    /**
+     * Derives the unit price from the total price and the amount.<br>
+     * Buy orders are rounded down and selling orders are rounded up, so the rounding
+     * never lets a match go beyond the price either user asked for.
+     *
+     * @return the unscaled unit price of the order
      */
-    private void generateOrderID() {
-        orderID = orderType.name() + "@" + cryptoCurrency.getShorthandSymbol() + "@" + dateTime.toString();
+    private long calculateUnitPrice() {
+        RoundingMode roundingMode = orderType == OrderType.BUY ? RoundingMode.FLOOR : RoundingMode.CEILING;
+        return FixedPoint.divide(price, FixedPoint.FIAT_SCALE, amount, cryptoCurrency.getQuantityScale(), cryptoCurrency.getPriceScale(), roundingMode);
     }
 
     @Override
     public String toString() {
         return "Order " + orderID +
-                "\nCryptoCurrency: " + amount + cryptoCurrency.getShorthandSymbol() +
-                "\nPrice: $" + price;
+                "\nCryptoCurrency: " + cryptoCurrency.quantityToBigDecimal(amount) + cryptoCurrency.getShorthandSymbol() +
+                "\nPrice: $" + FixedPoint.fiatToBigDecimal(price);
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof MarketOrder that)) return false;
-        return Objects.equals(orderID, that.orderID);
+        return orderID == that.orderID;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(orderID);
+        return Long.hashCode(orderID);
     }
 }
@@ -0,0 +1,113 @@
+package org.bootcamp.models;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * A salted PBKDF2 hash of a password, the only form in which passwords are kept.<br>
+ * The hash is derived with PBKDF2WithHmacSHA256 from a random salt of its own, and it is encoded
+ * with the number of iterations and the salt, so a hash can be checked after the number of
+ * iterations of new hashes has changed. The encoded form is what the journal and the snapshots
+ * store; the password itself is never kept nor written.<br>
+ * The number of iterations is configured with the system property {@value #ITERATIONS_PROPERTY}
+ * (default {@value #DEFAULT_ITERATIONS}).
+ * @see User
+ */
+public final class PasswordHash {
+    /**
+     * System property with the number of iterations of new hashes.
+     */
+    public static final String ITERATIONS_PROPERTY = "password.iterations";
+    /**
+     * Number of iterations of new hashes when the property is not set.
+     */
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    /**
+     * Prefix of the encoded hashes, followed by the iterations, the salt and the hash.
+     */
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final char SEPARATOR = '$';
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    /**
+     * Source of the random salts.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int ITERATIONS = Math.max(1, Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS));
+
+    private final int iterations;
+    private final byte[] salt;
+    private final byte[] hash;
+
+    private PasswordHash(int iterations, byte[] salt, byte[] hash) {
+        this.iterations = iterations;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password the password to hash
+     * @return the hash of the password
+     */
+    public static PasswordHash of(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return new PasswordHash(ITERATIONS, salt, derive(password, salt, ITERATIONS));
+    }
+
+    /**
+     * Decodes a hash written by {@link #encode()}.
+     *
+     * @param encoded the encoded hash
+     * @return the decoded hash
+     * @throws IllegalArgumentException if the value is not an encoded hash
+     */
+    public static PasswordHash parse(String encoded) {
+        String[] parts = encoded.split("\\" + SEPARATOR);
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) {
+            throw new IllegalArgumentException("Not a password hash");
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        return new PasswordHash(Integer.parseInt(parts[1]), decoder.decode(parts[2]), decoder.decode(parts[3]));
+    }
+
+    /**
+     * Checks a password against the hash, in a time that does not depend on where they differ.
+     *
+     * @param password the password to check
+     * @return true if the password has this hash, false otherwise
+     */
+    public boolean matches(String password) {
+        return MessageDigest.isEqual(hash, derive(password, salt, iterations));
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot hash the password with " + ALGORITHM, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Encodes the hash with its iterations and its salt.
+     *
+     * @return the encoded hash, which {@link #parse(String)} decodes
+     */
+    public String encode() {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt) + SEPARATOR + encoder.encodeToString(hash);
+    }
+}
@@ -0,0 +1,72 @@
+package org.bootcamp.models;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Represents a logged-in user.<br>
+ * A session is opened by the AccountService at login and identified by a random token that
+ * cannot be guessed, so it can be handed to clients and sent back with every request.
+ * Every call to the services carries the session of the user who makes it, which lets many
+ * users be logged in and trade at the same time.
+ * @see User
+ * @see org.bootcamp.services.AccountService
+ */
+public final class Session {
+    /**
+     * Source of the random tokens.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+    /**
+     * Number of random bytes of a token.
+     */
+    private static final int TOKEN_BYTES = 24;
+
+    private final String token;
+    private final User user;
+    private final LocalDateTime dateTime;
+
+    /**
+     * Constructs a new session for the specified user with a random token.
+     *
+     * @param user the logged-in user
+     */
+    public Session(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        this.user = user;
+        this.dateTime = LocalDateTime.now();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Session session)) return false;
+        return Objects.equals(token, session.token);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(token);
+    }
+
+    @Override
+    public String toString() {
+        return "Session of " + user.getEmail() + " since " + dateTime;
+    }
+}
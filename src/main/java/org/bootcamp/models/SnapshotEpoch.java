@@ -0,0 +1,50 @@
+package org.bootcamp.models;
+
+/**
+ * The SnapshotEpoch class numbers the cuts of the snapshots and follows the singleton pattern.<br>
+ * A snapshot advances the epoch at its cut, while no operation is changing the state, and then
+ * copies the users while trading goes on. Wallets and transaction histories keep their state at
+ * the cut copy-on-write: the first change made to them in a new epoch saves what they held
+ * before, so the snapshot reads the state at the cut whether or not they changed since, and an
+ * unchanged one is read in place. Users created after the cut are left out of the snapshot.<br>
+ * Outside a snapshot, a change only compares the epoch with the one it last saved at.<br>
+ * The instance is created eagerly, because the epoch is read from many threads.
+ * @see Wallet
+ * @see TransactionHistory
+ */
+public final class SnapshotEpoch {
+    private static final SnapshotEpoch INSTANCE = new SnapshotEpoch();
+
+    private volatile long epoch;
+
+    private SnapshotEpoch() {
+    }
+
+    /**
+     * Returns the singleton instance of the SnapshotEpoch.
+     *
+     * @return the singleton instance of SnapshotEpoch
+     */
+    public static SnapshotEpoch getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the current epoch.
+     *
+     * @return the epoch of the changes made now
+     */
+    public long current() {
+        return epoch;
+    }
+
+    /**
+     * Starts a new epoch at the cut of a snapshot.<br>
+     * Must be called while nothing changes the wallets nor the histories, and by one snapshot at a time.
+     *
+     * @return the new epoch, whose state at the start the snapshot reads
+     */
+    public long advance() {
+        return ++epoch;
+    }
+}
@@ -0,0 +1,53 @@
+package org.bootcamp.models;
+
+/**
+ * An immutable price update of a cryptocurrency.<br>
+ * The ExchangeService builds one tick per cryptocurrency each time the values fluctuate, and the
+ * same tick is handed to every subscriber, so they all see the same values even if the
+ * cryptocurrency changes again before they read it.
+ * @see CryptoCurrency
+ * @see org.bootcamp.services.MarketDataPublisher
+ */
+public final class Tick {
+    private final CryptoCurrency cryptoCurrency;
+    private final long originalValue;
+    private final long value;
+    private final long timestamp;
+
+    /**
+     * Constructor for a Tick
+     *
+     * @param cryptoCurrency the cryptocurrency whose value changed
+     * @param originalValue the unscaled original value of the cryptocurrency
+     * @param value the unscaled new value of the cryptocurrency
+     * @param timestamp the time of the update, in milliseconds since the epoch
+     */
+    public Tick(CryptoCurrency cryptoCurrency, long originalValue, long value, long timestamp) {
+        this.cryptoCurrency = cryptoCurrency;
+        this.originalValue = originalValue;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    public CryptoCurrency getCryptoCurrency() {
+        return cryptoCurrency;
+    }
+
+    public long getOriginalValue() {
+        return originalValue;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return cryptoCurrency.getDisplayName() + '(' + cryptoCurrency.getShorthandSymbol() + ')' + ": "
+                + cryptoCurrency.priceToBigDecimal(value);
+    }
+}
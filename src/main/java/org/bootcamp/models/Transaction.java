@@ -1,27 +1,23 @@
 package org.bootcamp.models;
 
-import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.Objects;
 
 /**
  * Represents a transaction involving a cryptocurrency.<br>
  * Each transaction includes an action
  * (such as buy, sell, or exchange), the type of cryptocurrency, the amount involved, the price,
  * and the date and time the transaction was created.<br>
- * A unique transaction ID is generated based
- * on the timestamp, action, and cryptocurrency.
+ * Each transaction gets a unique 64-bit ID from the {@link IdGenerator}.
  * @see TransactionAction
  * @see CryptoCurrency
  */
 public class Transaction {
     private final TransactionAction action;
     private final CryptoCurrency cryptoCurrency;
-    private final BigDecimal amount;
-    private final BigDecimal price;
-    private String transactionID;
+    private final long amount;
+    private final long price;
+    private final long transactionID;
     private final LocalDateTime dateTime;
 
     /**
@@ -29,37 +25,68 @@ public class Transaction {
      *
      * @param action the action performed in the transaction (e.g., SELL, BUY, EXCHANGE)
      * @param cryptoCurrency the type of cryptocurrency involved in the transaction
-     * @param amount the amount of cryptocurrency involved in the transaction
-     * @param price the price of the cryptocurrency at the time of the transaction
+     * @param amount the unscaled amount of cryptocurrency involved in the transaction
+     * @param price the unscaled total price of the transaction, in fiat money
      */
-    public Transaction(TransactionAction action, CryptoCurrency cryptoCurrency, BigDecimal amount, BigDecimal price) {
+    public Transaction(TransactionAction action, CryptoCurrency cryptoCurrency, long amount, long price) {
+        this(IdGenerator.getInstance().nextId(), action, cryptoCurrency, amount, price, LocalDateTime.now());
+    }
+
+    /**
+     * Constructor for a Transaction with the specified ID, created at the specified date and time,
+     * used to restore it from a snapshot or from the transaction history
+     *
+     * @param transactionID the ID of the transaction
+     * @param action the action performed in the transaction (e.g., SELL, BUY, EXCHANGE)
+     * @param cryptoCurrency the type of cryptocurrency involved in the transaction
+     * @param amount the unscaled amount of cryptocurrency involved in the transaction
+     * @param price the unscaled total price of the transaction, in fiat money
+     * @param dateTime the date and time the transaction was created
+     */
+    public Transaction(long transactionID, TransactionAction action, CryptoCurrency cryptoCurrency, long amount, long price, LocalDateTime dateTime) {
+        this.transactionID = transactionID;
         this.action = action;
         this.cryptoCurrency = cryptoCurrency;
         this.amount = amount;
         this.price = price;
-        this.dateTime = LocalDateTime.now();
-        generateTransactionID();
+        this.dateTime = dateTime;
+        IdGenerator.getInstance().advancePast(transactionID);
     }
 
-    /**
-     * Generates a unique transaction ID based on the current timestamp, action, and cryptocurrency.
-     * The transaction ID is a combination of the epoch second, action name, and cryptocurrency shorthand symbol.
-     */
-    private void generateTransactionID() {
-        String epochSecond = String.valueOf(dateTime.toEpochSecond(ZoneOffset.UTC));
-        transactionID = epochSecond + "@" + action.name() + "@" + cryptoCurrency.getShorthandSymbol();
+    public long getTransactionID() {
+        return transactionID;
+    }
+
+    public TransactionAction getAction() {
+        return action;
+    }
+
+    public CryptoCurrency getCryptoCurrency() {
+        return cryptoCurrency;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Transaction that)) return false;
-        return Objects.equals(transactionID, that.transactionID);
+        return transactionID == that.transactionID;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(transactionID);
+        return Long.hashCode(transactionID);
     }
 
     @Override
@@ -67,7 +94,7 @@ public class Transaction {
         return String.format("%s\t %s\t %s\t %s",
                 action.name(),
                 cryptoCurrency.getShorthandSymbol(),
-                amount.setScale(2, RoundingMode.HALF_UP),
-                price.setScale(2, RoundingMode.HALF_UP));
+                cryptoCurrency.quantityToBigDecimal(amount).setScale(2, RoundingMode.HALF_UP),
+                FixedPoint.fiatToBigDecimal(price));
     }
 }
@@ -0,0 +1,426 @@
+package org.bootcamp.models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The transactions of a user, stored column by column and indexed for paged queries.<br>
+ * Each transaction takes a row of primitive columns (ID, action, cryptocurrency ordinal, amount,
+ * price and time) instead of an object with its own date; the Transaction objects are only built for the rows
+ * of the page being read. Rows are appended in time order, and every row is also added to the index
+ * of its cryptocurrency, of its action, and of both, so a query walks only the rows that match it:
+ * the time bounds and the cursor are found by binary search, and a page costs O(log n + page size).<br>
+ * Pages go from the newest transaction to the oldest. The cursor of a page is handed back to
+ * {@link #query} to read the next, older page.<br>
+ * Transactions are recorded by the console and by the matching shards, so every method is
+ * synchronized on the history. Rows are never changed once appended, so a snapshot only keeps
+ * the number of rows at its cut, saved by the first transaction appended after it, and reads
+ * them without holding the history.
+ * @see Transaction
+ * @see User
+ */
+public class TransactionHistory {
+    /**
+     * Cursor of the first page, which starts at the newest transaction.
+     */
+    public static final long FIRST_PAGE = Long.MAX_VALUE;
+    /**
+     * Cursor returned after the last page.
+     */
+    public static final long NO_MORE_PAGES = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final TransactionAction[] ACTIONS = TransactionAction.values();
+
+    private long[] ids;
+    private byte[] actions;
+    private short[] cryptoCurrencies;
+    private long[] amounts;
+    private long[] prices;
+    private long[] epochNanos;
+    private int size;
+    /**
+     * Epoch of the last snapshot cut whose number of rows has been saved.
+     */
+    private long savedEpoch;
+    /**
+     * Number of rows at the cut of the saved epoch.
+     */
+    private int savedSize;
+    /**
+     * Indexes of the rows of any cryptocurrency: every row at position 0, and the rows of each
+     * action at the position after its ordinal. The indexes of the actions are created by their first row.
+     */
+    private RowIndex[] anyInstrument;
+    /**
+     * Ordinals of the cryptocurrencies of the recorded transactions, in ascending order. Only the
+     * first {@link #instrumentCount} are used, so the indexes of a user grow with the
+     * cryptocurrencies the user has traded rather than with the ordinals of the registry.
+     */
+    private int[] instruments;
+    /**
+     * Indexes of the rows of each cryptocurrency of {@link #instruments}, laid out like {@link #anyInstrument}.
+     */
+    private RowIndex[][] instrumentIndexes;
+    private int instrumentCount;
+
+    /**
+     * Constructs an empty history.
+     */
+    public TransactionHistory() {
+        savedEpoch = SnapshotEpoch.getInstance().current();
+        allocate();
+    }
+
+    /**
+     * Starts empty columns and indexes.
+     */
+    private void allocate() {
+        ids = new long[INITIAL_CAPACITY];
+        actions = new byte[INITIAL_CAPACITY];
+        cryptoCurrencies = new short[INITIAL_CAPACITY];
+        amounts = new long[INITIAL_CAPACITY];
+        prices = new long[INITIAL_CAPACITY];
+        epochNanos = new long[INITIAL_CAPACITY];
+        anyInstrument = new RowIndex[ACTIONS.length + 1];
+        anyInstrument[0] = new RowIndex();
+        instruments = new int[0];
+        instrumentIndexes = new RowIndex[0][];
+        instrumentCount = 0;
+    }
+
+    /**
+     * Saves the number of rows before the first change made in a new epoch.
+     */
+    private void preserve() {
+        long epoch = SnapshotEpoch.getInstance().current();
+        if (savedEpoch != epoch) {
+            savedEpoch = epoch;
+            savedSize = size;
+        }
+    }
+
+    /**
+     * Appends a transaction.<br>
+     * The times of the rows are kept in order: a transaction created before the last recorded one,
+     * by another thread, is recorded at the time of the last one.
+     *
+     * @param transaction the transaction to record
+     */
+    public synchronized void add(Transaction transaction) {
+        preserve();
+        if (size == amounts.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            actions = Arrays.copyOf(actions, capacity);
+            cryptoCurrencies = Arrays.copyOf(cryptoCurrencies, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            epochNanos = Arrays.copyOf(epochNanos, capacity);
+        }
+        int action = transaction.getAction().ordinal();
+        int instrument = transaction.getCryptoCurrency().getOrdinal();
+        long time = toEpochNanos(transaction.getDateTime());
+        if (size > 0) {
+            time = Math.max(time, epochNanos[size - 1]);
+        }
+        int row = size++;
+        ids[row] = transaction.getTransactionID();
+        actions[row] = (byte) action;
+        cryptoCurrencies[row] = (short) instrument;
+        amounts[row] = transaction.getAmount();
+        prices[row] = transaction.getPrice();
+        epochNanos[row] = time;
+        index(anyInstrument, action, row);
+        index(indexesOf(instrument), action, row);
+    }
+
+    /**
+     * Returns the number of recorded transactions.
+     *
+     * @return the number of transactions
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every transaction.<br>
+     * The rows are dropped rather than kept for a snapshot, so the history must not be cleared
+     * while a snapshot copies the users.
+     */
+    public synchronized void clear() {
+        size = 0;
+        allocate();
+    }
+
+    /**
+     * Returns a page of the most recent transactions.
+     *
+     * @param limit the maximum number of transactions of the page
+     * @return the page
+     */
+    public Page latest(int limit) {
+        return query(null, null, null, null, FIRST_PAGE, limit);
+    }
+
+    /**
+     * Returns a page of transactions that match a filter, newest first.
+     *
+     * @param cryptoCurrency the cryptocurrency of the transactions, or null for any
+     * @param action the action of the transactions, or null for any
+     * @param from the earliest creation time, inclusive, or null for no bound
+     * @param to the latest creation time, inclusive, or null for no bound
+     * @param cursor {@link #FIRST_PAGE}, or the cursor of the previous page
+     * @param limit the maximum number of transactions of the page
+     * @return the page
+     */
+    public synchronized Page query(CryptoCurrency cryptoCurrency, TransactionAction action, LocalDateTime from,
+                                   LocalDateTime to, long cursor, int limit) {
+        RowIndex index = find(cryptoCurrency, action);
+        if (index == null || cursor < 0 || limit <= 0) {
+            return new Page(List.of(), NO_MORE_PAGES);
+        }
+        // Rows of the index before this position are older than the cursor and within the upper time bound
+        int end = index.countBelow(Math.min(cursor, size));
+        if (to != null) {
+            end = Math.min(end, countUntil(index, toEpochNanos(to)));
+        }
+        int start = from == null ? 0 : countUntil(index, toEpochNanos(from) - 1);
+        int first = Math.max(start, end - limit);
+        List<Transaction> transactions = new ArrayList<>(Math.max(0, end - first));
+        for (int position = end - 1; position >= first; position--) {
+            transactions.add(toTransaction(index.rows[position]));
+        }
+        long nextCursor = first > start ? index.rows[first] : NO_MORE_PAGES;
+        return new Page(Collections.unmodifiableList(transactions), nextCursor);
+    }
+
+    /**
+     * Visits every transaction, oldest first, without building Transaction objects.
+     *
+     * @param visitor the visitor of the rows
+     */
+    public synchronized void forEach(RowVisitor visitor) {
+        for (int row = 0; row < size; row++) {
+            visitor.visit(ids[row], ACTIONS[actions[row]], InstrumentRegistry.getInstance().get(cryptoCurrencies[row]),
+                    amounts[row], prices[row], epochNanos[row]);
+        }
+    }
+
+    /**
+     * Visits the transactions recorded before the cut of a snapshot, oldest first.<br>
+     * The rows are read without holding the history, so the threads recording transactions are
+     * not held back by the copy. Called once per epoch, by the snapshot that started it.
+     *
+     * @param epoch the epoch started by the cut
+     * @param visitor the visitor of the rows
+     */
+    public void forEachAt(long epoch, RowVisitor visitor) {
+        int count;
+        long[] ids;
+        byte[] actions;
+        short[] cryptoCurrencies;
+        long[] amounts;
+        long[] prices;
+        long[] epochNanos;
+        synchronized (this) {
+            if (savedEpoch != epoch) {
+                savedEpoch = epoch;
+                savedSize = size;
+            }
+            count = savedSize;
+            ids = this.ids;
+            actions = this.actions;
+            cryptoCurrencies = this.cryptoCurrencies;
+            amounts = this.amounts;
+            prices = this.prices;
+            epochNanos = this.epochNanos;
+        }
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        for (int row = 0; row < count; row++) {
+            visitor.visit(ids[row], ACTIONS[actions[row]], registry.get(cryptoCurrencies[row]), amounts[row], prices[row],
+                    epochNanos[row]);
+        }
+    }
+
+    /**
+     * Returns the number of rows of an index created up to a time, inclusive.
+     */
+    private int countUntil(RowIndex index, long time) {
+        int low = 0;
+        int high = index.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochNanos[index.rows[middle]] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Transaction toTransaction(int row) {
+        return new Transaction(ids[row], ACTIONS[actions[row]], InstrumentRegistry.getInstance().get(cryptoCurrencies[row]),
+                amounts[row], prices[row], toDateTime(epochNanos[row]));
+    }
+
+    private RowIndex find(CryptoCurrency cryptoCurrency, TransactionAction action) {
+        RowIndex[] indexes = anyInstrument;
+        if (cryptoCurrency != null) {
+            int position = Arrays.binarySearch(instruments, 0, instrumentCount, cryptoCurrency.getOrdinal());
+            if (position < 0) {
+                return null;
+            }
+            indexes = instrumentIndexes[position];
+        }
+        return indexes[action == null ? 0 : action.ordinal() + 1];
+    }
+
+    /**
+     * Returns the indexes of a cryptocurrency, adding them in ordinal order the first time.
+     */
+    private RowIndex[] indexesOf(int instrument) {
+        int position = Arrays.binarySearch(instruments, 0, instrumentCount, instrument);
+        if (position >= 0) {
+            return instrumentIndexes[position];
+        }
+        position = -position - 1;
+        if (instrumentCount == instruments.length) {
+            int capacity = Math.max(4, instrumentCount * 2);
+            instruments = Arrays.copyOf(instruments, capacity);
+            instrumentIndexes = Arrays.copyOf(instrumentIndexes, capacity);
+        }
+        System.arraycopy(instruments, position, instruments, position + 1, instrumentCount - position);
+        System.arraycopy(instrumentIndexes, position, instrumentIndexes, position + 1, instrumentCount - position);
+        RowIndex[] indexes = new RowIndex[ACTIONS.length + 1];
+        instruments[position] = instrument;
+        instrumentIndexes[position] = indexes;
+        instrumentCount++;
+        return indexes;
+    }
+
+    /**
+     * Adds a row to the index of every action and to the index of its action, creating them the first time.
+     */
+    private static void index(RowIndex[] indexes, int action, int row) {
+        if (indexes[0] == null) {
+            indexes[0] = new RowIndex();
+        }
+        if (indexes[action + 1] == null) {
+            indexes[action + 1] = new RowIndex();
+        }
+        indexes[0].add(row);
+        indexes[action + 1].add(row);
+    }
+
+    /**
+     * Converts a date and time in UTC to nanoseconds since the epoch.
+     *
+     * @param dateTime the date and time
+     * @return the nanoseconds since the epoch
+     */
+    public static long toEpochNanos(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dateTime.getNano();
+    }
+
+    /**
+     * Converts nanoseconds since the epoch to a date and time in UTC.
+     *
+     * @param epochNanos the nanoseconds since the epoch
+     * @return the date and time
+     */
+    public static LocalDateTime toDateTime(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Receives the columns of a transaction.
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        /**
+         * Visits a transaction.
+         *
+         * @param transactionID the ID of the transaction
+         * @param action the action of the transaction
+         * @param cryptoCurrency the cryptocurrency of the transaction
+         * @param amount the unscaled amount of cryptocurrency
+         * @param price the unscaled total price
+         * @param epochNanos the creation time, in nanoseconds since the epoch in UTC
+         */
+        void visit(long transactionID, TransactionAction action, CryptoCurrency cryptoCurrency, long amount, long price, long epochNanos);
+    }
+
+    /**
+     * A page of transactions, newest first.
+     */
+    public static final class Page {
+        private final List<Transaction> transactions;
+        private final long nextCursor;
+
+        Page(List<Transaction> transactions, long nextCursor) {
+            this.transactions = transactions;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * Returns the cursor of the next, older page.
+         *
+         * @return the cursor, or {@link #NO_MORE_PAGES} if this is the last page
+         */
+        public long getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasNext() {
+            return nextCursor != NO_MORE_PAGES;
+        }
+    }
+
+    /**
+     * Growable list of rows in ascending order.
+     */
+    private static final class RowIndex {
+        private int[] rows = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        /**
+         * Returns the number of rows lower than a row.
+         */
+        int countBelow(long row) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (rows[middle] < row) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.bootcamp.models;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A movement of funds between several balances that is applied as a whole.<br>
+ * The legs of a transfer are added first and applied together by {@link #commit()}: every debit is
+ * taken with a compare-and-set on its balance, and if one of them cannot be covered the debits
+ * already taken are given back and no credit is applied, so a transfer either moves every leg or
+ * none of them. Credits never fail, so they are applied once all the debits have succeeded.<br>
+ * A reader can briefly see the debits of a transfer before its credits, but never a balance below
+ * zero nor funds that were created or lost.<br>
+ * A transfer is not thread-safe and is meant to be reused by the thread that owns it: the legs are
+ * kept in preallocated arrays, and they are cleared after every commit. A leg is either a slot of a
+ * wallet or a balance held outside the wallets.
+ * @see Wallet
+ */
+public class Transfer {
+    /**
+     * Number of legs a new transfer can hold before growing.
+     */
+    private static final int INITIAL_LEGS = 8;
+
+    private final Legs debits;
+    private final Legs credits;
+    private int failedLeg;
+
+    /**
+     * Constructs a new empty transfer.
+     */
+    public Transfer() {
+        debits = new Legs();
+        credits = new Legs();
+        failedLeg = -1;
+    }
+
+    /**
+     * Adds a leg that takes fiat money from a wallet.
+     *
+     * @param wallet the wallet to debit
+     * @param value the unscaled fiat money to take
+     * @return this transfer
+     */
+    public Transfer debitFiat(Wallet wallet, long value) {
+        debits.add(wallet, Wallet.FIAT_SLOT, null, value);
+        return this;
+    }
+
+    /**
+     * Adds a leg that gives fiat money to a wallet.
+     *
+     * @param wallet the wallet to credit
+     * @param value the unscaled fiat money to give
+     * @return this transfer
+     */
+    public Transfer creditFiat(Wallet wallet, long value) {
+        if (value > 0) {
+            credits.add(wallet, Wallet.FIAT_SLOT, null, value);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a leg that takes a cryptocurrency from a wallet.
+     *
+     * @param wallet the wallet to debit
+     * @param cryptoCurrency the cryptocurrency to take
+     * @param quantity the unscaled quantity to take
+     * @return this transfer
+     */
+    public Transfer debitCrypto(Wallet wallet, CryptoCurrency cryptoCurrency, long quantity) {
+        debits.add(wallet, Wallet.slotOf(cryptoCurrency), null, quantity);
+        return this;
+    }
+
+    /**
+     * Adds a leg that gives a cryptocurrency to a wallet.
+     *
+     * @param wallet the wallet to credit
+     * @param cryptoCurrency the cryptocurrency to give
+     * @param quantity the unscaled quantity to give
+     * @return this transfer
+     */
+    public Transfer creditCrypto(Wallet wallet, CryptoCurrency cryptoCurrency, long quantity) {
+        if (quantity > 0) {
+            credits.add(wallet, Wallet.slotOf(cryptoCurrency), null, quantity);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a leg that takes a value from a balance held outside a wallet, such as the inventory
+     * of the exchange.
+     *
+     * @param balance the balance to debit
+     * @param value the unscaled value to take
+     * @return this transfer
+     */
+    public Transfer debit(AtomicLong balance, long value) {
+        debits.add(null, 0, balance, value);
+        return this;
+    }
+
+    /**
+     * Adds a leg that gives a value to a balance held outside a wallet.
+     *
+     * @param balance the balance to credit
+     * @param value the unscaled value to give
+     * @return this transfer
+     */
+    public Transfer credit(AtomicLong balance, long value) {
+        if (value > 0) {
+            credits.add(null, 0, balance, value);
+        }
+        return this;
+    }
+
+    /**
+     * Applies every leg of the transfer, or none of them if a debit cannot be covered.<br>
+     * The legs are cleared afterwards, so the transfer can be reused.
+     *
+     * @return true if the transfer was applied, false if a balance did not cover its debit
+     * @see #getFailedLeg()
+     */
+    public boolean commit() {
+        try {
+            failedLeg = -1;
+            for (int i = 0; i < debits.count; i++) {
+                if (!debits.tryDebit(i)) {
+                    for (int j = i - 1; j >= 0; j--) {
+                        debits.credit(j);
+                    }
+                    failedLeg = i;
+                    return false;
+                }
+            }
+            for (int i = 0; i < credits.count; i++) {
+                credits.credit(i);
+            }
+            return true;
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * Returns the debit that could not be covered by the last commit.
+     *
+     * @return the position of the debit among the debits of the transfer, in the order they were
+     * added, or -1 if the last commit succeeded
+     */
+    public int getFailedLeg() {
+        return failedLeg;
+    }
+
+    /**
+     * Removes every leg without applying it.
+     */
+    public void clear() {
+        debits.clear();
+        credits.clear();
+    }
+
+    /**
+     * The debits or the credits of a transfer, in the order they were added.
+     */
+    private static final class Legs {
+        private Wallet[] wallets = new Wallet[INITIAL_LEGS];
+        private int[] slots = new int[INITIAL_LEGS];
+        private AtomicLong[] balances = new AtomicLong[INITIAL_LEGS];
+        private long[] values = new long[INITIAL_LEGS];
+        private int count;
+
+        /**
+         * Adds a leg on a slot of a wallet, or on a balance when the wallet is null.
+         */
+        void add(Wallet wallet, int slot, AtomicLong balance, long value) {
+            if (count == values.length) {
+                wallets = Arrays.copyOf(wallets, count * 2);
+                slots = Arrays.copyOf(slots, count * 2);
+                balances = Arrays.copyOf(balances, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            wallets[count] = wallet;
+            slots[count] = slot;
+            balances[count] = balance;
+            values[count++] = value;
+        }
+
+        boolean tryDebit(int leg) {
+            Wallet wallet = wallets[leg];
+            return wallet != null ? wallet.tryDebit(slots[leg], values[leg]) : Wallet.tryDebit(balances[leg], values[leg]);
+        }
+
+        void credit(int leg) {
+            Wallet wallet = wallets[leg];
+            if (wallet != null) {
+                wallet.credit(slots[leg], values[leg]);
+            } else {
+                Wallet.credit(balances[leg], values[leg]);
+            }
+        }
+
+        void clear() {
+            Arrays.fill(wallets, 0, count, null);
+            Arrays.fill(balances, 0, count, null);
+            count = 0;
+        }
+    }
+}
@@ -1,43 +1,59 @@
 package org.bootcamp.models;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-
 /**
- * Represents a user in the system with a unique ID, name, email, and password.
+ * Represents a user in the system with a unique ID, name, email, and password.<br>
+ * Only a salted hash of the password is kept, and it is what the journal and the snapshots store.<br>
+ * The ID is a 64-bit number taken from the {@link IdGenerator} when the user is created or
+ * restored; users are compared by it.
  * Each user has an associated wallet for managing fiat money and cryptocurrencies,
- * as well as a list of transactions they have performed.
+ * as well as the history of the transactions they have performed.
  */
 public class User {
     private final String name;
     private final String email;
-    private final String password;
-    private String userID;
+    private final PasswordHash passwordHash;
+    private final long userID;
     private final Wallet wallet;
-    private final List<Transaction> transactions;
+    private final TransactionHistory transactions;
+    /**
+     * Snapshot epoch the user was created in; snapshots cut in a later epoch include the user.
+     */
+    private final long createdEpoch;
 
     /**
      * Constructs a new User with the specified name, email, and password.
-     * Initializes the user's wallet and transaction list, and generates a unique user ID.
+     * Initializes the user's wallet and transaction history, and takes a unique user ID.
      *
      * @param name the name of the user, must not be null
      * @param email the email of the user, must not be null
      * @param password the password of the user, must not be null
      */
     public User(String name, String email, String password) {
-        assert(name != null && email != null && password != null);
+        this(name, email, PasswordHash.of(password));
+    }
+
+    /**
+     * Constructs a new User with the specified name, email, and password hash, for a password
+     * hashed beforehand or restored from the journal or a snapshot.
+     * Initializes the user's wallet and transaction history, and takes a unique user ID.
+     *
+     * @param name the name of the user, must not be null
+     * @param email the email of the user, must not be null
+     * @param passwordHash the hash of the password of the user, must not be null
+     */
+    public User(String name, String email, PasswordHash passwordHash) {
+        assert(name != null && email != null && passwordHash != null);
         this.name = name;
         this.email = email;
-        this.password = password;
+        this.passwordHash = passwordHash;
         wallet = new Wallet();
-        transactions = new ArrayList<>();
-        generateUserID();
+        transactions = new TransactionHistory();
+        userID = IdGenerator.getInstance().nextId();
+        createdEpoch = SnapshotEpoch.getInstance().current();
     }
 
     /**
-     * Records a transaction for the user by adding it to the user's transaction list.
+     * Records a transaction for the user by adding it to the user's transaction history.
      *
      * @param transaction the transaction to be recorded
      */
@@ -45,36 +61,57 @@ public class User {
         transactions.add(transaction);
     }
 
-    public List<Transaction> getTransactions() {
-        return transactions;
-    }
-
     /**
-     * Generates a unique user ID based on the user's email and the object's hash code.
-     * The user ID is a combination of the email's local part and the object's hash code.
+     * Returns the transaction history of the user, which can be read page by page.
+     *
+     * @return the transaction history
      */
-    private void generateUserID() {
-        userID = email.split("@")[0] +
-                "@" +
-                hashCode();
+    public TransactionHistory getTransactionHistory() {
+        return transactions;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof User user)) return false;
-        return Objects.equals(email, user.email) && Objects.equals(password, user.password);
+        return userID == user.userID;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(email, password);
+        return Long.hashCode(userID);
+    }
+
+    public long getUserID() {
+        return userID;
+    }
+
+    public String getName() {
+        return name;
     }
 
     public String getEmail() {
         return email;
     }
 
+    public long getCreatedEpoch() {
+        return createdEpoch;
+    }
+
+    public PasswordHash getPasswordHash() {
+        return passwordHash;
+    }
+
+    /**
+     * Checks a password against the hash of the password of the user.
+     *
+     * @param password the password to check
+     * @return true if it is the password of the user, false otherwise
+     */
+    public boolean checkPassword(String password) {
+        return passwordHash.matches(password);
+    }
+
     public Wallet getWallet() {
         return wallet;
     }
@@ -82,10 +119,10 @@ public class User {
     /**
      * Subtracts a specified amount of fiat money from the user's wallet.
      *
-     * @param amount the amount of fiat money to subtract
+     * @param amount the unscaled amount of fiat money to subtract
      * @return true if the subtraction was successful, false otherwise
      */
-    public boolean subtractFiatMoney(BigDecimal amount) {
+    public boolean subtractFiatMoney(long amount) {
         return wallet.subtractFiatMoney(amount);
     }
 
@@ -93,19 +130,19 @@ public class User {
      * Subtracts a specified quantity of cryptocurrency from the user's wallet.
      *
      * @param cryptoCurrency the type of cryptocurrency to subtract
-     * @param quantity the quantity of cryptocurrency to subtract
+     * @param quantity the unscaled quantity of cryptocurrency to subtract
      * @return true if the subtraction was successful, false otherwise
      */
-    public boolean subtractCryptoCurrency(CryptoCurrency cryptoCurrency, BigDecimal quantity) {
+    public boolean subtractCryptoCurrency(CryptoCurrency cryptoCurrency, long quantity) {
         return wallet.subtractCryptoCurrency(cryptoCurrency, quantity);
     }
 
     /**
      * Deposits a specified amount of fiat money into the user's wallet.
      *
-     * @param amount the amount of fiat money to deposit
+     * @param amount the unscaled amount of fiat money to deposit
      */
-    public void depositFiatMoney(BigDecimal amount) {
+    public void depositFiatMoney(long amount) {
         wallet.addFiatMoney(amount);
     }
 
@@ -113,9 +150,9 @@ public class User {
      * Recharges the user's wallet with a specified quantity of cryptocurrency.
      *
      * @param cryptoCurrency the type of cryptocurrency to recharge
-     * @param quantity the quantity of cryptocurrency to add
+     * @param quantity the unscaled quantity of cryptocurrency to add
      */
-    public void rechargeCryptoCurrency(CryptoCurrency cryptoCurrency, BigDecimal quantity) {
+    public void rechargeCryptoCurrency(CryptoCurrency cryptoCurrency, long quantity) {
         wallet.rechargeCryptoCurrency(cryptoCurrency, quantity);
     }
 
@@ -2,90 +2,158 @@ package org.bootcamp.models;
 
 import org.bootcamp.services.ExchangeService;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The Wallet class represents a user's wallet that holds fiat money and various cryptocurrencies.<br>
- * It provides methods to check and manage funds, including adding and subtracting both fiat money and cryptocurrencies.
+ * It provides methods to check and manage funds, including adding and subtracting both fiat money and cryptocurrencies.<br>
+ * Balances are fixed-point longs: fiat money uses {@link FixedPoint#FIAT_SCALE} and every cryptocurrency
+ * uses its own quantity scale. Each balance is updated with compare-and-set loops, so
+ * credits and debits made at the same time by different threads (the console, the matching shards)
+ * are never lost, a debit never takes a balance below zero, and no lock is shared between assets or
+ * between wallets. Movements that involve several balances go through a {@link Transfer}.<br>
+ * The balances are kept in a single array of longs: the fiat money in the first slot and every
+ * cryptocurrency in the slot after its {@link CryptoCurrency#getOrdinal() ordinal}. The array only
+ * reaches the highest cryptocurrency the wallet has held, and grows when a new one is credited, so a
+ * wallet costs a few bytes per asset and no map entry or boxed balance.<br>
+ * The first change made to a wallet after the cut of a snapshot saves the balances it held at the
+ * cut, so the snapshot reads them later without stopping the threads that keep changing the wallet.
+ * @see FixedPoint
+ * @see Transfer
+ * @see InstrumentRegistry
+ * @see SnapshotEpoch
  */
 public class Wallet {
-    private BigDecimal fiatMoney;
-    private final Map<CryptoCurrency, BigDecimal> myCryptoCurrencies;
+    /**
+     * Slot of the fiat money.
+     */
+    static final int FIAT_SLOT = 0;
+    /**
+     * Value left in the slots of an array that has been replaced by a larger one.
+     * Balances never reach it, since they never go below zero.
+     */
+    private static final long MOVED = Long.MIN_VALUE;
+    private static final VarHandle BALANCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile long[] balances;
+    /**
+     * Epoch of the last snapshot cut whose balances have been saved, or read by the snapshot.
+     */
+    private volatile long savedEpoch;
+    /**
+     * Balances at the cut of the saved epoch, until the snapshot reads them.
+     */
+    private long[] savedBalances;
 
     /**
-     * Constructs a new Wallet with zero fiat money and initializes the cryptocurrency holdings to zero.
-     * Retrieves the available cryptocurrencies from the ExchangeService.
+     * Constructs a new Wallet with zero fiat money and no cryptocurrency.
      */
     public Wallet() {
-        this.fiatMoney = BigDecimal.ZERO;
-        this.myCryptoCurrencies = new HashMap<>();
-        ExchangeService service = ExchangeService.getInstance();
-        for (CryptoCurrency cryptoCurrency : service.getAvailableCryptoCurrencies().keySet()) {
-            myCryptoCurrencies.put(cryptoCurrency, BigDecimal.ZERO);
+        this(new long[FIAT_SLOT + 1]);
+    }
+
+    private Wallet(long[] balances) {
+        this.balances = balances;
+        this.savedEpoch = SnapshotEpoch.getInstance().current();
+    }
+
+    /**
+     * Returns the cryptocurrencies the wallet can hold, which are the cryptocurrencies of the exchange.
+     *
+     * @return an unmodifiable set of cryptocurrencies
+     */
+    public Set<CryptoCurrency> getMyCryptoCurrencies() {
+        return ExchangeService.getInstance().getAvailableCryptoCurrencies();
+    }
+
+    /**
+     * Returns the cryptocurrencies the wallet holds a positive quantity of, listed by the exchange or not.<br>
+     * Only the balances of the wallet are visited, so the cost does not grow with the number of
+     * cryptocurrencies of the exchange.
+     *
+     * @return the held cryptocurrencies, by ordinal
+     */
+    public List<CryptoCurrency> getHeldCryptoCurrencies() {
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        List<CryptoCurrency> held = new ArrayList<>();
+        for (int slot = FIAT_SLOT + 1; slot < balances.length; slot++) {
+            if (get(slot) > 0) {
+                held.add(registry.get(slot - 1));
+            }
         }
+        return held;
     }
 
-    public Map<CryptoCurrency, BigDecimal> getMyCryptoCurrencies() {
-        return myCryptoCurrencies;
+    /**
+     * Returns the fiat money in the wallet.
+     *
+     * @return the unscaled fiat money
+     */
+    public long getFiatMoney() {
+        return get(FIAT_SLOT);
     }
 
     /**
-     * Checks if the wallet has sufficient fiat money for a given amount.
+     * Returns the quantity of a cryptocurrency in the wallet.
      *
-     * @param neededMoney the amount of fiat money needed
+     * @param cryptoCurrency the cryptocurrency to check
+     * @return the unscaled quantity, with the quantity scale of the cryptocurrency
+     */
+    public long getCryptoCurrencyQuantity(CryptoCurrency cryptoCurrency) {
+        return get(slotOf(cryptoCurrency));
+    }
+
+    /**
+     * Checks if the wallet has enough fiat money.
+     *
+     * @param neededMoney the unscaled amount needed
      * @return true if the wallet has enough fiat money, false otherwise
      */
-    public boolean checkFunds(BigDecimal neededMoney) {
-        return fiatMoney.compareTo(neededMoney) >= 0;
+    public boolean checkFunds(long neededMoney) {
+        return get(FIAT_SLOT) >= neededMoney;
     }
 
     /**
-     * Checks if the wallet has sufficient cryptocurrency for a given amount.
+     * Checks if the wallet has enough of a cryptocurrency.
      *
      * @param cryptoCurrency the cryptocurrency to check
-     * @param neededQuantity the amount of cryptocurrency needed
+     * @param neededQuantity the unscaled quantity needed
      * @return true if the wallet has enough of the specified cryptocurrency, false otherwise
      */
-    public boolean checkCryptoFunds(CryptoCurrency cryptoCurrency, BigDecimal neededQuantity) {
-        return myCryptoCurrencies.get(cryptoCurrency).compareTo(neededQuantity) >= 0;
+    public boolean checkCryptoFunds(CryptoCurrency cryptoCurrency, long neededQuantity) {
+        return get(slotOf(cryptoCurrency)) >= neededQuantity;
     }
 
     /**
      * Adds a specified amount of fiat money to the wallet.
      *
-     * @param value the amount of fiat money to add
+     * @param value the unscaled amount of fiat money to add
      */
-    public void addFiatMoney(BigDecimal value) {
-        fiatMoney = fiatMoney.add(value);
+    public void addFiatMoney(long value) {
+        credit(FIAT_SLOT, value);
     }
 
     /**
      * Subtract fiat money if is available
-     * @param value to subtract
+     * @param value unscaled amount to subtract
      * @return true if the wallet has enough funds and subtract the value, false otherwise
      */
-    public boolean subtractFiatMoney(BigDecimal value) {
-        if (checkFunds(value)) {
-            fiatMoney = fiatMoney.subtract(value);
-            return true;
-        }
-        return false;
+    public boolean subtractFiatMoney(long value) {
+        return tryDebit(FIAT_SLOT, value);
     }
 
     /**
      * Recharges the specified quantity of a cryptocurrency in the wallet.
      *
      * @param cryptoCurrency the cryptocurrency to be recharged
-     * @param quantity the quantity of cryptocurrency to add
+     * @param quantity the unscaled quantity of cryptocurrency to add
      */
-    public void rechargeCryptoCurrency(CryptoCurrency cryptoCurrency, BigDecimal quantity) {
-        BigDecimal currentQuantity = myCryptoCurrencies.get(cryptoCurrency);
-        if (quantity.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal newQuantity = currentQuantity.add(quantity);
-            myCryptoCurrencies.replace(cryptoCurrency, newQuantity);
+    public void rechargeCryptoCurrency(CryptoCurrency cryptoCurrency, long quantity) {
+        if (quantity > 0) {
+            credit(slotOf(cryptoCurrency), quantity);
         }
     }
 
@@ -93,36 +161,235 @@ public class Wallet {
      * Subtracts the specified quantity of a cryptocurrency from the wallet if sufficient funds are available.
      *
      * @param cryptoCurrency the cryptocurrency to be subtracted
-     * @param quantity the quantity of cryptocurrency to subtract
+     * @param quantity the unscaled quantity of cryptocurrency to subtract
      * @return true if the subtraction was successful, false otherwise
      */
-    public boolean subtractCryptoCurrency(CryptoCurrency cryptoCurrency, BigDecimal quantity) {
-        if (checkCryptoFunds(cryptoCurrency, quantity)) {
-            BigDecimal currentQuantity = myCryptoCurrencies.get(cryptoCurrency);
-            myCryptoCurrencies.replace(cryptoCurrency, currentQuantity.subtract(quantity));
-            return true;
+    public boolean subtractCryptoCurrency(CryptoCurrency cryptoCurrency, long quantity) {
+        return tryDebit(slotOf(cryptoCurrency), quantity);
+    }
+
+    /**
+     * Returns the slot of the balance of a cryptocurrency, used by the transfers.
+     */
+    static int slotOf(CryptoCurrency cryptoCurrency) {
+        return cryptoCurrency.getOrdinal() + 1;
+    }
+
+    /**
+     * Returns a balance of the wallet.
+     *
+     * @param slot the slot of the balance
+     * @return the unscaled balance, zero for a cryptocurrency the wallet has never held
+     */
+    long get(int slot) {
+        long[] array = balances;
+        while (slot < array.length) {
+            long value = (long) BALANCES.getVolatile(array, slot);
+            if (value != MOVED) {
+                return value;
+            }
+            array = awaitGrowth(array);
         }
-        return false;
+        return 0;
+    }
+
+    /**
+     * Adds a value to a balance of the wallet, retrying while other threads change it.
+     *
+     * @param slot the slot of the balance
+     * @param value the unscaled value to add
+     * @throws ArithmeticException if the balance overflows
+     */
+    void credit(int slot, long value) {
+        preserve();
+        long[] array = balances;
+        while (true) {
+            if (slot >= array.length) {
+                array = grow(slot);
+                continue;
+            }
+            long current = (long) BALANCES.getVolatile(array, slot);
+            if (current == MOVED) {
+                array = awaitGrowth(array);
+            } else if (BALANCES.compareAndSet(array, slot, current, FixedPoint.add(current, value))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Subtracts a value from a balance of the wallet if the balance covers it, retrying while other
+     * threads change it.
+     *
+     * @param slot the slot of the balance
+     * @param value the unscaled value to subtract
+     * @return true if the value was subtracted, false if the balance was not enough
+     */
+    boolean tryDebit(int slot, long value) {
+        preserve();
+        long[] array = balances;
+        while (true) {
+            if (slot >= array.length) {
+                if (value > 0) {
+                    return false;
+                }
+                array = grow(slot);
+                continue;
+            }
+            long current = (long) BALANCES.getVolatile(array, slot);
+            if (current == MOVED) {
+                array = awaitGrowth(array);
+            } else if (current < value) {
+                return false;
+            } else if (BALANCES.compareAndSet(array, slot, current, current - value)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Saves the balances before the first change made in a new epoch.
+     */
+    private void preserve() {
+        long epoch = SnapshotEpoch.getInstance().current();
+        if (savedEpoch != epoch) {
+            save(epoch);
+        }
+    }
+
+    private synchronized void save(long epoch) {
+        if (savedEpoch != epoch) {
+            savedBalances = copyBalances();
+            savedEpoch = epoch;
+        }
+    }
+
+    private long[] copyBalances() {
+        long[] copy = new long[balances.length];
+        for (int slot = 0; slot < copy.length; slot++) {
+            copy[slot] = get(slot);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the balances the wallet held at the cut of a snapshot, as a detached wallet.<br>
+     * The balances saved by the first change made since the cut are handed over and dropped, and
+     * the current balances are copied if the wallet has not changed since. Called once per epoch,
+     * by the snapshot that started it.
+     *
+     * @param epoch the epoch started by the cut
+     * @return a new wallet with the balances at the cut
+     */
+    public synchronized Wallet imageAt(long epoch) {
+        long[] image = savedEpoch == epoch ? savedBalances : copyBalances();
+        savedEpoch = epoch;
+        savedBalances = null;
+        return new Wallet(image);
+    }
+
+    /**
+     * Replaces the balances with an array that reaches a slot.<br>
+     * Every slot of the old array is swapped for {@link #MOVED} as it is copied, so an update that
+     * races with the copy fails its compare-and-set and is retried on the new array.
+     *
+     * @param slot the slot the array must reach
+     * @return the current balances
+     */
+    private synchronized long[] grow(int slot) {
+        long[] array = balances;
+        if (slot < array.length) {
+            return array;
+        }
+        long[] grown = new long[slot + 1];
+        for (int i = 0; i < array.length; i++) {
+            grown[i] = (long) BALANCES.getAndSet(array, i, MOVED);
+        }
+        balances = grown;
+        return grown;
+    }
+
+    /**
+     * Waits for a growth in progress to publish its new array.
+     *
+     * @param array the array being replaced
+     * @return the new array
+     */
+    private long[] awaitGrowth(long[] array) {
+        long[] current;
+        while ((current = balances) == array) {
+            Thread.onSpinWait();
+        }
+        return current;
+    }
+
+    /**
+     * Adds a value to a balance held outside a wallet, retrying while other threads change it.
+     *
+     * @param cell the balance
+     * @param value the unscaled value to add
+     * @throws ArithmeticException if the balance overflows
+     */
+    static void credit(AtomicLong cell, long value) {
+        long current;
+        long updated;
+        do {
+            current = cell.get();
+            updated = FixedPoint.add(current, value);
+        } while (!cell.compareAndSet(current, updated));
+    }
+
+    /**
+     * Subtracts a value from a balance held outside a wallet if the balance covers it, retrying while
+     * other threads change it.
+     *
+     * @param cell the balance
+     * @param value the unscaled value to subtract
+     * @return true if the value was subtracted, false if the balance was not enough
+     */
+    static boolean tryDebit(AtomicLong cell, long value) {
+        long current;
+        do {
+            current = cell.get();
+            if (current < value) {
+                return false;
+            }
+        } while (!cell.compareAndSet(current, current - value));
+        return true;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Wallet wallet)) return false;
-        return Objects.equals(fiatMoney, wallet.fiatMoney) && Objects.equals(myCryptoCurrencies, wallet.myCryptoCurrencies);
+        int slots = Math.max(balances.length, wallet.balances.length);
+        for (int slot = 0; slot < slots; slot++) {
+            if (get(slot) != wallet.get(slot)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(fiatMoney, myCryptoCurrencies);
+        int hash = 0;
+        int slots = balances.length;
+        for (int slot = 0; slot < slots; slot++) {
+            long value = get(slot);
+            if (value != 0) {
+                hash += slot ^ Long.hashCode(value);
+            }
+        }
+        return hash;
     }
 
     @Override
     public String toString() {
-        StringBuilder message = new StringBuilder("Account Balance: $" + fiatMoney +
+        StringBuilder message = new StringBuilder("Account Balance: $" + FixedPoint.fiatToBigDecimal(getFiatMoney()) +
                 "\nCryptoCurrencies:\n");
-        for(CryptoCurrency cryptoCurrency : myCryptoCurrencies.keySet()) {
-            message.append(cryptoCurrency.getShorthandSymbol()).append(": ").append(myCryptoCurrencies.get(cryptoCurrency)).append('\n');
+        for(CryptoCurrency cryptoCurrency : getHeldCryptoCurrencies()) {
+            message.append(cryptoCurrency.getShorthandSymbol()).append(": ").append(cryptoCurrency.quantityToBigDecimal(getCryptoCurrencyQuantity(cryptoCurrency)).toPlainString()).append('\n');
         }
         return message.toString();
     }
@@ -0,0 +1,18 @@
+package org.bootcamp.persistence;
+
+/**
+ * Enum representing when the journal forces its writes to the storage device.
+ * The policies include:
+ * <ul>
+ *   <li>EVENT - After every event, the safest and slowest option</li>
+ *   <li>BATCH - After every batch of events: every batch drained by a matching shard, and every
+ *   registration, deposit and purchase from the exchange on its own</li>
+ *   <li>PERIODIC - At a fixed interval from a background thread, so writers never wait for the device</li>
+ * </ul>
+ * Events that are not forced yet are still kept by the operating system if the process crashes,
+ * and they are forced when the process shuts down, whatever the policy.
+ * @see Journal
+ */
+public enum FsyncPolicy {
+    EVENT, BATCH, PERIODIC
+}
@@ -0,0 +1,336 @@
+package org.bootcamp.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * The Journal class is the write-ahead log of the platform and follows the singleton pattern.<br>
+ * Every state change is recorded as an event in a stream of memory-mapped segment files, so
+ * the state can be rebuilt after a restart by replaying the events. Each stream has a single
+ * {@link JournalWriter}: the account and exchange events share the "accounts" stream and every
+ * matching shard writes its own stream, so the shards never contend for the journal. All the
+ * events take their sequence number from a single counter, which gives a total order to merge
+ * the streams on replay.<br>
+ * The journal is configured with system properties:
+ * <ul>
+ *   <li>{@value #ENABLED_PROPERTY} - "false" turns the journal off (default "true")</li>
+ *   <li>{@value #DIRECTORY_PROPERTY} - directory of the segment files (default "data/journal")</li>
+ *   <li>{@value #SEGMENT_SIZE_PROPERTY} - size in bytes of every segment file (default 64 MiB)</li>
+ *   <li>{@value #FSYNC_PROPERTY} - "event", "batch" or "periodic" (default), see {@link FsyncPolicy}</li>
+ *   <li>{@value #FSYNC_INTERVAL_PROPERTY} - interval in milliseconds of the periodic policy (default 100)</li>
+ * </ul>
+ * @see JournalWriter
+ * @see JournalListener
+ */
+public final class Journal {
+    /**
+     * System property that turns the journal on or off.
+     */
+    public static final String ENABLED_PROPERTY = "journal.enabled";
+    /**
+     * System property with the directory of the segment files.
+     */
+    public static final String DIRECTORY_PROPERTY = "journal.dir";
+    /**
+     * System property with the size in bytes of every segment file.
+     */
+    public static final String SEGMENT_SIZE_PROPERTY = "journal.segmentSize";
+    /**
+     * System property with the fsync policy.
+     */
+    public static final String FSYNC_PROPERTY = "journal.fsync";
+    /**
+     * System property with the interval in milliseconds of the periodic fsync policy.
+     */
+    public static final String FSYNC_INTERVAL_PROPERTY = "journal.fsyncIntervalMs";
+    /**
+     * Extension of the segment files.
+     */
+    private static final String SEGMENT_EXTENSION = ".log";
+
+    /**
+     * Singleton instance of the Journal.
+     */
+    private static Journal instance;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    /**
+     * Next sequence number to be assigned.
+     */
+    private final AtomicLong sequence;
+    /**
+     * Writer of every stream, indexed by the stream name.
+     */
+    private final Map<String, JournalWriter> writers;
+
+    /**
+     * Private constructor to initialize the Journal.<br>
+     * Reads the configuration, finds the end of the existing streams to continue them,
+     * starts the background flusher when the fsync policy is periodic and forces the streams
+     * at shutdown whatever the policy.
+     */
+    private Journal() {
+        enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+        directory = Path.of(System.getProperty(DIRECTORY_PROPERTY, "data/journal"));
+        segmentSize = Integer.getInteger(SEGMENT_SIZE_PROPERTY, 64 << 20);
+        fsyncPolicy = FsyncPolicy.valueOf(System.getProperty(FSYNC_PROPERTY, "periodic").toUpperCase(Locale.ROOT));
+        sequence = new AtomicLong();
+        writers = new ConcurrentHashMap<>();
+        if (enabled) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create the journal directory " + directory, e);
+            }
+            openExistingStreams();
+            if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+                startFlusher(Long.getLong(FSYNC_INTERVAL_PROPERTY, 100));
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(this::force, "journal-shutdown"));
+        }
+    }
+
+    /**
+     * Returns the singleton instance of the Journal.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of Journal
+     */
+    public static synchronized Journal getInstance() {
+        if (instance == null) {
+            instance = new Journal();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns the writer of a stream, creating the stream the first time it is used.
+     * When the journal is disabled the writer discards the events.
+     *
+     * @param stream the name of the stream
+     * @return the single writer of the stream
+     */
+    public JournalWriter writer(String stream) {
+        return writers.computeIfAbsent(stream, name -> enabled ? new JournalWriter(this, name, 0, 0) : new JournalWriter(null, name, 0, 0));
+    }
+
+    /**
+     * Replays every recorded event in sequence order.
+     *
+     * @param listener the receiver of the events
+     * @return the number of events replayed
+     * @see #replay(JournalListener, long)
+     */
+    public long replay(JournalListener listener) {
+        return replay(listener, 0);
+    }
+
+    /**
+     * Replays the recorded events from a sequence number on, in sequence order.<br>
+     * The streams are read side by side and merged by sequence number, so the listener sees
+     * the events in the order they were recorded, whatever stream they belong to. The segments
+     * that only hold older events are not read at all, so replaying the tail after a snapshot
+     * does not depend on the length of the whole history.
+     *
+     * @param listener the receiver of the events
+     * @param fromSequence the sequence number of the first event to replay
+     * @return the number of events replayed
+     */
+    public long replay(JournalListener listener, long fromSequence) {
+        if (!enabled) {
+            return 0;
+        }
+        PriorityQueue<JournalReader> readers = new PriorityQueue<>(Comparator.comparingLong(JournalReader::sequence));
+        for (String stream : streams()) {
+            List<Path> segments = segments(stream);
+            int first = firstSegmentFrom(segments, fromSequence);
+            JournalReader reader = new JournalReader(segments.subList(first, segments.size()), segmentIndex(segments.get(first)));
+            boolean hasEvent = reader.next();
+            while (hasEvent && reader.sequence() < fromSequence) {
+                hasEvent = reader.next();
+            }
+            if (hasEvent) {
+                readers.add(reader);
+            }
+        }
+        long count = 0;
+        while (!readers.isEmpty()) {
+            JournalReader reader = readers.poll();
+            reader.dispatch(listener);
+            count++;
+            if (reader.next()) {
+                readers.add(reader);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sequence number that the next event will take.
+     *
+     * @return the next sequence number
+     */
+    public long getNextSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Makes sure the next events take a sequence number not lower than the specified one,
+     * for example after restoring a snapshot taken with a longer journal.
+     *
+     * @param nextSequence the lowest sequence number for the next event
+     */
+    public void advanceSequence(long nextSequence) {
+        sequence.accumulateAndGet(nextSequence, Math::max);
+    }
+
+    /**
+     * Forces the events written so far in every stream to the storage device.
+     */
+    public void force() {
+        writers.values().forEach(JournalWriter::force);
+    }
+
+    /**
+     * Assigns the next sequence number.
+     *
+     * @return a sequence number greater than all the previous ones
+     */
+    long nextSequence() {
+        return sequence.getAndIncrement();
+    }
+
+    /**
+     * Returns the path of a segment file.
+     *
+     * @param stream the name of the stream
+     * @param index the index of the segment
+     * @return the path of the segment
+     */
+    Path segmentPath(String stream, int index) {
+        return directory.resolve(String.format("%s-%010d%s", stream, index, SEGMENT_EXTENSION));
+    }
+
+    /**
+     * Finds the last segment of a stream whose first event is not newer than the sequence number,
+     * which is the first segment that can hold the event with that number.
+     *
+     * @param segments the segment files of the stream, sorted by index
+     * @param fromSequence the sequence number looked for
+     * @return the position of the segment in the list
+     */
+    private static int firstSegmentFrom(List<Path> segments, long fromSequence) {
+        for (int i = segments.size() - 1; i > 0; i--) {
+            JournalReader reader = new JournalReader(List.of(segments.get(i)), segmentIndex(segments.get(i)));
+            if (reader.next() && reader.sequence() <= fromSequence) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reads the last segment of every existing stream to find where each writer continues
+     * and which sequence number comes next.
+     */
+    private void openExistingStreams() {
+        long nextSequence = 0;
+        for (String stream : streams()) {
+            List<Path> segments = segments(stream);
+            Path last = segments.get(segments.size() - 1);
+            int index = segmentIndex(last);
+            JournalReader reader = new JournalReader(List.of(last), index);
+            while (reader.next()) {
+                nextSequence = Math.max(nextSequence, reader.sequence() + 1);
+            }
+            writers.put(stream, new JournalWriter(this, stream, index, reader.position()));
+        }
+        sequence.set(nextSequence);
+    }
+
+    /**
+     * Starts a daemon thread that forces the streams at a fixed interval.
+     *
+     * @param intervalMillis the interval in milliseconds
+     */
+    private void startFlusher(long intervalMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::force, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lists the names of the streams found in the journal directory.
+     *
+     * @return the sorted stream names
+     */
+    private SortedSet<String> streams() {
+        SortedSet<String> streams = new TreeSet<>();
+        for (Path segment : list()) {
+            String fileName = segment.getFileName().toString();
+            streams.add(fileName.substring(0, fileName.lastIndexOf('-')));
+        }
+        return streams;
+    }
+
+    /**
+     * Lists the segment files of a stream.
+     *
+     * @param stream the name of the stream
+     * @return the segment files sorted by index
+     */
+    private List<Path> segments(String stream) {
+        List<Path> segments = new ArrayList<>();
+        for (Path segment : list()) {
+            String fileName = segment.getFileName().toString();
+            if (fileName.substring(0, fileName.lastIndexOf('-')).equals(stream)) {
+                segments.add(segment);
+            }
+        }
+        segments.sort(Comparator.comparingInt(Journal::segmentIndex));
+        return segments;
+    }
+
+    private List<Path> list() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String fileName = file.getFileName().toString();
+                return fileName.endsWith(SEGMENT_EXTENSION) && fileName.lastIndexOf('-') > 0;
+            }).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list the journal directory " + directory, e);
+        }
+    }
+
+    private static int segmentIndex(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Integer.parseInt(fileName.substring(fileName.lastIndexOf('-') + 1, fileName.length() - SEGMENT_EXTENSION.length()));
+    }
+}
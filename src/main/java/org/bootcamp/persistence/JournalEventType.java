@@ -0,0 +1,38 @@
+package org.bootcamp.persistence;
+
+/**
+ * Enum representing the events recorded in the journal.
+ * The events include:
+ * <ul>
+ *   <li>REGISTER - A user has been registered</li>
+ *   <li>DEPOSIT - A user has deposited fiat money</li>
+ *   <li>EXCHANGE - A user has bought cryptocurrencies from the exchange</li>
+ *   <li>ORDER - A market order has been placed in the order book</li>
+ *   <li>FILL - A buy order and a selling order have been matched</li>
+ *   <li>CANCEL - A resting market order has been cancelled</li>
+ * </ul>
+ * @see Journal
+ */
+public enum JournalEventType {
+    REGISTER, DEPOSIT, EXCHANGE, ORDER, FILL, CANCEL;
+
+    private static final JournalEventType[] VALUES = values();
+
+    /**
+     * Returns the event type stored with the specified code.
+     *
+     * @param code the code written in the journal
+     * @return the event type
+     * @throws IllegalStateException if the code is unknown
+     */
+    static JournalEventType fromCode(byte code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalStateException("Unknown journal event: " + code);
+        }
+        return VALUES[code];
+    }
+
+    byte code() {
+        return (byte) ordinal();
+    }
+}
@@ -0,0 +1,80 @@
+package org.bootcamp.persistence;
+
+import org.bootcamp.models.OrderType;
+
+/**
+ * Interface for the receivers of the events read from the journal.<br>
+ * Events are delivered in the order they were recorded, following their sequence numbers.
+ * Amounts, quantities and prices are the unscaled fixed-point values that were recorded.
+ * @see Journal#replay(JournalListener)
+ */
+public interface JournalListener {
+
+    /**
+     * Called for a registered user.
+     *
+     * @param sequence the sequence number of the event
+     * @param name the name of the user
+     * @param email the email of the user
+     * @param passwordHash the encoded hash of the password of the user
+     */
+    void onRegister(long sequence, String name, String email, String passwordHash);
+
+    /**
+     * Called for a deposit of fiat money.
+     *
+     * @param sequence the sequence number of the event
+     * @param email the email of the user
+     * @param amount the unscaled amount deposited
+     */
+    void onDeposit(long sequence, String email, long amount);
+
+    /**
+     * Called for a purchase from the exchange.
+     *
+     * @param sequence the sequence number of the event
+     * @param email the email of the buyer
+     * @param symbol the shorthand symbol of the cryptocurrency
+     * @param quantity the unscaled quantity bought
+     * @param cost the unscaled fiat money paid
+     * @param transactionID the ID of the transaction of the purchase
+     * @param epochNanos the time of the transaction, in nanoseconds since the epoch in UTC
+     */
+    void onExchange(long sequence, String email, String symbol, long quantity, long cost, long transactionID, long epochNanos);
+
+    /**
+     * Called for a market order placed in the order book.
+     *
+     * @param sequence the sequence number of the event
+     * @param orderID the ID of the order
+     * @param orderType the type of the order
+     * @param email the email of the user who placed the order
+     * @param symbol the shorthand symbol of the cryptocurrency
+     * @param amount the unscaled amount of the order
+     * @param price the unscaled total price of the order
+     */
+    void onOrder(long sequence, long orderID, OrderType orderType, String email, String symbol, long amount, long price);
+
+    /**
+     * Called for a fill between a buy order and a selling order.
+     *
+     * @param sequence the sequence number of the event
+     * @param buyOrderID the ID of the buy order
+     * @param sellingOrderID the ID of the selling order
+     * @param quantity the unscaled quantity exchanged
+     * @param price the unscaled fiat money paid for the quantity
+     * @param buyTransactionID the ID of the transaction of the buyer
+     * @param sellingTransactionID the ID of the transaction of the seller
+     * @param epochNanos the time of both transactions, in nanoseconds since the epoch in UTC
+     */
+    void onFill(long sequence, long buyOrderID, long sellingOrderID, long quantity, long price,
+                long buyTransactionID, long sellingTransactionID, long epochNanos);
+
+    /**
+     * Called for a resting market order that has been cancelled.
+     *
+     * @param sequence the sequence number of the event
+     * @param orderID the ID of the cancelled order
+     */
+    void onCancel(long sequence, long orderID);
+}
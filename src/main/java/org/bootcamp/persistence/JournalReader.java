@@ -0,0 +1,164 @@
+package org.bootcamp.persistence;
+
+import org.bootcamp.models.OrderType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the events of a single journal stream, segment after segment.<br>
+ * A zero length marks the end of the events of a segment: the writer writes the length of an
+ * event last, so an event that was being written when the process stopped is never read.<br>
+ * The body of every event is checked against its CRC32C before it is read. The first event that
+ * does not match, or does not fit in its segment, is the end of the stream: it was torn by a crash
+ * or damaged on disk, and nothing after it can be trusted.
+ * @see JournalWriter
+ * @see Journal#replay(JournalListener)
+ */
+final class JournalReader {
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+
+    private final List<Path> segments;
+    private final int firstSegmentIndex;
+    private int segment;
+    private MappedByteBuffer buffer;
+    private int position;
+    private JournalEventType type;
+    private long sequence;
+    /**
+     * Whether a damaged event has ended the stream.
+     */
+    private boolean damaged;
+    /**
+     * Checksum of the bodies, reused between events.
+     */
+    private final CRC32C checksum;
+
+    /**
+     * Constructs a reader positioned before the first event of the specified segments.
+     *
+     * @param segments the segment files of the stream, in index order
+     * @param firstSegmentIndex the index of the first segment
+     */
+    JournalReader(List<Path> segments, int firstSegmentIndex) {
+        this.segments = segments;
+        this.firstSegmentIndex = firstSegmentIndex;
+        this.segment = -1;
+        this.checksum = new CRC32C();
+    }
+
+    /**
+     * Moves to the next event and reads its header.
+     *
+     * @return true if there is an event, false if the stream has no more events
+     */
+    boolean next() {
+        while (!damaged) {
+            if (buffer != null && position + JournalWriter.PREFIX_SIZE <= buffer.limit()) {
+                int length = buffer.getInt(position);
+                if (length > 0) {
+                    int body = position + JournalWriter.PREFIX_SIZE;
+                    if (length < JournalWriter.HEADER_SIZE - JournalWriter.PREFIX_SIZE
+                            || length > buffer.limit() - body || !isIntact(body, length)) {
+                        damaged = true;
+                        return false;
+                    }
+                    buffer.position(body);
+                    type = JournalEventType.fromCode(buffer.get());
+                    sequence = buffer.getLong();
+                    buffer.getLong();
+                    position = body + length;
+                    return true;
+                }
+            }
+            if (segment + 1 >= segments.size()) {
+                return false;
+            }
+            buffer = map(segments.get(++segment));
+            position = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Checks the body of the event at the current position against its checksum.
+     *
+     * @param body the position of the body
+     * @param length the length of the body
+     * @return true if the body matches the checksum written with it, false otherwise
+     */
+    private boolean isIntact(int body, int length) {
+        checksum.reset();
+        buffer.position(body).limit(body + length);
+        checksum.update(buffer);
+        buffer.limit(buffer.capacity());
+        return (int) checksum.getValue() == buffer.getInt(position + Integer.BYTES);
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    JournalEventType type() {
+        return type;
+    }
+
+    /**
+     * Returns the index of the segment being read.
+     *
+     * @return the segment index, or the first index if no segment has been read
+     */
+    int segmentIndex() {
+        return firstSegmentIndex + Math.max(segment, 0);
+    }
+
+    /**
+     * Returns the position right after the last event read in the current segment.
+     *
+     * @return the position of the first free byte once the stream has been read to the end
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Decodes the payload of the current event and hands it to the listener.
+     *
+     * @param listener the receiver of the event
+     */
+    void dispatch(JournalListener listener) {
+        switch (type) {
+            case REGISTER -> listener.onRegister(sequence, getString(), getString(), getString());
+            case DEPOSIT -> listener.onDeposit(sequence, getString(), buffer.getLong());
+            case EXCHANGE -> listener.onExchange(sequence, getString(), getString(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), buffer.getLong());
+            case ORDER -> listener.onOrder(sequence, buffer.getLong(), ORDER_TYPES[buffer.get()],
+                    getString(), getString(), buffer.getLong(), buffer.getLong());
+            case FILL -> listener.onFill(sequence, buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                    buffer.getLong(), buffer.getLong(), buffer.getLong());
+            case CANCEL -> listener.onCancel(sequence, buffer.getLong());
+        }
+    }
+
+    private String getString() {
+        char[] chars = new char[buffer.getShort()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+    private static MappedByteBuffer map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map the journal segment " + path, e);
+        }
+    }
+}
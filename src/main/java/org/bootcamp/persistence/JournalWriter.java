@@ -0,0 +1,325 @@
+package org.bootcamp.persistence;
+
+import org.bootcamp.models.Fill;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.Transaction;
+import org.bootcamp.models.TransactionHistory;
+import org.bootcamp.models.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Appends the events of a single journal stream to memory-mapped segment files.<br>
+ * An event is copied into the mapped segment and becomes visible to readers when its length
+ * is written, which is done last; there is no system call on the way unless the fsync policy
+ * forces every event. When a segment is full the writer forces it and moves to the next one.
+ * Appends are synchronized, so a stream can be shared by several threads, but every matching
+ * shard has its own stream to keep the lock uncontended.
+ * <p>
+ * Record layout: the length of the body (int) and the CRC32C of the body (int), followed by the
+ * body: the event type (byte), the sequence number (long), the timestamp in milliseconds (long)
+ * and the payload. Strings are written as their length (short) followed by their chars.
+ * @see Journal
+ * @see JournalReader
+ */
+public final class JournalWriter {
+    /**
+     * Bytes written before the body: the length and the checksum.
+     */
+    static final int PREFIX_SIZE = Integer.BYTES + Integer.BYTES;
+    /**
+     * Bytes written before the payload: the prefix, the type, the sequence and the timestamp.
+     */
+    static final int HEADER_SIZE = PREFIX_SIZE + 1 + Long.BYTES + Long.BYTES;
+
+    private final Journal journal;
+    private final String stream;
+    private final FsyncPolicy fsyncPolicy;
+    private final int segmentSize;
+    /**
+     * Checksum of the bodies, reused between events.
+     */
+    private final CRC32C checksum;
+    /**
+     * The segment being written, null when the journal is disabled.
+     */
+    private volatile Segment segment;
+
+    /**
+     * Constructs a writer that continues a stream from the specified position.
+     *
+     * @param journal the journal that assigns the sequence numbers, or null to build a disabled writer
+     * @param stream the name of the stream
+     * @param segmentIndex the index of the segment to write
+     * @param position the position of the first free byte in the segment
+     */
+    JournalWriter(Journal journal, String stream, int segmentIndex, int position) {
+        this.journal = journal;
+        this.stream = stream;
+        this.checksum = new CRC32C();
+        if (journal == null) {
+            this.fsyncPolicy = FsyncPolicy.PERIODIC;
+            this.segmentSize = 0;
+            return;
+        }
+        this.fsyncPolicy = journal.getFsyncPolicy();
+        this.segmentSize = journal.getSegmentSize();
+        this.segment = map(segmentIndex);
+        this.segment.position = position;
+        this.segment.forced = position;
+    }
+
+    /**
+     * Records the registration of a user, with the hash of the password.
+     *
+     * @param user the registered user
+     */
+    public synchronized void register(User user) {
+        if (segment == null) {
+            return;
+        }
+        String name = user.getName();
+        String email = user.getEmail();
+        String passwordHash = user.getPasswordHash().encode();
+        int start = begin(JournalEventType.REGISTER, sizeOf(name) + sizeOf(email) + sizeOf(passwordHash));
+        putString(name);
+        putString(email);
+        putString(passwordHash);
+        end(start);
+    }
+
+    /**
+     * Records a deposit of fiat money.
+     *
+     * @param user the user that deposits the money
+     * @param amount the unscaled amount deposited
+     */
+    public synchronized void deposit(User user, long amount) {
+        if (segment == null) {
+            return;
+        }
+        String email = user.getEmail();
+        int start = begin(JournalEventType.DEPOSIT, sizeOf(email) + Long.BYTES);
+        putString(email);
+        segment.buffer.putLong(amount);
+        end(start);
+    }
+
+    /**
+     * Records a purchase from the exchange, with the ID and the time of its transaction.
+     *
+     * @param user the buyer
+     * @param transaction the transaction recorded for the purchase
+     */
+    public synchronized void exchange(User user, Transaction transaction) {
+        if (segment == null) {
+            return;
+        }
+        String email = user.getEmail();
+        String symbol = transaction.getCryptoCurrency().getShorthandSymbol();
+        int start = begin(JournalEventType.EXCHANGE, sizeOf(email) + sizeOf(symbol) + 4 * Long.BYTES);
+        putString(email);
+        putString(symbol);
+        segment.buffer.putLong(transaction.getAmount());
+        segment.buffer.putLong(transaction.getPrice());
+        segment.buffer.putLong(transaction.getTransactionID());
+        segment.buffer.putLong(TransactionHistory.toEpochNanos(transaction.getDateTime()));
+        end(start);
+    }
+
+    /**
+     * Records a market order placed in the order book.
+     *
+     * @param order the placed order
+     */
+    public synchronized void order(MarketOrder order) {
+        if (segment == null) {
+            return;
+        }
+        String email = order.getUser().getEmail();
+        String symbol = order.getCryptoCurrency().getShorthandSymbol();
+        int start = begin(JournalEventType.ORDER, Long.BYTES + 1 + sizeOf(email) + sizeOf(symbol) + 2 * Long.BYTES);
+        segment.buffer.putLong(order.getOrderID());
+        segment.buffer.put((byte) order.getOrderType().ordinal());
+        putString(email);
+        putString(symbol);
+        segment.buffer.putLong(order.getAmount());
+        segment.buffer.putLong(order.getPrice());
+        end(start);
+    }
+
+    /**
+     * Records a fill between a buy order and a selling order, with the IDs of the transactions
+     * of the buyer and the seller and their time.
+     *
+     * @param fill the executed fill, with its transactions
+     */
+    public synchronized void fill(Fill fill) {
+        if (segment == null) {
+            return;
+        }
+        int start = begin(JournalEventType.FILL, 7 * Long.BYTES);
+        segment.buffer.putLong(fill.getBuyOrder().getOrderID());
+        segment.buffer.putLong(fill.getSellingOrder().getOrderID());
+        segment.buffer.putLong(fill.getQuantity());
+        segment.buffer.putLong(fill.getPrice());
+        segment.buffer.putLong(fill.getBuyTransaction().getTransactionID());
+        segment.buffer.putLong(fill.getSellingTransaction().getTransactionID());
+        segment.buffer.putLong(TransactionHistory.toEpochNanos(fill.getBuyTransaction().getDateTime()));
+        end(start);
+    }
+
+    /**
+     * Records the cancellation of a resting market order.
+     *
+     * @param order the cancelled order
+     */
+    public synchronized void cancel(MarketOrder order) {
+        if (segment == null) {
+            return;
+        }
+        int start = begin(JournalEventType.CANCEL, Long.BYTES);
+        segment.buffer.putLong(order.getOrderID());
+        end(start);
+    }
+
+    /**
+     * Marks the end of a batch of events, forcing them when the policy is {@link FsyncPolicy#BATCH}.
+     */
+    public void endBatch() {
+        if (fsyncPolicy == FsyncPolicy.BATCH) {
+            force();
+        }
+    }
+
+    /**
+     * Forces the events written so far in the current segment to the storage device.<br>
+     * It does not take the lock of the writer, so appends go on while the device is written.
+     */
+    public void force() {
+        Segment current = segment;
+        if (current != null) {
+            current.force(current.position);
+        }
+    }
+
+    /**
+     * Reserves the space of an event, moving to the next segment if it does not fit,
+     * and writes the body header.
+     *
+     * @param type the type of the event
+     * @param payloadSize the size of the payload in bytes
+     * @return the position of the event in the segment
+     */
+    private int begin(JournalEventType type, int payloadSize) {
+        int recordSize = HEADER_SIZE + payloadSize;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("The event does not fit in a journal segment: " + recordSize + " bytes");
+        }
+        if (segment.position + recordSize > segmentSize) {
+            roll();
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int start = segment.position;
+        buffer.position(start + PREFIX_SIZE);
+        buffer.put(type.code());
+        buffer.putLong(journal.nextSequence());
+        buffer.putLong(System.currentTimeMillis());
+        return start;
+    }
+
+    /**
+     * Writes the checksum of the event, publishes it by writing its length and forces it when the
+     * policy is {@link FsyncPolicy#EVENT}.
+     *
+     * @param start the position of the event in the segment
+     */
+    private void end(int start) {
+        Segment current = segment;
+        MappedByteBuffer buffer = current.buffer;
+        int end = buffer.position();
+        checksum.reset();
+        buffer.position(start + PREFIX_SIZE).limit(end);
+        checksum.update(buffer);
+        buffer.limit(buffer.capacity());
+        buffer.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        buffer.putInt(start, end - start - PREFIX_SIZE);
+        current.position = end;
+        if (fsyncPolicy == FsyncPolicy.EVENT) {
+            current.force(end);
+        }
+    }
+
+    /**
+     * Forces the current segment and maps the next one.
+     */
+    private void roll() {
+        Segment full = segment;
+        full.force(full.position);
+        segment = map(full.index + 1);
+    }
+
+    /**
+     * Maps a segment file of the stream, creating it if needed.
+     *
+     * @param index the index of the segment
+     * @return the mapped segment
+     */
+    private Segment map(int index) {
+        Path path = journal.segmentPath(stream, index);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(index, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map the journal segment " + path, e);
+        }
+    }
+
+    private void putString(String value) {
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putShort((short) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    private static int sizeOf(String value) {
+        if (value.length() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("The value is too long to be journaled");
+        }
+        return Short.BYTES + Character.BYTES * value.length();
+    }
+
+    /**
+     * A mapped segment file with the positions written and forced.
+     */
+    private static final class Segment {
+        private final int index;
+        private final MappedByteBuffer buffer;
+        private volatile int position;
+        private volatile int forced;
+
+        private Segment(int index, MappedByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Forces the bytes between the last forced position and the specified end.
+         *
+         * @param end the end of the range to force
+         */
+        private void force(int end) {
+            int from = forced;
+            if (end > from) {
+                buffer.force(from, end - from);
+                forced = end;
+            }
+        }
+    }
+}
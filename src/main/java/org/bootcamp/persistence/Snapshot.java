@@ -0,0 +1,63 @@
+package org.bootcamp.persistence;
+
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.TransactionAction;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point-in-time image of the state of the platform.<br>
+ * It holds copies of the values, not the live objects, so it can be written to disk while the
+ * services go on changing. The image reflects every journal event with a sequence number lower
+ * than {@link #sequence()}; the events from that number on are replayed over it at startup.
+ * Cryptocurrencies are referenced by their shorthand symbol and users by their email.
+ *
+ * @param sequence the sequence number of the first journal event not included in the image
+ * @param users the registered users
+ * @param inventory the unscaled quantity held by the exchange, indexed by symbol
+ * @param orders the resting orders, book by book, in the order they have to be placed back
+ * @see SnapshotStore
+ */
+public record Snapshot(long sequence, List<UserImage> users, Map<String, Long> inventory, List<OrderImage> orders) {
+
+    /**
+     * Image of a user, its wallet and its transactions.
+     *
+     * @param name the name of the user
+     * @param email the email of the user
+     * @param passwordHash the encoded hash of the password of the user
+     * @param fiatMoney the unscaled fiat money of the wallet
+     * @param holdings the unscaled quantities of the wallet, indexed by symbol
+     * @param transactions the recorded transactions, oldest first
+     */
+    public record UserImage(String name, String email, String passwordHash, long fiatMoney,
+                            Map<String, Long> holdings, List<TransactionImage> transactions) {}
+
+    /**
+     * Image of a recorded transaction.
+     *
+     * @param transactionID the ID of the transaction
+     * @param action the action of the transaction
+     * @param symbol the symbol of the cryptocurrency
+     * @param amount the unscaled amount of cryptocurrency
+     * @param price the unscaled total price
+     * @param epochNanos the creation time, in nanoseconds since the epoch in UTC
+     */
+    public record TransactionImage(long transactionID, TransactionAction action, String symbol, long amount, long price, long epochNanos) {}
+
+    /**
+     * Image of a resting market order.
+     *
+     * @param orderID the ID of the order
+     * @param orderType the type of the order
+     * @param email the email of the user who placed the order
+     * @param symbol the symbol of the cryptocurrency
+     * @param amount the unscaled amount of the order
+     * @param price the unscaled total price of the order
+     * @param remainingAmount the unscaled amount still to be filled
+     * @param remainingPrice the unscaled part of the price still pending
+     */
+    public record OrderImage(long orderID, OrderType orderType, String email, String symbol, long amount, long price,
+                             long remainingAmount, long remainingPrice) {}
+}
@@ -0,0 +1,257 @@
+package org.bootcamp.persistence;
+
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.TransactionAction;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SnapshotStore class writes and reads the snapshots of the platform and follows the singleton pattern.<br>
+ * A snapshot is written in a compact binary format to a temporary file, forced to the storage
+ * device and then renamed, so a snapshot file is always complete; a checksum at the end of the
+ * file detects any damage, and a damaged snapshot is skipped in favour of an older one. Only the
+ * most recent snapshots are kept.<br>
+ * Symbols and emails are written once and referenced by index in the rest of the file.
+ * The store is configured with system properties:
+ * <ul>
+ *   <li>{@value #DIRECTORY_PROPERTY} - directory of the snapshot files (default "data/snapshots")</li>
+ *   <li>{@value #RETAIN_PROPERTY} - number of snapshots kept (default 2)</li>
+ * </ul>
+ * @see Snapshot
+ * @see Journal
+ */
+public final class SnapshotStore {
+    /**
+     * System property with the directory of the snapshot files.
+     */
+    public static final String DIRECTORY_PROPERTY = "snapshot.dir";
+    /**
+     * System property with the number of snapshots kept.
+     */
+    public static final String RETAIN_PROPERTY = "snapshot.retain";
+
+    private static final int MAGIC = 0x43455353;
+    private static final int VERSION = 3;
+    private static final String PREFIX = "snapshot-";
+    private static final String EXTENSION = ".bin";
+    private static final TransactionAction[] ACTIONS = TransactionAction.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final Logger LOGGER = Logger.getLogger(SnapshotStore.class.getName());
+
+    /**
+     * Singleton instance of the SnapshotStore.
+     */
+    private static SnapshotStore instance;
+
+    private final Path directory;
+    private final int retain;
+
+    /**
+     * Private constructor to initialize the SnapshotStore from the system properties.
+     */
+    private SnapshotStore() {
+        directory = Path.of(System.getProperty(DIRECTORY_PROPERTY, "data/snapshots"));
+        retain = Math.max(1, Integer.getInteger(RETAIN_PROPERTY, 2));
+    }
+
+    /**
+     * Returns the singleton instance of the SnapshotStore.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of SnapshotStore
+     */
+    public static synchronized SnapshotStore getInstance() {
+        if (instance == null) {
+            instance = new SnapshotStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Writes a snapshot and deletes the snapshots that are no longer retained.
+     *
+     * @param snapshot the snapshot to write
+     * @return the path of the snapshot file
+     * @throws UncheckedIOException if the snapshot cannot be written
+     */
+    public Path save(Snapshot snapshot) {
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, snapshot.sequence(), EXTENSION));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                encode(snapshot, out);
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            List<Path> snapshots = list();
+            for (int i = retain; i < snapshots.size(); i++) {
+                Files.deleteIfExists(snapshots.get(i));
+            }
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the snapshot " + target, e);
+        }
+    }
+
+    /**
+     * Reads the most recent snapshot that is not damaged.
+     *
+     * @return the snapshot, or null if there is none
+     */
+    public Snapshot loadLatest() {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        for (Path path : list()) {
+            try (InputStream file = Files.newInputStream(path)) {
+                CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 1 << 16), new CRC32());
+                DataInputStream in = new DataInputStream(checked);
+                Snapshot snapshot = decode(in);
+                long checksum = checked.getChecksum().getValue();
+                if (in.readLong() == checksum) {
+                    return snapshot;
+                }
+                LOGGER.warning("Skipping the damaged snapshot " + path);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Skipping the unreadable snapshot " + path, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists the snapshot files.
+     *
+     * @return the snapshot files, the most recent first
+     */
+    private List<Path> list() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String fileName = file.getFileName().toString();
+                return fileName.startsWith(PREFIX) && fileName.endsWith(EXTENSION);
+            }).sorted(Comparator.reverseOrder()).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list the snapshot directory " + directory, e);
+        }
+    }
+
+    private static void encode(Snapshot snapshot, DataOutputStream out) throws IOException {
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        snapshot.inventory().keySet().forEach(symbol -> symbols.putIfAbsent(symbol, symbols.size()));
+        for (Snapshot.UserImage user : snapshot.users()) {
+            user.holdings().keySet().forEach(symbol -> symbols.putIfAbsent(symbol, symbols.size()));
+            user.transactions().forEach(transaction -> symbols.putIfAbsent(transaction.symbol(), symbols.size()));
+        }
+        snapshot.orders().forEach(order -> symbols.putIfAbsent(order.symbol(), symbols.size()));
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(snapshot.sequence());
+        out.writeInt(symbols.size());
+        for (String symbol : symbols.keySet()) {
+            out.writeUTF(symbol);
+        }
+
+        Map<String, Integer> users = new HashMap<>();
+        out.writeInt(snapshot.users().size());
+        for (Snapshot.UserImage user : snapshot.users()) {
+            users.put(user.email(), users.size());
+            out.writeUTF(user.name());
+            out.writeUTF(user.email());
+            out.writeUTF(user.passwordHash());
+            out.writeLong(user.fiatMoney());
+            out.writeInt(user.holdings().size());
+            for (Map.Entry<String, Long> holding : user.holdings().entrySet()) {
+                out.writeInt(symbols.get(holding.getKey()));
+                out.writeLong(holding.getValue());
+            }
+            out.writeInt(user.transactions().size());
+            for (Snapshot.TransactionImage transaction : user.transactions()) {
+                out.writeLong(transaction.transactionID());
+                out.writeByte(transaction.action().ordinal());
+                out.writeInt(symbols.get(transaction.symbol()));
+                out.writeLong(transaction.amount());
+                out.writeLong(transaction.price());
+                out.writeLong(transaction.epochNanos());
+            }
+        }
+
+        out.writeInt(snapshot.inventory().size());
+        for (Map.Entry<String, Long> entry : snapshot.inventory().entrySet()) {
+            out.writeInt(symbols.get(entry.getKey()));
+            out.writeLong(entry.getValue());
+        }
+
+        out.writeInt(snapshot.orders().size());
+        for (Snapshot.OrderImage order : snapshot.orders()) {
+            out.writeLong(order.orderID());
+            out.writeByte(order.orderType().ordinal());
+            out.writeInt(users.get(order.email()));
+            out.writeInt(symbols.get(order.symbol()));
+            out.writeLong(order.amount());
+            out.writeLong(order.price());
+            out.writeLong(order.remainingAmount());
+            out.writeLong(order.remainingPrice());
+        }
+    }
+
+    private static Snapshot decode(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a snapshot file");
+        }
+        long sequence = in.readLong();
+        String[] symbols = new String[in.readInt()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = in.readUTF();
+        }
+
+        int userCount = in.readInt();
+        List<Snapshot.UserImage> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            String name = in.readUTF();
+            String email = in.readUTF();
+            String passwordHash = in.readUTF();
+            long fiatMoney = in.readLong();
+            int holdingCount = in.readInt();
+            Map<String, Long> holdings = new LinkedHashMap<>();
+            for (int j = 0; j < holdingCount; j++) {
+                holdings.put(symbols[in.readInt()], in.readLong());
+            }
+            int transactionCount = in.readInt();
+            List<Snapshot.TransactionImage> transactions = new ArrayList<>(transactionCount);
+            for (int j = 0; j < transactionCount; j++) {
+                transactions.add(new Snapshot.TransactionImage(in.readLong(), ACTIONS[in.readByte()], symbols[in.readInt()],
+                        in.readLong(), in.readLong(), in.readLong()));
+            }
+            users.add(new Snapshot.UserImage(name, email, passwordHash, fiatMoney, holdings, transactions));
+        }
+
+        int inventoryCount = in.readInt();
+        Map<String, Long> inventory = new LinkedHashMap<>();
+        for (int i = 0; i < inventoryCount; i++) {
+            inventory.put(symbols[in.readInt()], in.readLong());
+        }
+
+        int orderCount = in.readInt();
+        List<Snapshot.OrderImage> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            orders.add(new Snapshot.OrderImage(in.readLong(), ORDER_TYPES[in.readByte()], users.get(in.readInt()).email(),
+                    symbols[in.readInt()], in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+        }
+        return new Snapshot(sequence, users, inventory, orders);
+    }
+}
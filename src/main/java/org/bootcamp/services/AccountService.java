@@ -1,35 +1,76 @@
 package org.bootcamp.services;
 
+import org.bootcamp.metrics.LatencyRecorder;
+import org.bootcamp.metrics.ServiceMetrics;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.PasswordHash;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.SnapshotEpoch;
 import org.bootcamp.models.User;
+import org.bootcamp.models.Wallet;
+import org.bootcamp.persistence.Journal;
+import org.bootcamp.persistence.JournalWriter;
+import org.bootcamp.persistence.Snapshot;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The AccountService class provides functionalities to manage user accounts.
- * It supports user registration, login, and logout operations, and maintains a list of registered users.
- * This class follows the singleton pattern to ensure only one instance is used throughout the application.
+ * It supports user registration, login, and logout operations, and keeps the registered users indexed by email,
+ * so registering and logging in take constant time whatever the number of accounts.<br>
+ * Every login opens a {@link Session} identified by a random token. The open sessions are kept in a
+ * concurrent map, so any number of users can be logged in and use the services at the same time from
+ * different threads; the service calls made on behalf of a user carry the session of that user.
+ * This class follows the singleton pattern to ensure only one instance is used throughout the application.<br>
+ * Registrations and deposits are recorded in the "accounts" journal stream, which is shared with
+ * the purchases from the exchange.
+ * @see Journal
  */
 public class AccountService {
     /**
-     * A list of registered users.
+     * Name of the journal stream of the account and exchange events.
      */
-    private final List<User> users;
+    static final String JOURNAL_STREAM = "accounts";
+
+    /**
+     * The registered users, indexed by email.
+     */
+    private final Map<String, User> users;
     /**
      * Singleton instance of the AccountService class.
      */
     private static AccountService instance;
     /**
-     * The currently logged-in user.
+     * The open sessions, indexed by token.
+     */
+    private final Map<String, Session> sessions;
+    /**
+     * Journal stream where the account events are recorded.
+     */
+    private final JournalWriter journal;
+    /**
+     * Gate that lets the snapshots see the accounts at a single point in time.
      */
-    private User user;
+    private final CheckpointGate gate;
+    /**
+     * Latency of the logins.
+     */
+    private final LatencyRecorder loginLatency;
 
     /**
      * Private constructor to initialize the AccountService.
-     * Initializes the list of users.
+     * Initializes the index of users.
      */
     private AccountService() {
-        this.users = new ArrayList<>();
+        this.users = new ConcurrentHashMap<>();
+        this.sessions = new ConcurrentHashMap<>();
+        this.journal = Journal.getInstance().writer(JOURNAL_STREAM);
+        this.gate = CheckpointGate.getInstance();
+        this.loginLatency = ServiceMetrics.getInstance().getLogin();
     }
 
     /**
@@ -46,57 +87,184 @@ public class AccountService {
     }
 
     /**
-     * Returns the currently logged-in user.
+     * Returns the open session with the specified token.
+     *
+     * @param token the token of the session
+     * @return the session
+     * @throws AccountServiceException if there is no open session with that token
+     */
+    public Session getSession(String token) throws AccountServiceException {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            throw new AccountServiceException("Session not found");
+        }
+        return session;
+    }
+
+    /**
+     * Checks that a session is still open and returns its user.
      *
-     * @return the current user
+     * @param session the session of the user
+     * @return the user of the session
+     * @throws AccountServiceException if the session has been closed
      */
-    public User getCurrentUser() {
-        return user;
+    public User authenticate(Session session) throws AccountServiceException {
+        if (session == null || sessions.get(session.getToken()) != session) {
+            throw new AccountServiceException("Session expired, please log in again");
+        }
+        return session.getUser();
     }
 
     /**
-     * Registers a new user with the specified name, email, and password.
+     * Registers a new user with the specified name, email, and password, and logs the user in.<br>
+     * The password is hashed before the state of the service is entered, so a snapshot never waits
+     * for it, and only its hash is recorded. The registration is its own batch of the journal, so the batch fsync policy forces it
+     * before the session is returned.
      *
      * @param name the name of the user
      * @param email the email of the user
      * @param password the password of the user
-     * @return the newly registered user
+     * @return the session of the newly registered user
      * @throws AccountServiceException if the email is already in use
      */
-    public User registerUser(String name, String email, String password) throws AccountServiceException {
-        for (User user : users) {
-            if (user.getEmail().equals(email)){
+    public Session registerUser(String name, String email, String password) throws AccountServiceException {
+        PasswordHash passwordHash = PasswordHash.of(password);
+        Session session;
+        gate.enter();
+        try {
+            if (users.containsKey(email)) {
                 throw new AccountServiceException("Este correo se encuentra en uso");
             }
+            User newUser = new User(name, email, passwordHash);
+            if (users.putIfAbsent(email, newUser) != null) {
+                throw new AccountServiceException("Este correo se encuentra en uso");
+            }
+            journal.register(newUser);
+            session = openSession(newUser);
+        } finally {
+            gate.exit();
+        }
+        journal.endBatch();
+        return session;
+    }
+
+    /**
+     * Deposits fiat money in the wallet of a user and records the deposit, as its own batch of the journal.<br>
+     * The deposit is recorded before the money is credited, so an order that reserves the money
+     * always takes a later journal sequence and is replayed after the deposit.
+     *
+     * @param session the session of the user that deposits the money
+     * @param amount the unscaled amount of fiat money to deposit
+     * @throws AccountServiceException if the session has been closed
+     */
+    public void deposit(Session session, long amount) throws AccountServiceException {
+        User user = authenticate(session);
+        gate.enter();
+        try {
+            journal.deposit(user, amount);
+            user.depositFiatMoney(amount);
+        } finally {
+            gate.exit();
+        }
+        journal.endBatch();
+    }
+
+    /**
+     * Registers a user restored from the journal, without recording it again.
+     *
+     * @param name the name of the user
+     * @param email the email of the user
+     * @param passwordHash the encoded hash of the password of the user
+     * @return the restored user
+     */
+    User restoreUser(String name, String email, String passwordHash) {
+        User restored = new User(name, email, PasswordHash.parse(passwordHash));
+        users.put(email, restored);
+        return restored;
+    }
+
+    /**
+     * Copies the users, their wallets and their transactions as they were at the cut of a snapshot.<br>
+     * Called after the cut, while the operations and the matching shards go on: the users created
+     * since are left out, and the wallets and histories give back their state at the cut.
+     *
+     * @param epoch the snapshot epoch started by the cut
+     * @return the images of the users
+     * @see SnapshotEpoch
+     */
+    List<Snapshot.UserImage> captureUsers(long epoch) {
+        List<Snapshot.UserImage> images = new ArrayList<>(users.size());
+        for (User registered : users.values()) {
+            if (registered.getCreatedEpoch() >= epoch) {
+                continue;
+            }
+            Wallet wallet = registered.getWallet().imageAt(epoch);
+            Map<String, Long> holdings = new LinkedHashMap<>();
+            for (CryptoCurrency cryptoCurrency : wallet.getHeldCryptoCurrencies()) {
+                holdings.put(cryptoCurrency.getShorthandSymbol(), wallet.getCryptoCurrencyQuantity(cryptoCurrency));
+            }
+            List<Snapshot.TransactionImage> transactions = new ArrayList<>();
+            registered.getTransactionHistory().forEachAt(epoch, (transactionID, action, cryptoCurrency, amount, price, epochNanos) ->
+                    transactions.add(new Snapshot.TransactionImage(transactionID, action, cryptoCurrency.getShorthandSymbol(), amount, price, epochNanos)));
+            images.add(new Snapshot.UserImage(registered.getName(), registered.getEmail(), registered.getPasswordHash().encode(),
+                    wallet.getFiatMoney(), holdings, transactions));
         }
-        User newUser = new User(name, email, password);
-        users.add(newUser);
-        user = newUser;
-        return user;
+        return images;
     }
 
     /**
-     * Logs in a user with the specified email and password.
+     * Finds a registered user by email.
+     *
+     * @param email the email of the user
+     * @return the user, or null if there is no user with that email
+     */
+    User findUser(String email) {
+        return users.get(email);
+    }
+
+    /**
+     * Logs in a user with the specified email and password.<br>
+     * The user is looked up by email in the index and then the password is checked against
+     * the hash of the user, without building any throwaway user.
      *
      * @param email the email of the user
      * @param password the password of the user
-     * @return the logged-in user
+     * @return the session of the logged-in user
      * @throws AccountServiceException if the user is not found
      */
-    public User login(String email, String password) throws AccountServiceException {
-        int index = users.indexOf(new User("temp", email, password));
-        if (index >= 0) {
-            user = users.get(index);
-            return user;
+    public Session login(String email, String password) throws AccountServiceException {
+        long start = System.nanoTime();
+        try {
+            User registered = users.get(email);
+            if (registered != null && registered.checkPassword(password)) {
+                return openSession(registered);
+            }
+            throw new AccountServiceException("User not found");
+        } finally {
+            loginLatency.recordSince(start);
         }
-        throw new AccountServiceException("User not found");
     }
 
     /**
-     * Logs out the current user.
+     * Logs out a user by closing the session.
+     *
+     * @param session the session to close
      */
-    public void logout() {
-        user = null;
+    public void logout(Session session) {
+        if (session != null) {
+            sessions.remove(session.getToken(), session);
+        }
     }
 
+    /**
+     * Opens a new session for a user.
+     *
+     * @param user the user that logs in
+     * @return the open session
+     */
+    private Session openSession(User user) {
+        Session session = new Session(user);
+        sessions.put(session.getToken(), session);
+        return session;
+    }
 }
@@ -0,0 +1,37 @@
+package org.bootcamp.services;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wait strategy that parks the consumer thread until a producer publishes a command.<br>
+ * It uses the least CPU at the cost of the wake-up latency. Producers only unpark the
+ * consumer when it is actually waiting, without taking any lock.
+ * @see WaitStrategy
+ */
+public final class BlockingWaitStrategy implements WaitStrategy {
+    /**
+     * The consumer thread while it is parked, null otherwise.
+     */
+    private volatile Thread waiter;
+
+    @Override
+    public void await(BooleanSupplier condition) {
+        if (condition.getAsBoolean()) {
+            return;
+        }
+        waiter = Thread.currentThread();
+        while (!condition.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+            LockSupport.park(this);
+        }
+        waiter = null;
+    }
+
+    @Override
+    public void signal() {
+        Thread parked = waiter;
+        if (parked != null) {
+            LockSupport.unpark(parked);
+        }
+    }
+}
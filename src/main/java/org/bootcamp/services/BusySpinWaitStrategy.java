@@ -0,0 +1,23 @@
+package org.bootcamp.services;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wait strategy that keeps checking the condition without giving the CPU away.<br>
+ * It has the lowest latency and uses a whole core per consumer, so it is only suitable
+ * when there are as many free cores as matching shards.
+ * @see WaitStrategy
+ */
+public final class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void await(BooleanSupplier condition) {
+        while (!condition.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void signal() {
+    }
+}
@@ -0,0 +1,133 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.Candle;
+import org.bootcamp.models.CandleResolution;
+import org.bootcamp.models.CryptoCurrency;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The candles of a cryptocurrency at one resolution, updated on every tick and fill.<br>
+ * The candles are stored column by column in preallocated arrays used as a ring: the slot of a
+ * candle is given by its opening time, so updating the current candle and finding the candles of
+ * a time range are direct lookups. When the ring wraps around, a new candle overwrites the one
+ * that opened {@link CandleResolution#getCapacity()} spans before.<br>
+ * It is not thread-safe; the owning {@link InstrumentHistory} serializes the access.
+ * @see CandleResolution
+ */
+final class CandleSeries {
+    /**
+     * Opening time stored in the slots that have never held a candle.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final CandleResolution resolution;
+    private final long[] openTimes;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final long[] volumes;
+    private final long[] turnovers;
+
+    /**
+     * Constructs an empty series.
+     *
+     * @param resolution the time span of the candles
+     */
+    CandleSeries(CandleResolution resolution) {
+        this.resolution = resolution;
+        int capacity = resolution.getCapacity();
+        openTimes = new long[capacity];
+        opens = new long[capacity];
+        highs = new long[capacity];
+        lows = new long[capacity];
+        closes = new long[capacity];
+        volumes = new long[capacity];
+        turnovers = new long[capacity];
+        Arrays.fill(openTimes, EMPTY);
+    }
+
+    /**
+     * Applies a price to the candle that contains its time.
+     *
+     * @param timestamp the time of the price, in milliseconds since the epoch
+     * @param price the unscaled price
+     */
+    void price(long timestamp, long price) {
+        int slot = open(timestamp, price);
+        if (slot >= 0) {
+            highs[slot] = Math.max(highs[slot], price);
+            lows[slot] = Math.min(lows[slot], price);
+            closes[slot] = price;
+        }
+    }
+
+    /**
+     * Adds a traded quantity to the candle that contains its time.
+     *
+     * @param timestamp the time of the trade, in milliseconds since the epoch
+     * @param lastPrice the unscaled last known price, used to open the candle if it has no price yet
+     * @param quantity the unscaled quantity traded
+     * @param turnover the unscaled fiat money paid
+     */
+    void trade(long timestamp, long lastPrice, long quantity, long turnover) {
+        int slot = open(timestamp, lastPrice);
+        if (slot >= 0) {
+            volumes[slot] += quantity;
+            turnovers[slot] += turnover;
+        }
+    }
+
+    /**
+     * Finds the slot of the candle that contains a point in time, opening the candle if needed.
+     *
+     * @param timestamp the point in time, in milliseconds since the epoch
+     * @param price the unscaled price that opens a new candle
+     * @return the slot of the candle, or -1 if the candle has already been overwritten
+     */
+    private int open(long timestamp, long price) {
+        long openTime = resolution.openTime(timestamp);
+        int slot = slot(openTime);
+        if (openTimes[slot] != openTime) {
+            if (openTimes[slot] > openTime) {
+                return -1;
+            }
+            openTimes[slot] = openTime;
+            opens[slot] = price;
+            highs[slot] = price;
+            lows[slot] = price;
+            closes[slot] = price;
+            volumes[slot] = 0;
+            turnovers[slot] = 0;
+        }
+        return slot;
+    }
+
+    private int slot(long openTime) {
+        return (int) Math.floorMod(Math.floorDiv(openTime, resolution.getMillis()), (long) openTimes.length);
+    }
+
+    /**
+     * Copies the candles that opened within a time range, oldest first.<br>
+     * Spans without any tick or fill have no candle.
+     *
+     * @param cryptoCurrency the cryptocurrency of the series
+     * @param from the start of the range, in milliseconds since the epoch, inclusive
+     * @param to the end of the range, in milliseconds since the epoch, inclusive
+     * @param candles the list the candles are added to
+     */
+    void range(CryptoCurrency cryptoCurrency, long from, long to, List<Candle> candles) {
+        long millis = resolution.getMillis();
+        long last = resolution.openTime(to);
+        long first = Math.max(resolution.openTime(from), last - (openTimes.length - 1) * millis);
+        for (long openTime = first; openTime <= last; openTime += millis) {
+            int slot = slot(openTime);
+            if (openTimes[slot] == openTime) {
+                candles.add(new Candle(cryptoCurrency, resolution, openTime, opens[slot], highs[slot], lows[slot],
+                        closes[slot], volumes[slot], turnovers[slot]));
+            }
+        }
+    }
+}
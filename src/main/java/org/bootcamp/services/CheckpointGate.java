@@ -0,0 +1,68 @@
+package org.bootcamp.services;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The CheckpointGate class lets the snapshots see the state of the services at a single point in time.<br>
+ * Every operation that changes the state outside the matching shards and records a journal event
+ * passes through the gate, and any number of them can pass at once. A snapshot closes the gate,
+ * which waits for the operations in progress and holds back the new ones until it is opened again.
+ * The matching shards do not use the gate; they are paused with a barrier instead.
+ * @see SnapshotService
+ * @see SnapshotBarrier
+ */
+final class CheckpointGate {
+    /**
+     * Singleton instance of the CheckpointGate.
+     */
+    private static CheckpointGate instance;
+
+    /**
+     * Shared by the operations and exclusive for the snapshots.
+     */
+    private final ReentrantReadWriteLock lock;
+
+    private CheckpointGate() {
+        lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Returns the singleton instance of the CheckpointGate.
+     *
+     * @return the singleton instance of CheckpointGate
+     */
+    static synchronized CheckpointGate getInstance() {
+        if (instance == null) {
+            instance = new CheckpointGate();
+        }
+        return instance;
+    }
+
+    /**
+     * Called before an operation changes the state, waiting while a snapshot is being taken.
+     */
+    void enter() {
+        lock.readLock().lock();
+    }
+
+    /**
+     * Called after an operation has changed the state and recorded its event.
+     */
+    void exit() {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Waits for the operations in progress and holds back the new ones.
+     */
+    void close() {
+        lock.writeLock().lock();
+    }
+
+    /**
+     * Lets the operations go on after a snapshot.
+     */
+    void open() {
+        lock.writeLock().unlock();
+    }
+}
@@ -1,24 +1,90 @@
 package org.bootcamp.services;
 
+import org.bootcamp.metrics.LatencyRecorder;
+import org.bootcamp.metrics.ServiceMetrics;
 import org.bootcamp.models.*;
+import org.bootcamp.persistence.Journal;
+import org.bootcamp.persistence.JournalWriter;
 import org.bootcamp.views.ExchangeServiceSubscriber;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The ExchangeService class provides functionalities to manage and trade cryptocurrencies.<br>
  * It maintains a list of available cryptocurrencies, allows users to subscribe for updates,
- * and simulates the fluctuation of cryptocurrency values.
+ * and simulates the fluctuation of cryptocurrency values.<br>
+ * Every fluctuation builds one immutable list of ticks, which is handed to all the subscribers
+ * through the {@link MarketDataPublisher}; the fluctuation thread never waits for them.<br>
+ * Purchases from the exchange are recorded in the journal stream of the accounts.<br>
+ * The cryptocurrencies listed at startup are read from the {@link InstrumentCatalogue}, and more can
+ * be listed or delisted while the exchange runs. Wallets are indexed by the ordinals of the
+ * cryptocurrencies and only grow when they receive a new one, so listing a cryptocurrency costs
+ * nothing to the users, and delisting one never visits their wallets: the users keep their holdings
+ * and their resting orders stay in the market until they are cancelled, but no new purchases or
+ * orders are accepted and the value stops moving. Runtime listings are not journaled, so the
+ * catalogue is read again after a restart.<br>
+ * The values of the cryptocurrencies are moved by a {@link PriceSimulator} at a fixed tick, and
+ * are configured with system properties:
+ * <ul>
+ *   <li>{@value #PRICE_MODEL_PROPERTY} - model of the values, "gbm" or "mean-reversion" (default "mean-reversion")</li>
+ *   <li>{@value #TICK_MILLIS_PROPERTY} - milliseconds between two updates of the values, at least 1 (default 5000)</li>
+ *   <li>{@value #SEED_PROPERTY} - seed of the random generators of the values (default random)</li>
+ *   <li>{@value InstrumentCatalogue#FILE_PROPERTY} - file of the catalogue (default the bundled catalogue)</li>
+ *   <li>{@value PriceModel#VOLATILITY_PROPERTY}, {@value GeometricBrownianMotionModel#DRIFT_PROPERTY} and
+ *   {@value MeanReversionModel#SPEED_PROPERTY} - parameters of the models</li>
+ * </ul>
+ * @see Journal
+ * @see PriceModel
+ * @see InstrumentCatalogue
  */
 public class ExchangeService {
     /**
-     * A map storing the available cryptocurrencies and their corresponding values.
+     * System property with the name of the price model.
      */
-    private final Map<CryptoCurrency, BigDecimal> cryptoCurrencies;
+    public static final String PRICE_MODEL_PROPERTY = "exchange.priceModel";
+    /**
+     * System property with the milliseconds between two updates of the values.
+     */
+    public static final String TICK_MILLIS_PROPERTY = "exchange.tickMillis";
+    /**
+     * System property with the seed of the random generators of the values.
+     */
+    public static final String SEED_PROPERTY = "exchange.seed";
+
+    /**
+     * A map storing the available cryptocurrencies and the unscaled quantity the exchange holds of each one.
+     */
+    private final Map<CryptoCurrency, AtomicLong> cryptoCurrencies;
+
+    /**
+     * The available cryptocurrencies, indexed by shorthand symbol.
+     */
+    private final Map<String, CryptoCurrency> bySymbol;
+
+    /**
+     * The available cryptocurrencies, in an array the price simulator can split, replaced on every
+     * listing and delisting.
+     */
+    private volatile CryptoCurrency[] instruments;
+
+    /**
+     * Simulator of the values of the cryptocurrencies.
+     */
+    private final PriceSimulator priceSimulator;
+
+    /**
+     * Milliseconds between two updates of the values.
+     */
+    private final long tickMillis;
 
     /**
      * Singleton instance of the ExchangeService class.
@@ -26,36 +92,87 @@ public class ExchangeService {
     private static ExchangeService instance;
 
     /**
-     * A list of subscribers to the exchange service.
+     * Publisher of the price updates to the subscribers of the exchange service.
+     */
+    private final MarketDataPublisher marketData;
+
+    /**
+     * Ticks of the latest price update.
+     */
+    private volatile List<Tick> ticks;
+
+    /**
+     * History where the ticks are recorded.
+     */
+    private final MarketHistoryService history;
+
+    /**
+     * Journal stream where the purchases are recorded.
+     */
+    private final JournalWriter journal;
+
+    /**
+     * Gate that lets the snapshots see the inventory at a single point in time.
+     */
+    private final CheckpointGate gate;
+
+    /**
+     * Transfer reused by each thread that buys from the exchange.
+     */
+    private final ThreadLocal<Transfer> transfers;
+
+    /**
+     * Latency of the purchases from the exchange.
      */
-    private final List<ExchangeServiceSubscriber> exchangeServiceSubscribers;
+    private final LatencyRecorder purchaseLatency;
+
+    /**
+     * Latency of the publication of the price updates.
+     */
+    private final LatencyRecorder tickNotifyLatency;
 
     /**
      * Private constructor to initialize the ExchangeService.<br>
-     * Initializes the cryptocurrency map with predefined values and sets up a scheduled task
-     * to fluctuate cryptocurrency values at fixed intervals.
+     * Lists the cryptocurrencies of the catalogue and sets up a scheduled task
+     * to fluctuate cryptocurrency values at the configured tick.
      */
     private ExchangeService() {
-        cryptoCurrencies = new HashMap<>();
-        CryptoCurrency bitcoin = new CryptoCurrency("Bitcoin", "BTC", new BigDecimal(50000));
-        CryptoCurrency ethereum = new CryptoCurrency("Ethereum", "ETH", new BigDecimal(3000));
-        cryptoCurrencies.put(bitcoin, new BigDecimal(100));
-        cryptoCurrencies.put(ethereum, new BigDecimal(500));
-        exchangeServiceSubscribers = new ArrayList<>();
+        cryptoCurrencies = new ConcurrentHashMap<>();
+        bySymbol = new ConcurrentHashMap<>();
+        for (InstrumentCatalogue.Listing listing : InstrumentCatalogue.load()) {
+            list(listing);
+        }
+        instruments = cryptoCurrencies.keySet().toArray(new CryptoCurrency[0]);
+        long seed = Long.getLong(SEED_PROPERTY, new SplittableRandom().nextLong());
+        priceSimulator = new PriceSimulator(PriceModel.create(System.getProperty(PRICE_MODEL_PROPERTY, "mean-reversion")), seed);
+        tickMillis = Math.max(1, Long.getLong(TICK_MILLIS_PROPERTY, 5000));
+        marketData = new MarketDataPublisher(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "market-data");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        ticks = List.of();
+        history = MarketHistoryService.getInstance();
+        journal = Journal.getInstance().writer(AccountService.JOURNAL_STREAM);
+        gate = CheckpointGate.getInstance();
+        transfers = ThreadLocal.withInitial(Transfer::new);
+        purchaseLatency = ServiceMetrics.getInstance().getPurchase();
+        tickNotifyLatency = ServiceMetrics.getInstance().getTickNotify();
         ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
 
         Runnable tarea = this::fluctuateCryptoCurrencyValues;
 
-        executor.scheduleAtFixedRate(tarea, 5, 5, TimeUnit.SECONDS);
+        executor.scheduleAtFixedRate(tarea, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Subscribes a new subscriber to the exchange service.
+     * Subscribes a new subscriber to the exchange service.<br>
+     * The subscriber is held weakly, so it stops receiving updates once it is no longer used.
      *
      * @param exchangeServiceSubscriber the subscriber to be added
      */
     public void subscribe(ExchangeServiceSubscriber exchangeServiceSubscriber) {
-        exchangeServiceSubscribers.add(exchangeServiceSubscriber);
+        marketData.subscribe(exchangeServiceSubscriber);
     }
 
     /**
@@ -64,14 +181,44 @@ public class ExchangeService {
      * @param exchangeServiceSubscriber the subscriber to be removed
      */
     public void unSubscribe(ExchangeServiceSubscriber exchangeServiceSubscriber) {
-        exchangeServiceSubscribers.remove(exchangeServiceSubscriber);
+        marketData.unsubscribe(exchangeServiceSubscriber);
     }
 
     /**
-     * Notifies all subscribers with the current list of cryptocurrencies.
+     * Returns the publisher of the price updates, for subscribers that manage their own demand.
+     *
+     * @return the publisher of the ticks
+     */
+    public Flow.Publisher<Tick> getMarketData() {
+        return marketData;
+    }
+
+    /**
+     * Returns the ticks of the latest price update.
+     *
+     * @return an immutable list with a tick per cryptocurrency, empty before the first update
+     */
+    public List<Tick> getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Notifies all subscribers with the current values of the cryptocurrencies.<br>
+     * The ticks are built once, recorded in the market history and shared by every subscriber.
+     * @see MarketHistoryService
      */
     public void notifySubscribers() {
-        exchangeServiceSubscribers.forEach(exchangeServiceSubscriber -> exchangeServiceSubscriber.update(cryptoCurrencies.keySet().stream().toList()));
+        long start = System.nanoTime();
+        long timestamp = System.currentTimeMillis();
+        CryptoCurrency[] instruments = this.instruments;
+        List<Tick> update = new ArrayList<>(instruments.length);
+        for (CryptoCurrency cryptoCurrency : instruments) {
+            update.add(new Tick(cryptoCurrency, cryptoCurrency.getOriginalValue(), cryptoCurrency.getCurrentValue(), timestamp));
+        }
+        ticks = Collections.unmodifiableList(update);
+        history.recordTicks(ticks);
+        marketData.publish(ticks);
+        tickNotifyLatency.recordSince(start);
     }
 
     /**
@@ -88,67 +235,243 @@ public class ExchangeService {
     }
 
     /**
-     * Returns an unmodifiable view of the available cryptocurrencies and their corresponding values.
+     * Returns an unmodifiable view of the available cryptocurrencies.
+     *
+     * @return an unmodifiable set of available cryptocurrencies
+     */
+    public Set<CryptoCurrency> getAvailableCryptoCurrencies() {
+        return Collections.unmodifiableSet(cryptoCurrencies.keySet());
+    }
+
+    /**
+     * Returns whether the exchange currently lists a cryptocurrency.
      *
-     * @return an unmodifiable map of available cryptocurrencies
+     * @param cryptoCurrency the cryptocurrency to check
+     * @return true if the cryptocurrency can be bought and traded
      */
-    public Map<CryptoCurrency, BigDecimal> getAvailableCryptoCurrencies() {
-        return Collections.unmodifiableMap(cryptoCurrencies);
+    public boolean isListed(CryptoCurrency cryptoCurrency) {
+        return cryptoCurrencies.containsKey(cryptoCurrency);
     }
 
     /**
-     * Facilitates the purchase of a specified quantity of cryptocurrency from the exchange by a user.
+     * Returns the quantity of a cryptocurrency that the exchange can still sell.
      *
-     * @param user the user making the purchase
+     * @param cryptoCurrency the cryptocurrency to check
+     * @return the unscaled quantity, with the quantity scale of the cryptocurrency, or 0 if it is not listed
+     */
+    public long getAvailableQuantity(CryptoCurrency cryptoCurrency) {
+        AtomicLong quantity = cryptoCurrencies.get(cryptoCurrency);
+        return quantity == null ? 0 : quantity.get();
+    }
+
+    /**
+     * Lists a cryptocurrency, which can be bought and traded from then on.<br>
+     * A symbol that was listed before gets back its previous cryptocurrency, with its scales and
+     * its last value, because the wallets and the orders keep its quantities in its quantity
+     * scale; the name, price and scales of the listing only apply to new symbols.
+     *
+     * @param listing the cryptocurrency of the catalogue, with the inventory of the exchange
+     * @return the listed cryptocurrency
+     * @throws CryptoCurrencyException if the symbol is already listed
+     * @throws IllegalArgumentException if the tick size is not valid for the price scale
+     */
+    public synchronized CryptoCurrency listCryptoCurrency(InstrumentCatalogue.Listing listing) throws CryptoCurrencyException {
+        if (bySymbol.containsKey(listing.symbol())) {
+            throw new CryptoCurrencyException(listing.symbol() + " is already listed.");
+        }
+        CryptoCurrency cryptoCurrency = list(listing);
+        instruments = cryptoCurrencies.keySet().toArray(new CryptoCurrency[0]);
+        return cryptoCurrency;
+    }
+
+    /**
+     * Adds a cryptocurrency to the maps, reusing the registered cryptocurrency of its symbol.
+     */
+    private CryptoCurrency list(InstrumentCatalogue.Listing listing) {
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        CryptoCurrency cryptoCurrency = registry.get(registry.ordinalOf(listing.symbol()));
+        if (cryptoCurrency == null) {
+            try {
+                cryptoCurrency = new CryptoCurrency(listing.name(), listing.symbol(), listing.price(),
+                        listing.quantityScale(), listing.priceScale(), listing.tickSize());
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("The tick size of " + listing.symbol() + " has more decimals than its prices", e);
+            }
+        }
+        cryptoCurrencies.put(cryptoCurrency, new AtomicLong(cryptoCurrency.toQuantity(listing.inventory())));
+        bySymbol.put(cryptoCurrency.getShorthandSymbol(), cryptoCurrency);
+        return cryptoCurrency;
+    }
+
+    /**
+     * Delists a cryptocurrency, which can no longer be bought or traded.<br>
+     * The wallets are not visited: the users keep their holdings, and the resting orders stay in
+     * the market until they are cancelled. The inventory of the exchange is dropped.
+     *
+     * @param symbol the shorthand symbol of the cryptocurrency
+     * @return true if the cryptocurrency was delisted, or false if it was not listed
+     */
+    public synchronized boolean delistCryptoCurrency(String symbol) {
+        gate.enter();
+        try {
+            CryptoCurrency cryptoCurrency = bySymbol.remove(symbol);
+            if (cryptoCurrency == null) {
+                return false;
+            }
+            cryptoCurrencies.remove(cryptoCurrency);
+            instruments = cryptoCurrencies.keySet().toArray(new CryptoCurrency[0]);
+            return true;
+        } finally {
+            gate.exit();
+        }
+    }
+
+    /**
+     * Facilitates the purchase of a specified quantity of cryptocurrency from the exchange by a user.<br>
+     * The cost is the quantity at the current value of the cryptocurrency, rounded up to the fiat scale.
+     * The inventory of the exchange and the fiat money of the user are debited by a single {@link Transfer},
+     * so concurrent purchases can neither oversell the inventory nor overdraw the wallet. The purchase
+     * is recorded before the cryptocurrency is credited, so an order that sells it always takes a
+     * later journal sequence and is replayed after the purchase; if it cannot be recorded, the
+     * debits are given back. The purchase is its own batch of the journal, so the batch fsync policy
+     * forces it before the method returns.
+     *
+     * @param session the session of the user making the purchase
      * @param cryptoCurrency the cryptocurrency to be purchased
-     * @param quantity the quantity of cryptocurrency to be purchased
-     * @throws CryptoCurrencyException if the exchange does not have enough of the specified cryptocurrency
-     * @throws AccountServiceException if the user does not have enough funds to complete the transaction
-     */
-    public void buyFromExchange(User user, CryptoCurrency cryptoCurrency, BigDecimal quantity) throws CryptoCurrencyException, AccountServiceException {
-        if (cryptoCurrencies.get(cryptoCurrency).compareTo(quantity) >= 0) {
-            BigDecimal currentCryptoValue = cryptoCurrency.getCurrentValue();
-            boolean success = user.getWallet().subtractFiatMoney(currentCryptoValue.multiply(quantity));
-            if (success) {
-                user.getWallet().rechargeCryptoCurrency(cryptoCurrency, quantity);
-                subtractCryptoCurrency(cryptoCurrency, quantity);
-                Transaction transaction = new Transaction(TransactionAction.EXCHANGE, cryptoCurrency, quantity, currentCryptoValue.multiply(quantity));
-                user.recordTransaction(transaction);
-            } else {
+     * @param quantity the unscaled quantity of cryptocurrency to be purchased
+     * @throws CryptoCurrencyException if the cryptocurrency is not listed or the exchange does not have enough of it
+     * @throws AccountServiceException if the session has been closed or the user does not have enough funds
+     * to complete the transaction
+     */
+    public void buyFromExchange(Session session, CryptoCurrency cryptoCurrency, long quantity) throws CryptoCurrencyException, AccountServiceException {
+        long start = System.nanoTime();
+        User user = AccountService.getInstance().authenticate(session);
+        gate.enter();
+        try {
+            AtomicLong inventory = cryptoCurrencies.get(cryptoCurrency);
+            if (inventory == null) {
+                throw new CryptoCurrencyException(cryptoCurrency.getShorthandSymbol() + " is not listed.");
+            }
+            long cost = FixedPoint.multiply(cryptoCurrency.getCurrentValue(), cryptoCurrency.getPriceScale(),
+                    quantity, cryptoCurrency.getQuantityScale(), FixedPoint.FIAT_SCALE, RoundingMode.CEILING);
+            Transfer transfer = transfers.get()
+                    .debit(inventory, quantity)
+                    .debitFiat(user.getWallet(), cost);
+            if (!transfer.commit()) {
+                if (transfer.getFailedLeg() == 0) {
+                    throw new CryptoCurrencyException("Exchange has not enough funds to complete the transaction.");
+                }
                 throw new AccountServiceException("User has not enough funds to complete the transaction.");
             }
-        } else {
-            throw new CryptoCurrencyException("Exchange has not enough funds to complete the transaction.");
+            Transaction transaction = new Transaction(TransactionAction.EXCHANGE, cryptoCurrency, quantity, cost);
+            try {
+                journal.exchange(user, transaction);
+            } catch (RuntimeException e) {
+                transfer.credit(inventory, quantity).creditFiat(user.getWallet(), cost).commit();
+                throw e;
+            }
+            transfer.creditCrypto(user.getWallet(), cryptoCurrency, quantity).commit();
+            user.recordTransaction(transaction);
+        } finally {
+            gate.exit();
+        }
+        journal.endBatch();
+        purchaseLatency.recordSince(start);
+    }
+
+    /**
+     * Applies a purchase restored from the journal, without checking the funds or recording it again.
+     * The transaction keeps the ID and the time it was recorded with.
+     *
+     * @param user the buyer
+     * @param cryptoCurrency the purchased cryptocurrency
+     * @param quantity the unscaled quantity bought
+     * @param cost the unscaled fiat money paid
+     * @param transactionID the ID of the transaction
+     * @param dateTime the date and time of the transaction
+     */
+    void restorePurchase(User user, CryptoCurrency cryptoCurrency, long quantity, long cost, long transactionID, LocalDateTime dateTime) {
+        user.getWallet().addFiatMoney(-cost);
+        user.getWallet().rechargeCryptoCurrency(cryptoCurrency, quantity);
+        subtractCryptoCurrency(cryptoCurrency, quantity);
+        user.recordTransaction(new Transaction(transactionID, TransactionAction.EXCHANGE, cryptoCurrency, quantity, cost, dateTime));
+    }
+
+    /**
+     * Copies the quantity the exchange holds of every cryptocurrency for a snapshot.
+     *
+     * @return the unscaled quantities, indexed by symbol
+     */
+    Map<String, Long> captureInventory() {
+        Map<String, Long> inventory = new LinkedHashMap<>();
+        cryptoCurrencies.forEach((cryptoCurrency, quantity) -> inventory.put(cryptoCurrency.getShorthandSymbol(), quantity.get()));
+        return inventory;
+    }
+
+    /**
+     * Sets the quantity the exchange holds of a cryptocurrency, restored from a snapshot.
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @param quantity the unscaled quantity
+     */
+    void restoreInventory(CryptoCurrency cryptoCurrency, long quantity) {
+        AtomicLong inventory = cryptoCurrencies.get(cryptoCurrency);
+        if (inventory != null) {
+            inventory.set(quantity);
+        }
+    }
+
+    /**
+     * Finds an available cryptocurrency by its shorthand symbol.
+     *
+     * @param symbol the shorthand symbol
+     * @return the cryptocurrency, or null if the exchange does not offer it
+     */
+    public CryptoCurrency findCryptoCurrency(String symbol) {
+        return bySymbol.get(symbol);
+    }
+
+    /**
+     * Finds the cryptocurrency of a symbol restored from the journal, which may no longer be listed.<br>
+     * A symbol that is missing from the catalogue gets a cryptocurrency with the default scales
+     * that is never listed, so the holdings and orders of its users are kept.
+     *
+     * @param symbol the shorthand symbol
+     * @return the listed cryptocurrency, or else the registered one, or else a new unlisted one
+     */
+    CryptoCurrency resolveCryptoCurrency(String symbol) {
+        CryptoCurrency cryptoCurrency = bySymbol.get(symbol);
+        if (cryptoCurrency == null) {
+            InstrumentRegistry registry = InstrumentRegistry.getInstance();
+            cryptoCurrency = registry.get(registry.ordinalOf(symbol));
+            if (cryptoCurrency == null) {
+                cryptoCurrency = new CryptoCurrency(symbol, symbol, BigDecimal.ONE);
+            }
         }
+        return cryptoCurrency;
     }
 
     /**
      * Subtracts a specified value from the current amount of a given cryptocurrency.
      *
      * @param cryptoCurrency the cryptocurrency to be updated
-     * @param value the value to be subtracted
+     * @param value the unscaled value to be subtracted
      */
-    private void subtractCryptoCurrency(CryptoCurrency cryptoCurrency, BigDecimal value) {
-        BigDecimal oldValue = cryptoCurrencies.get(cryptoCurrency);
-        cryptoCurrencies.replace(cryptoCurrency, oldValue.subtract(value));
+    private void subtractCryptoCurrency(CryptoCurrency cryptoCurrency, long value) {
+        AtomicLong inventory = cryptoCurrencies.get(cryptoCurrency);
+        if (inventory != null) {
+            inventory.getAndUpdate(quantity -> FixedPoint.subtract(quantity, value));
+        }
     }
 
     /**
-     * Simulates the fluctuation of cryptocurrency values at random intervals.<br>
-     * Updates the current value of each cryptocurrency and notifies subscribers of the changes.
+     * Simulates the fluctuation of cryptocurrency values over one tick.<br>
+     * Moves the current value of each cryptocurrency by one step of the price model, starting from
+     * its current value, and notifies subscribers of the changes.
+     * @see PriceSimulator
      */
     public void fluctuateCryptoCurrencyValues() {
-        Random random = new Random();
-        cryptoCurrencies.forEach(((cryptoCurrency, quantity) -> {
-            BigDecimal originalValue = cryptoCurrency.getOriginalValue();
-            BigDecimal newValue;
-            if (random.nextBoolean()){
-                newValue = originalValue.add(BigDecimal.valueOf(random.nextDouble(originalValue.doubleValue() * 0.0012)));
-            } else {
-                newValue = originalValue.subtract(BigDecimal.valueOf(random.nextDouble(originalValue.doubleValue() * 0.0004)));
-            }
-            cryptoCurrency.updateCurrentValue(newValue);
-        }));
+        priceSimulator.advance(instruments, tickMillis / 1000.0);
         notifySubscribers();
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+
+import java.util.SplittableRandom;
+
+/**
+ * Price model where the value follows a geometric Brownian motion.<br>
+ * The logarithm of the value moves by a normal step whose mean is given by the drift and whose
+ * deviation grows with the square root of the interval, so the value never turns negative and
+ * wanders away from its original value over time.
+ * @see PriceModel
+ */
+public final class GeometricBrownianMotionModel implements PriceModel {
+    /**
+     * System property with the annualized drift of the values (default 0).
+     */
+    public static final String DRIFT_PROPERTY = "exchange.drift";
+
+    private final double drift;
+    private final double volatility;
+
+    /**
+     * Constructs a new GeometricBrownianMotionModel.
+     *
+     * @param drift the annualized expected return
+     * @param volatility the annualized volatility
+     */
+    public GeometricBrownianMotionModel(double drift, double volatility) {
+        this.drift = drift;
+        this.volatility = volatility;
+    }
+
+    @Override
+    public double next(CryptoCurrency cryptoCurrency, double value, double interval, SplittableRandom random) {
+        double step = (drift - volatility * volatility / 2) * interval
+                + volatility * Math.sqrt(interval) * random.nextGaussian();
+        return value * Math.exp(step);
+    }
+}
@@ -0,0 +1,147 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the catalogue of the cryptocurrencies listed by the exchange at startup.<br>
+ * The catalogue is a text file with a cryptocurrency per line and the comma-separated columns
+ * {@code symbol,name,price,inventory,priceScale,tickSize}, optionally followed by the quantity
+ * scale (default {@value CryptoCurrency#DEFAULT_QUANTITY_SCALE}). The price,
+ * inventory and tick size are decimals; blank lines and lines starting with '#' are ignored. The
+ * file is read from {@value #FILE_PROPERTY} if the system property is set, or from the catalogue
+ * bundled with the application, which lists BTC and ETH.
+ * @see ExchangeService#listCryptoCurrency(Listing)
+ */
+public final class InstrumentCatalogue {
+    /**
+     * System property with the path of the catalogue file.
+     */
+    public static final String FILE_PROPERTY = "exchange.catalogue";
+
+    /**
+     * Catalogue bundled with the application.
+     */
+    private static final String RESOURCE = "/instruments.csv";
+    private static final int MAX_SCALE = 18;
+
+    /**
+     * A cryptocurrency of the catalogue.
+     *
+     * @param symbol the shorthand symbol
+     * @param name the display name
+     * @param price the initial unit price
+     * @param inventory the quantity the exchange holds
+     * @param priceScale the number of decimals of the unit prices
+     * @param tickSize the smallest change of the unit price
+     * @param quantityScale the number of decimals of the quantities
+     */
+    public record Listing(String symbol, String name, BigDecimal price, BigDecimal inventory,
+                          int priceScale, BigDecimal tickSize, int quantityScale) {}
+
+    private InstrumentCatalogue() {
+    }
+
+    /**
+     * Reads the configured catalogue.
+     *
+     * @return the cryptocurrencies of the catalogue, in the order of the file
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is not valid
+     */
+    public static List<Listing> load() {
+        String file = System.getProperty(FILE_PROPERTY);
+        try {
+            if (file != null) {
+                try (BufferedReader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+                    return parse(reader, file);
+                }
+            }
+            InputStream resource = InstrumentCatalogue.class.getResourceAsStream(RESOURCE);
+            if (resource == null) {
+                throw new IOException("Missing catalogue " + RESOURCE);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+                return parse(reader, RESOURCE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the catalogue " + (file != null ? file : RESOURCE), e);
+        }
+    }
+
+    /**
+     * Reads a catalogue.
+     *
+     * @param reader the reader of the catalogue
+     * @param source the name of the catalogue, for the error messages
+     * @return the cryptocurrencies of the catalogue, in the order of the file
+     * @throws IOException if the catalogue cannot be read
+     * @throws IllegalArgumentException if a line is not valid or a symbol is repeated
+     */
+    public static List<Listing> parse(BufferedReader reader, String source) throws IOException {
+        List<Listing> listings = new ArrayList<>();
+        Set<String> symbols = new HashSet<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Listing listing;
+            try {
+                listing = parseListing(line);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+            if (!symbols.add(listing.symbol())) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": repeated symbol " + listing.symbol());
+            }
+            listings.add(listing);
+        }
+        return listings;
+    }
+
+    private static Listing parseListing(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 6 && columns.length != 7) {
+            throw new IllegalArgumentException("expected 6 or 7 columns, found " + columns.length);
+        }
+        String symbol = columns[0].strip().toUpperCase();
+        String name = columns[1].strip();
+        if (symbol.isEmpty() || name.isEmpty()) {
+            throw new IllegalArgumentException("the symbol and the name are required");
+        }
+        BigDecimal price = new BigDecimal(columns[2].strip());
+        BigDecimal inventory = new BigDecimal(columns[3].strip());
+        int priceScale = scale(columns[4]);
+        BigDecimal tickSize = new BigDecimal(columns[5].strip());
+        int quantityScale = columns.length == 7 ? scale(columns[6]) : CryptoCurrency.DEFAULT_QUANTITY_SCALE;
+        if (price.signum() <= 0 || tickSize.signum() <= 0 || inventory.signum() < 0) {
+            throw new IllegalArgumentException("the price and the tick size must be positive and the inventory not negative");
+        }
+        return new Listing(symbol, name, price, inventory, priceScale, tickSize, quantityScale);
+    }
+
+    private static int scale(String column) {
+        int scale = Integer.parseInt(column.strip());
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scales go from 0 to " + MAX_SCALE);
+        }
+        return scale;
+    }
+}
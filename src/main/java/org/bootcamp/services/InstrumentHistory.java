@@ -0,0 +1,110 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.Candle;
+import org.bootcamp.models.CandleResolution;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.Tick;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The price history of a cryptocurrency.<br>
+ * The recent ticks are kept in a preallocated ring of primitive timestamps and prices, and a
+ * {@link CandleSeries} per {@link CandleResolution} is updated on every tick and fill, so the
+ * candles are never rebuilt from the raw ticks.<br>
+ * Ticks come from the fluctuation thread and fills from the matching shard of the cryptocurrency,
+ * so every method is synchronized on the history; each cryptocurrency has its own lock.
+ * @see MarketHistoryService
+ */
+final class InstrumentHistory {
+    private final CryptoCurrency cryptoCurrency;
+    private final long[] timestamps;
+    private final long[] prices;
+    /**
+     * Mask of the ring of ticks, whose length is a power of two.
+     */
+    private final int mask;
+    /**
+     * Number of ticks recorded since the start.
+     */
+    private long tickCount;
+    private final CandleSeries[] series;
+
+    /**
+     * Constructs an empty history.
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @param tickCapacity the number of recent ticks kept, a power of two
+     */
+    InstrumentHistory(CryptoCurrency cryptoCurrency, int tickCapacity) {
+        this.cryptoCurrency = cryptoCurrency;
+        this.timestamps = new long[tickCapacity];
+        this.prices = new long[tickCapacity];
+        this.mask = tickCapacity - 1;
+        CandleResolution[] resolutions = CandleResolution.values();
+        this.series = new CandleSeries[resolutions.length];
+        for (CandleResolution resolution : resolutions) {
+            series[resolution.ordinal()] = new CandleSeries(resolution);
+        }
+    }
+
+    /**
+     * Records a tick and applies its price to the candles.
+     *
+     * @param timestamp the time of the tick, in milliseconds since the epoch
+     * @param price the unscaled price
+     */
+    synchronized void tick(long timestamp, long price) {
+        int slot = (int) (tickCount++ & mask);
+        timestamps[slot] = timestamp;
+        prices[slot] = price;
+        for (CandleSeries candles : series) {
+            candles.price(timestamp, price);
+        }
+    }
+
+    /**
+     * Adds the quantity of a fill to the volume of the candles.
+     *
+     * @param timestamp the time of the fill, in milliseconds since the epoch
+     * @param quantity the unscaled quantity traded
+     * @param turnover the unscaled fiat money paid
+     */
+    synchronized void fill(long timestamp, long quantity, long turnover) {
+        long lastPrice = tickCount > 0 ? prices[(int) ((tickCount - 1) & mask)] : cryptoCurrency.getCurrentValue();
+        for (CandleSeries candles : series) {
+            candles.trade(timestamp, lastPrice, quantity, turnover);
+        }
+    }
+
+    /**
+     * Copies the most recent ticks, oldest first.
+     *
+     * @param count the maximum number of ticks
+     * @return the ticks
+     */
+    synchronized List<Tick> recentTicks(int count) {
+        int size = (int) Math.min(Math.min(Math.max(count, 0), tickCount), timestamps.length);
+        List<Tick> ticks = new ArrayList<>(size);
+        for (long index = tickCount - size; index < tickCount; index++) {
+            int slot = (int) (index & mask);
+            ticks.add(new Tick(cryptoCurrency, cryptoCurrency.getOriginalValue(), prices[slot], timestamps[slot]));
+        }
+        return ticks;
+    }
+
+    /**
+     * Copies the candles that opened within a time range, oldest first.
+     *
+     * @param resolution the time span of the candles
+     * @param from the start of the range, in milliseconds since the epoch, inclusive
+     * @param to the end of the range, in milliseconds since the epoch, inclusive
+     * @return the candles
+     */
+    synchronized List<Candle> candles(CandleResolution resolution, long from, long to) {
+        List<Candle> candles = new ArrayList<>();
+        series[resolution.ordinal()].range(cryptoCurrency, from, to, candles);
+        return candles;
+    }
+}
@@ -0,0 +1,218 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.Tick;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the price updates of the ExchangeService to its subscribers.<br>
+ * Each subscriber is served by its own subscription, which keeps only the latest tick of every
+ * cryptocurrency that has not been delivered yet: a newer tick replaces the pending one instead of
+ * queueing behind it, so the queue of a subscriber never holds more ticks than there are
+ * cryptocurrencies. The ticks are delivered from a pool of delivery threads, one subscriber at a
+ * time and as fast as it requests them, so a slow subscriber only falls behind on its own ticks and
+ * never delays the publisher nor the other subscribers.<br>
+ * Subscribers are held through weak references: a subscriber that is no longer used anywhere else
+ * is dropped on the next publication, even if it was never unsubscribed.
+ * @see Tick
+ * @see ExchangeService
+ */
+public class MarketDataPublisher implements Flow.Publisher<Tick> {
+    /**
+     * The subscriptions of the subscribers.
+     */
+    private final List<ConflatingSubscription> subscriptions;
+    /**
+     * Executor of the delivery threads.
+     */
+    private final Executor executor;
+
+    /**
+     * Constructs a new publisher that delivers the ticks on the specified executor.
+     *
+     * @param executor the executor of the delivery threads
+     */
+    MarketDataPublisher(Executor executor) {
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a subscriber, which receives the ticks published from now on.
+     *
+     * @param subscriber the subscriber to add
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Tick> subscriber) {
+        Objects.requireNonNull(subscriber);
+        ConflatingSubscription subscription = new ConflatingSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Cancels the subscriptions of a subscriber.
+     *
+     * @param subscriber the subscriber to remove
+     */
+    public void unsubscribe(Flow.Subscriber<?> subscriber) {
+        for (ConflatingSubscription subscription : subscriptions) {
+            if (subscription.subscriber.get() == subscriber) {
+                subscription.cancel();
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of active subscriptions.
+     *
+     * @return the number of subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Hands an update to every subscription.<br>
+     * The caller never waits for the subscribers; subscriptions that were cancelled or whose
+     * subscriber was collected are removed.
+     *
+     * @param ticks the ticks of the update, shared by all the subscribers
+     */
+    void publish(List<Tick> ticks) {
+        for (ConflatingSubscription subscription : subscriptions) {
+            if (!subscription.offer(ticks)) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Subscription that conflates the pending ticks of a subscriber by cryptocurrency.
+     */
+    private final class ConflatingSubscription implements Flow.Subscription, Runnable {
+        /**
+         * The subscriber, held weakly.
+         */
+        private final WeakReference<Flow.Subscriber<? super Tick>> subscriber;
+        /**
+         * Latest tick not delivered yet of every cryptocurrency.
+         */
+        private final Map<CryptoCurrency, Tick> latest;
+        /**
+         * Cryptocurrencies with a pending tick, in the order they were updated.
+         */
+        private final Queue<CryptoCurrency> pending;
+        /**
+         * Number of ticks requested and not delivered yet.
+         */
+        private final AtomicLong demand;
+        /**
+         * Number of times the delivery has been requested; only the first one runs it.
+         */
+        private final AtomicInteger work;
+        private volatile boolean cancelled;
+
+        ConflatingSubscription(Flow.Subscriber<? super Tick> subscriber) {
+            this.subscriber = new WeakReference<>(subscriber);
+            this.latest = new ConcurrentHashMap<>();
+            this.pending = new ConcurrentLinkedQueue<>();
+            this.demand = new AtomicLong();
+            this.work = new AtomicInteger();
+        }
+
+        /**
+         * Stores the ticks of an update, replacing the pending ones of the same cryptocurrencies.
+         *
+         * @param ticks the ticks of the update
+         * @return false if the subscription is no longer active
+         */
+        boolean offer(List<Tick> ticks) {
+            if (cancelled || subscriber.get() == null) {
+                cancel();
+                return false;
+            }
+            for (Tick tick : ticks) {
+                if (latest.put(tick.getCryptoCurrency(), tick) == null) {
+                    pending.offer(tick.getCryptoCurrency());
+                }
+            }
+            schedule();
+            return true;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                Flow.Subscriber<? super Tick> target = subscriber.get();
+                cancel();
+                if (target != null) {
+                    target.onError(new IllegalArgumentException("The number of requested ticks must be positive"));
+                }
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            latest.clear();
+            pending.clear();
+        }
+
+        /**
+         * Runs the delivery on the executor unless it is already running.
+         */
+        private void schedule() {
+            if (work.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                    work.set(0);
+                }
+            }
+        }
+
+        /**
+         * Delivers the pending ticks while the subscriber requests them.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                Flow.Subscriber<? super Tick> target = subscriber.get();
+                while (!cancelled && target != null && demand.get() > 0) {
+                    CryptoCurrency cryptoCurrency = pending.poll();
+                    if (cryptoCurrency == null) {
+                        break;
+                    }
+                    Tick tick = latest.remove(cryptoCurrency);
+                    if (tick != null) {
+                        if (demand.get() != Long.MAX_VALUE) {
+                            demand.decrementAndGet();
+                        }
+                        try {
+                            target.onNext(tick);
+                        } catch (RuntimeException e) {
+                            cancel();
+                            target.onError(e);
+                        }
+                    }
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
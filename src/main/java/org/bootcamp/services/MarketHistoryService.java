@@ -0,0 +1,123 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The MarketHistoryService class keeps the price history of every cryptocurrency and follows the singleton pattern.<br>
+ * It records the ticks published by the ExchangeService and the fills of the TradingService, and
+ * maintains candles of one second, one minute and one hour as they arrive. Charts and analytics
+ * can poll the candles of a time range at any moment: the query reads the stored candles directly
+ * and never goes through the raw ticks.<br>
+ * The last {@value #TICK_CAPACITY_PROPERTY} ticks of each cryptocurrency are kept (default 4096,
+ * rounded up to a power of two). The history lives in memory only, and it starts empty after a restart.
+ * @see Candle
+ * @see CandleResolution
+ * @see ExchangeService
+ * @see TradingService
+ */
+public class MarketHistoryService {
+    /**
+     * System property with the number of recent ticks kept per cryptocurrency.
+     */
+    public static final String TICK_CAPACITY_PROPERTY = "history.tickCapacity";
+
+    /**
+     * Singleton instance of the MarketHistoryService class.
+     */
+    private static MarketHistoryService instance;
+
+    /**
+     * The history of every cryptocurrency that has had a tick or a fill.
+     */
+    private final Map<CryptoCurrency, InstrumentHistory> histories;
+    /**
+     * Number of recent ticks kept per cryptocurrency, a power of two.
+     */
+    private final int tickCapacity;
+
+    /**
+     * Private constructor to initialize the MarketHistoryService.
+     */
+    private MarketHistoryService() {
+        histories = new ConcurrentHashMap<>();
+        int capacity = Math.max(2, Integer.getInteger(TICK_CAPACITY_PROPERTY, 4096));
+        tickCapacity = Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Returns the singleton instance of the MarketHistoryService.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of MarketHistoryService
+     */
+    public static MarketHistoryService getInstance() {
+        if (instance == null) {
+            instance = new MarketHistoryService();
+        }
+        return instance;
+    }
+
+    /**
+     * Records the ticks of a price update.
+     *
+     * @param ticks the ticks of the update
+     */
+    void recordTicks(List<Tick> ticks) {
+        for (Tick tick : ticks) {
+            historyOf(tick.getCryptoCurrency()).tick(tick.getTimestamp(), tick.getValue());
+        }
+    }
+
+    /**
+     * Adds the quantity of a fill to the volume of its cryptocurrency.
+     *
+     * @param fill the executed fill
+     */
+    void recordFill(Fill fill) {
+        historyOf(fill.getSellingOrder().getCryptoCurrency()).fill(System.currentTimeMillis(), fill.getQuantity(), fill.getPrice());
+    }
+
+    /**
+     * Returns the candles of a cryptocurrency that opened within a time range.
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @param resolution the time span of the candles
+     * @param from the start of the range, in milliseconds since the epoch, inclusive
+     * @param to the end of the range, in milliseconds since the epoch, inclusive
+     * @return the candles, oldest first; spans without ticks or fills have no candle
+     */
+    public List<Candle> getCandles(CryptoCurrency cryptoCurrency, CandleResolution resolution, long from, long to) {
+        InstrumentHistory history = histories.get(cryptoCurrency);
+        if (history == null || from > to) {
+            return List.of();
+        }
+        return history.candles(resolution, from, to);
+    }
+
+    /**
+     * Returns the most recent ticks of a cryptocurrency.
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @param count the maximum number of ticks
+     * @return the ticks, oldest first
+     */
+    public List<Tick> getRecentTicks(CryptoCurrency cryptoCurrency, int count) {
+        InstrumentHistory history = histories.get(cryptoCurrency);
+        if (history == null) {
+            return List.of();
+        }
+        return history.recentTicks(count);
+    }
+
+    private InstrumentHistory historyOf(CryptoCurrency cryptoCurrency) {
+        InstrumentHistory history = histories.get(cryptoCurrency);
+        if (history == null) {
+            history = histories.computeIfAbsent(cryptoCurrency, key -> new InstrumentHistory(key, tickCapacity));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,333 @@
+package org.bootcamp.services;
+
+import org.bootcamp.metrics.LatencyRecorder;
+import org.bootcamp.metrics.ServiceMetrics;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.Fill;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.Transfer;
+import org.bootcamp.persistence.Journal;
+import org.bootcamp.persistence.JournalWriter;
+import org.bootcamp.persistence.Snapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The MatchingShard class is the single writer of a group of order books.<br>
+ * Every shard runs its own thread, which drains the order commands from a ring buffer in
+ * batches and executes them one by one. The order books of the shard are only touched by
+ * that thread, so they need no synchronization, and cryptocurrencies assigned to different
+ * shards never contend with each other.<br>
+ * The shard records the orders it places and their fills in its own journal stream,
+ * so journaling does not need any coordination between shards either. It also measures every
+ * matching pass and the time from an order handed to the shard to its first fill.
+ * @see TradingService
+ * @see OrderBook
+ * @see OrderRingBuffer
+ * @see Journal
+ */
+class MatchingShard implements Runnable, Consumer<OrderCommand>, OrderBook.MatchListener {
+    private static final Logger LOGGER = Logger.getLogger(MatchingShard.class.getName());
+
+    /**
+     * The trading service that settles the fills and notifies the subscribers.
+     */
+    private final TradingService tradingService;
+    /**
+     * Commands waiting to be executed by the shard thread.
+     */
+    private final OrderRingBuffer commands;
+    /**
+     * Order books owned by the shard, indexed by the traded cryptocurrency.
+     */
+    private final Map<CryptoCurrency, OrderBook> orderBooks;
+    /**
+     * Fills of the order being matched, reused between orders.
+     */
+    private final List<Fill> fills;
+    /**
+     * Transfer that settles the fills, reused between fills.
+     */
+    private final Transfer settlement;
+    /**
+     * Journal stream of the shard.
+     */
+    private final JournalWriter journal;
+    /**
+     * History where the traded volume is recorded.
+     */
+    private final MarketHistoryService history;
+    /**
+     * Whether the order being matched records its transactions, false for restored orders.
+     */
+    private boolean recording;
+    /**
+     * Latency of the matching passes.
+     */
+    private final LatencyRecorder matchingLatency;
+    /**
+     * Latency from an order handed to the shard to its first fill.
+     */
+    private final LatencyRecorder orderToFillLatency;
+    /**
+     * The thread that owns the order books.
+     */
+    private final Thread thread;
+
+    /**
+     * Constructs a new shard and starts its thread.
+     *
+     * @param tradingService the trading service that settles the fills
+     * @param index the index of the shard, used to name its thread
+     * @param ringSize the number of slots of the command ring buffer, a power of two
+     * @param waitStrategy the strategy followed by the shard thread when there are no commands
+     */
+    MatchingShard(TradingService tradingService, int index, int ringSize, WaitStrategy waitStrategy) {
+        this.tradingService = tradingService;
+        this.commands = new OrderRingBuffer(ringSize, waitStrategy);
+        this.orderBooks = new HashMap<>();
+        this.fills = new ArrayList<>();
+        this.settlement = new Transfer();
+        this.journal = Journal.getInstance().writer("shard-" + index);
+        this.history = MarketHistoryService.getInstance();
+        this.matchingLatency = ServiceMetrics.getInstance().getMatching();
+        this.orderToFillLatency = ServiceMetrics.getInstance().getOrderToFill();
+        this.thread = new Thread(this, "matching-shard-" + index);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues an order to be matched by the shard thread.<br>
+     * Never takes a lock; it only waits while the ring buffer is full.
+     *
+     * @param order the order to match
+     */
+    void submit(MarketOrder order) {
+        commands.publish(OrderCommand.Type.PLACE, order, System.nanoTime());
+    }
+
+    /**
+     * Queues an order restored from the journal to be matched again by the shard thread.
+     *
+     * @param order the restored order
+     */
+    void restore(MarketOrder order) {
+        commands.publish(OrderCommand.Type.RESTORE, order);
+    }
+
+    /**
+     * Queues an order restored from a snapshot to rest in its book without being matched.
+     *
+     * @param order the restored order, with its remaining amount and price
+     */
+    void rest(MarketOrder order) {
+        commands.publish(OrderCommand.Type.REST, order);
+    }
+
+    /**
+     * Queues the cancellation of an order. It is executed after the commands already queued,
+     * so an order that is still waiting to be matched is matched before it is cancelled.
+     *
+     * @param order the order to cancel
+     * @param result the future completed with true if the order was cancelled, or false if it
+     *               was no longer resting in the book
+     */
+    void cancel(MarketOrder order, CompletableFuture<Boolean> result) {
+        commands.publish(OrderCommand.Type.CANCEL, order, result);
+    }
+
+    /**
+     * Queues the cancellation of an order restored from the journal.
+     *
+     * @param order the restored order
+     */
+    void restoreCancel(MarketOrder order) {
+        commands.publish(OrderCommand.Type.RESTORE_CANCEL, order, null);
+    }
+
+    /**
+     * Queues a snapshot barrier behind the commands already published.
+     *
+     * @param barrier the barrier where the shard thread has to stop
+     */
+    void pause(SnapshotBarrier barrier) {
+        commands.publish(barrier);
+    }
+
+    /**
+     * Checks if the shard has executed every queued command.
+     *
+     * @return true if there are no pending commands, false otherwise
+     */
+    boolean isIdle() {
+        return commands.isDrained();
+    }
+
+    /**
+     * Runs the event loop of the shard, executing the commands in arrival order.<br>
+     * The journal is told about the end of every drained batch, so the batch fsync policy
+     * forces a whole batch at once. A failing command is logged and skipped, so it does not
+     * stop the shard: a command leaves the books, the orders and the wallets consistent when it
+     * fails, and the commands executed before it in the batch are still forced.
+     */
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (commands.drain(this) == 0) {
+                    commands.awaitCommand();
+                } else {
+                    journal.endBatch();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Command failed in " + thread.getName(), e);
+                journal.endBatch();
+            }
+        }
+    }
+
+    /**
+     * Executes a command drained from the ring buffer.<br>
+     * If the command fails, its future, if any, is completed with the failure before it is propagated,
+     * so the caller waiting for the outcome is not left waiting.
+     *
+     * @param command the command to execute
+     */
+    @Override
+    public void accept(OrderCommand command) {
+        try {
+            switch (command.type) {
+                case PLACE -> match(command.order, command.timestamp, true);
+                case RESTORE -> match(command.order, 0, false);
+                case REST -> orderBooks.computeIfAbsent(command.order.getCryptoCurrency(), OrderBook::new).add(command.order);
+                case SNAPSHOT -> command.barrier.arrive(captureOrders());
+                case CANCEL -> cancel(command.order, true, command.result);
+                case RESTORE_CANCEL -> cancel(command.order, false, null);
+            }
+        } catch (RuntimeException e) {
+            if (command.result != null) {
+                command.result.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the resting orders of every book owned by the shard.
+     *
+     * @return the images of the resting orders
+     */
+    private List<Snapshot.OrderImage> captureOrders() {
+        List<Snapshot.OrderImage> images = new ArrayList<>();
+        for (OrderBook orderBook : orderBooks.values()) {
+            orderBook.forEach(order -> images.add(new Snapshot.OrderImage(order.getOrderID(), order.getOrderType(),
+                    order.getUser().getEmail(), order.getCryptoCurrency().getShorthandSymbol(), order.getAmount(),
+                    order.getPrice(), order.getRemainingAmount(), order.getRemainingPrice())));
+        }
+        return images;
+    }
+
+    /**
+     * Matches an order against the book of its cryptocurrency and rests the remainder.<br>
+     * The order is recorded in the journal before it is matched. Once the book is up to date, its
+     * fills are recorded, their volume is added to the market history and the subscribers are
+     * notified. Orders restored from the journal are neither recorded nor notified again, nor
+     * measured.<br>
+     * A fill that fails leaves the orders and the wallets as they were, so the matching pass stops
+     * there: the fills already settled are recorded and notified, and the order rests with what is
+     * left of it, before the failure is propagated.
+     *
+     * @param order the order to match
+     * @param timestamp the time the order was handed to the shard, from {@link System#nanoTime()}
+     * @param record true to record the order and notify its fills, false for restored orders
+     */
+    private void match(MarketOrder order, long timestamp, boolean record) {
+        OrderBook orderBook = orderBooks.computeIfAbsent(order.getCryptoCurrency(), OrderBook::new);
+        if (record) {
+            journal.order(order);
+        }
+        RuntimeException failure = null;
+        try {
+            long start = System.nanoTime();
+            recording = record;
+            try {
+                orderBook.match(order, this);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            if (order.isFilled()) {
+                tradingService.closeOrder(order);
+            } else {
+                orderBook.add(order);
+            }
+            if (record) {
+                long matched = System.nanoTime();
+                matchingLatency.record(matched - start);
+                if (!fills.isEmpty()) {
+                    orderToFillLatency.record(matched - timestamp);
+                }
+                for (Fill fill : fills) {
+                    journal.fill(fill);
+                }
+                for (Fill fill : fills) {
+                    history.recordFill(fill);
+                    tradingService.notifySubscribers(fill);
+                }
+            }
+        } finally {
+            fills.clear();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Removes an order from the book of its cryptocurrency and gives its reserved funds back.<br>
+     * The cancellation is recorded in the journal before the funds are released.
+     *
+     * @param order the order to cancel
+     * @param record true to record the cancellation, false for restored cancellations
+     * @param result the future completed with the outcome, or null
+     */
+    private void cancel(MarketOrder order, boolean record, CompletableFuture<Boolean> result) {
+        OrderBook orderBook = orderBooks.get(order.getCryptoCurrency());
+        boolean cancelled = orderBook != null && orderBook.remove(order.getOrderID()) != null;
+        if (cancelled) {
+            if (record) {
+                journal.cancel(order);
+            }
+            tradingService.releaseOrder(order, settlement);
+        }
+        if (result != null) {
+            result.complete(cancelled);
+        }
+    }
+
+    /**
+     * Settles a fill between the incoming order and a resting order.
+     *
+     * @param incoming the order that has just been placed
+     * @param resting the resting order of the opposite side
+     */
+    @Override
+    public void onMatch(MarketOrder incoming, MarketOrder resting) {
+        if (incoming.getOrderType() == OrderType.BUY) {
+            fills.add(tradingService.processOrders(incoming, resting, settlement, recording));
+        } else {
+            fills.add(tradingService.processOrders(resting, incoming, settlement, recording));
+        }
+        if (resting.isFilled()) {
+            tradingService.closeOrder(resting);
+        }
+    }
+}
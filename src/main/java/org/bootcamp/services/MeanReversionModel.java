@@ -0,0 +1,49 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+
+import java.util.SplittableRandom;
+
+/**
+ * Price model where the value reverts to the original value of the cryptocurrency.<br>
+ * The logarithm of the value follows an Ornstein-Uhlenbeck process: every step pulls it towards
+ * the logarithm of the original value, faster the higher the speed, and adds a normal shock, so the
+ * value keeps fluctuating around its original value instead of wandering away. The steps are
+ * exact for any interval, so the tick interval does not change the distribution of the values.
+ * @see PriceModel
+ */
+public final class MeanReversionModel implements PriceModel {
+    /**
+     * System property with the annualized speed of the reversion (default 365, a half-life of
+     * about 17 hours).
+     */
+    public static final String SPEED_PROPERTY = "exchange.meanReversion";
+
+    private final double speed;
+    private final double volatility;
+
+    /**
+     * Constructs a new MeanReversionModel.
+     *
+     * @param speed the annualized speed of the reversion, must be positive
+     * @param volatility the annualized volatility
+     * @throws IllegalArgumentException if the speed is not positive
+     */
+    public MeanReversionModel(double speed, double volatility) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed of the reversion must be positive");
+        }
+        this.speed = speed;
+        this.volatility = volatility;
+    }
+
+    @Override
+    public double next(CryptoCurrency cryptoCurrency, double value, double interval, SplittableRandom random) {
+        double mean = Math.log(cryptoCurrency.getOriginalValue());
+        double decay = Math.exp(-speed * interval);
+        double deviation = volatility * Math.sqrt((1 - decay * decay) / (2 * speed));
+        double logValue = mean + (Math.log(value) - mean) * decay
+                + deviation * random.nextGaussian();
+        return Math.exp(logValue);
+    }
+}
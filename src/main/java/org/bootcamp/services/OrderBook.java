@@ -0,0 +1,235 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.OrderType;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The OrderBook class keeps the resting market orders of a single cryptocurrency.<br>
+ * Orders are grouped in price levels sorted by unit price, the best bid (highest) and the
+ * best ask (lowest) first. Inside a level the orders are kept in arrival order, so the
+ * matching follows the price-time priority.<br>
+ * Each level is a doubly linked list of order nodes, and the nodes are indexed by order ID,
+ * so an order is found and unlinked from its level in constant time whatever the size of the
+ * book; only a level that becomes empty is removed from the sorted levels.
+ * @see TradingService
+ * @see MarketOrder
+ */
+class OrderBook {
+    /**
+     * The cryptocurrency traded in this book.
+     */
+    private final CryptoCurrency cryptoCurrency;
+    /**
+     * Buy order levels, sorted from the highest to the lowest unit price.
+     */
+    private final NavigableMap<Long, Level> bids;
+    /**
+     * Selling order levels, sorted from the lowest to the highest unit price.
+     */
+    private final NavigableMap<Long, Level> asks;
+    /**
+     * The node of every resting order, indexed by order ID.
+     */
+    private final Map<Long, Node> nodes;
+
+    /**
+     * Constructs an empty order book for the specified cryptocurrency.
+     *
+     * @param cryptoCurrency the cryptocurrency traded in this book
+     */
+    OrderBook(CryptoCurrency cryptoCurrency) {
+        this.cryptoCurrency = cryptoCurrency;
+        this.bids = new TreeMap<>(Comparator.reverseOrder());
+        this.asks = new TreeMap<>();
+        this.nodes = new HashMap<>();
+    }
+
+    CryptoCurrency getCryptoCurrency() {
+        return cryptoCurrency;
+    }
+
+    /**
+     * Sweeps the opposite side of the book with the incoming order.<br>
+     * The levels are visited from the best price while they cross the incoming unit price, and
+     * every level is visited in arrival order. Each crossing order of another user is handed to
+     * the listener, which executes the fill; resting orders that end up filled are removed.
+     * The sweep stops when the incoming order is filled or no more levels cross.
+     *
+     * @param incoming the order that has just been placed
+     * @param listener the listener that executes every fill
+     */
+    void match(MarketOrder incoming, MatchListener listener) {
+        NavigableMap<Long, Level> opposite = incoming.getOrderType() == OrderType.BUY ? asks : bids;
+        Iterator<Map.Entry<Long, Level>> levels = opposite.entrySet().iterator();
+        while (!incoming.isFilled() && levels.hasNext()) {
+            Map.Entry<Long, Level> entry = levels.next();
+            if (!crosses(incoming, entry.getKey())) {
+                return;
+            }
+            Level level = entry.getValue();
+            Node node = level.head;
+            while (!incoming.isFilled() && node != null) {
+                Node next = node.next;
+                MarketOrder resting = node.order;
+                if (!resting.getUser().equals(incoming.getUser())) {
+                    listener.onMatch(incoming, resting);
+                    if (resting.isFilled()) {
+                        level.unlink(node);
+                        nodes.remove(resting.getOrderID());
+                    }
+                }
+                node = next;
+            }
+            if (level.head == null) {
+                levels.remove();
+            }
+        }
+    }
+
+    /**
+     * Adds an order at the end of its price level.
+     *
+     * @param order the order to rest in the book with its remaining amount
+     */
+    void add(MarketOrder order) {
+        NavigableMap<Long, Level> side = order.getOrderType() == OrderType.BUY ? bids : asks;
+        Node node = new Node(order, side.computeIfAbsent(order.getUnitPrice(), unitPrice -> new Level()));
+        node.level.append(node);
+        nodes.put(order.getOrderID(), node);
+    }
+
+    /**
+     * Finds a resting order by its ID.
+     *
+     * @param orderID the ID of the order
+     * @return the resting order, or null if it is not in the book
+     */
+    MarketOrder find(long orderID) {
+        Node node = nodes.get(orderID);
+        return node == null ? null : node.order;
+    }
+
+    /**
+     * Removes a resting order from the book.
+     *
+     * @param orderID the ID of the order
+     * @return the removed order, or null if it was not in the book
+     */
+    MarketOrder remove(long orderID) {
+        Node node = nodes.remove(orderID);
+        if (node == null) {
+            return null;
+        }
+        Level level = node.level;
+        level.unlink(node);
+        if (level.head == null) {
+            MarketOrder order = node.order;
+            (order.getOrderType() == OrderType.BUY ? bids : asks).remove(order.getUnitPrice(), level);
+        }
+        return node.order;
+    }
+
+    /**
+     * Returns the number of resting orders.
+     *
+     * @return the number of orders in the book
+     */
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Hands every resting order to the action, the bids and then the asks, each side from the
+     * best level and each level in arrival order. Adding the orders back in this order rebuilds
+     * the same book.
+     *
+     * @param action the action applied to every resting order
+     */
+    void forEach(Consumer<MarketOrder> action) {
+        bids.values().forEach(level -> level.forEach(action));
+        asks.values().forEach(level -> level.forEach(action));
+    }
+
+    /**
+     * Checks if the incoming order can trade at the specified resting unit price.
+     *
+     * @param incoming the order that has just been placed
+     * @param restingUnitPrice the unscaled unit price of a level on the opposite side
+     * @return true if the prices cross, false otherwise
+     */
+    private boolean crosses(MarketOrder incoming, long restingUnitPrice) {
+        long unitPrice = incoming.getUnitPrice();
+        return incoming.getOrderType() == OrderType.BUY ? unitPrice >= restingUnitPrice : unitPrice <= restingUnitPrice;
+    }
+
+    /**
+     * Callback used by the order book to execute a match between two orders.
+     */
+    interface MatchListener {
+        /**
+         * Executes a fill between the incoming order and a crossing resting order.
+         *
+         * @param incoming the order that has just been placed
+         * @param resting the resting order of the opposite side
+         */
+        void onMatch(MarketOrder incoming, MarketOrder resting);
+    }
+
+    /**
+     * A price level, the orders resting at the same unit price in arrival order.
+     */
+    private static final class Level {
+        private Node head;
+        private Node tail;
+
+        void append(Node node) {
+            node.previous = tail;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void unlink(Node node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        void forEach(Consumer<MarketOrder> action) {
+            for (Node node = head; node != null; node = node.next) {
+                action.accept(node.order);
+            }
+        }
+    }
+
+    /**
+     * The link of a resting order in its price level.
+     */
+    private static final class Node {
+        private final MarketOrder order;
+        private final Level level;
+        private Node previous;
+        private Node next;
+
+        Node(MarketOrder order, Level level) {
+            this.order = order;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.MarketOrder;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A slot of the order ring buffer.<br>
+ * The slots are allocated once with the ring buffer and reused: producers fill them in
+ * and the matching shard reads them, so queuing a command does not allocate.
+ * @see OrderRingBuffer
+ */
+final class OrderCommand {
+    /**
+     * Kinds of command handled by the matching shards.
+     */
+    enum Type {
+        /**
+         * Places an order in the book.
+         */
+        PLACE,
+        /**
+         * Places an order restored from the journal, without recording it again.
+         */
+        RESTORE,
+        /**
+         * Rests an order restored from a snapshot in the book, without matching it.
+         */
+        REST,
+        /**
+         * Stops the shard at a snapshot barrier.
+         */
+        SNAPSHOT,
+        /**
+         * Cancels a resting order and releases its funds.
+         */
+        CANCEL,
+        /**
+         * Cancels an order restored from the journal, without recording it again.
+         */
+        RESTORE_CANCEL
+    }
+
+    Type type;
+    MarketOrder order;
+    SnapshotBarrier barrier;
+    /**
+     * Time the order was handed to the shard, from {@link System#nanoTime()}, or 0 if it is not measured.
+     */
+    long timestamp;
+    /**
+     * Completed with the outcome of a cancellation.
+     */
+    CompletableFuture<Boolean> result;
+
+    /**
+     * Drops the references held by the slot once it has been consumed.
+     */
+    void clear() {
+        type = null;
+        order = null;
+        barrier = null;
+        result = null;
+        timestamp = 0;
+    }
+}
@@ -0,0 +1,228 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.MarketOrder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Preallocated multi-producer, single-consumer ring buffer of order commands.<br>
+ * Producers claim a sequence with an atomic increment, fill in the slot of that sequence and
+ * publish it; they never take a lock, and they only wait when the consumer is a whole ring
+ * behind. The consumer drains the published commands in batches and frees their slots at the
+ * end of every batch. While the ring is empty the consumer follows the configured wait strategy.
+ * @see OrderCommand
+ * @see WaitStrategy
+ * @see MatchingShard
+ */
+final class OrderRingBuffer {
+    /**
+     * Access to the published sequences with memory ordering.
+     */
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Preallocated slots, indexed by the sequence modulo the capacity.
+     */
+    private final OrderCommand[] slots;
+    /**
+     * Sequence published in every slot, -1 when the slot has never been published.
+     */
+    private final long[] published;
+    /**
+     * Mask used to turn a sequence into a slot index.
+     */
+    private final int mask;
+    /**
+     * Next sequence to be claimed by a producer.
+     */
+    private final AtomicLong claimSequence;
+    /**
+     * Next sequence to be consumed. Slots below it can be reused by the producers.
+     */
+    private final AtomicLong consumerSequence;
+    /**
+     * Strategy followed by the consumer when the ring is empty.
+     */
+    private final WaitStrategy waitStrategy;
+    /**
+     * Condition used by the wait strategy, created once to avoid allocating on every wait.
+     */
+    private final BooleanSupplier commandAvailable;
+    /**
+     * Maximum number of commands drained in a batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Constructs a ring buffer with all its slots allocated.
+     *
+     * @param capacity the number of slots, must be a power of two
+     * @param waitStrategy the strategy followed by the consumer when the ring is empty
+     */
+    OrderRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+        this.slots = new OrderCommand[capacity];
+        this.published = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new OrderCommand();
+            published[i] = -1;
+        }
+        this.mask = capacity - 1;
+        this.claimSequence = new AtomicLong();
+        this.consumerSequence = new AtomicLong();
+        this.waitStrategy = waitStrategy;
+        this.commandAvailable = this::isCommandAvailable;
+        this.maxBatchSize = Math.max(1, capacity / 4);
+    }
+
+    /**
+     * Publishes a command for an order. Called by any number of producer threads.
+     *
+     * @param type the kind of command
+     * @param order the order of the command
+     */
+    void publish(OrderCommand.Type type, MarketOrder order) {
+        long sequence = claim();
+        OrderCommand command = slots[(int) sequence & mask];
+        command.type = type;
+        command.order = order;
+        publish(sequence);
+    }
+
+    /**
+     * Publishes a command for an order whose latency is measured. Called by any number of producer threads.
+     *
+     * @param type the kind of command
+     * @param order the order of the command
+     * @param timestamp the time the order was handed over, from {@link System#nanoTime()}
+     */
+    void publish(OrderCommand.Type type, MarketOrder order, long timestamp) {
+        long sequence = claim();
+        OrderCommand command = slots[(int) sequence & mask];
+        command.type = type;
+        command.order = order;
+        command.timestamp = timestamp;
+        publish(sequence);
+    }
+
+    /**
+     * Publishes a cancellation. Called by any number of producer threads.
+     *
+     * @param type the kind of cancellation
+     * @param order the order to cancel
+     * @param result the future completed with the outcome, or null
+     */
+    void publish(OrderCommand.Type type, MarketOrder order, CompletableFuture<Boolean> result) {
+        long sequence = claim();
+        OrderCommand command = slots[(int) sequence & mask];
+        command.type = type;
+        command.order = order;
+        command.result = result;
+        publish(sequence);
+    }
+
+    /**
+     * Publishes a snapshot barrier. Called by any number of producer threads.
+     *
+     * @param barrier the barrier where the consumer has to stop
+     */
+    void publish(SnapshotBarrier barrier) {
+        long sequence = claim();
+        OrderCommand command = slots[(int) sequence & mask];
+        command.type = OrderCommand.Type.SNAPSHOT;
+        command.barrier = barrier;
+        publish(sequence);
+    }
+
+    /**
+     * Claims the next sequence, waiting while its slot has not been consumed yet.
+     *
+     * @return the claimed sequence
+     */
+    private long claim() {
+        long sequence = claimSequence.getAndIncrement();
+        long wrapPoint = sequence - slots.length;
+        int tries = 0;
+        while (wrapPoint >= consumerSequence.get()) {
+            if (++tries < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Makes the command of a sequence visible to the consumer and wakes it up if needed.
+     *
+     * @param sequence the claimed sequence
+     */
+    private void publish(long sequence) {
+        PUBLISHED.setVolatile(published, (int) sequence & mask, sequence);
+        waitStrategy.signal();
+    }
+
+    /**
+     * Hands the published commands to the handler, in sequence order, up to the batch size.
+     * Called only by the consumer thread. If the handler fails, the slots drained so far,
+     * including the failed one, are freed before the exception is propagated.
+     *
+     * @param handler the handler of every command
+     * @return the number of commands drained
+     */
+    int drain(Consumer<OrderCommand> handler) {
+        long first = consumerSequence.get();
+        long sequence = first;
+        long end = first + maxBatchSize;
+        try {
+            while (sequence < end && isPublished(sequence)) {
+                OrderCommand command = slots[(int) sequence & mask];
+                sequence++;
+                try {
+                    handler.accept(command);
+                } finally {
+                    command.clear();
+                }
+            }
+        } finally {
+            if (sequence != first) {
+                consumerSequence.set(sequence);
+            }
+        }
+        return (int) (sequence - first);
+    }
+
+    /**
+     * Waits with the configured strategy until there is a command to drain.
+     * Called only by the consumer thread.
+     */
+    void awaitCommand() {
+        waitStrategy.await(commandAvailable);
+    }
+
+    /**
+     * Checks if every claimed command has been executed by the consumer.
+     *
+     * @return true if the ring is empty and no producer is filling in a slot, false otherwise
+     */
+    boolean isDrained() {
+        return consumerSequence.get() == claimSequence.get();
+    }
+
+    private boolean isCommandAvailable() {
+        return isPublished(consumerSequence.get());
+    }
+
+    private boolean isPublished(long sequence) {
+        return (long) PUBLISHED.getVolatile(published, (int) sequence & mask) == sequence;
+    }
+}
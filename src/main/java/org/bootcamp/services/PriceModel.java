@@ -0,0 +1,56 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+
+import java.util.SplittableRandom;
+
+/**
+ * Model of the evolution of the value of a cryptocurrency, used by the {@link PriceSimulator}.<br>
+ * Every step starts from the previous value, so the values follow a random walk. The values are
+ * exact, not rounded to the price scale, since the steps of a short tick are often smaller than one
+ * unscaled unit. Time is measured in years of 365 days, since cryptocurrencies trade every day, and the
+ * volatility is annualized. Models are called from several threads at once, each with its own
+ * random generator, so they must not keep mutable state.
+ * @see GeometricBrownianMotionModel
+ * @see MeanReversionModel
+ */
+public interface PriceModel {
+    /**
+     * System property with the annualized volatility of the models (default 0.8).
+     */
+    String VOLATILITY_PROPERTY = "exchange.volatility";
+
+    /**
+     * Seconds in a year of 365 days.
+     */
+    double SECONDS_PER_YEAR = 365 * 24 * 60 * 60;
+
+    /**
+     * Computes the next value of a cryptocurrency.
+     *
+     * @param cryptoCurrency the cryptocurrency, with its original value
+     * @param value the previous unscaled value, with the price scale of the cryptocurrency
+     * @param interval the time elapsed since the previous value, in years
+     * @param random the random generator of the calling thread
+     * @return the next unscaled value, positive
+     */
+    double next(CryptoCurrency cryptoCurrency, double value, double interval, SplittableRandom random);
+
+    /**
+     * Creates the price model with the specified name, configured with system properties.
+     *
+     * @param name one of "gbm" or "mean-reversion"
+     * @return a new price model
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static PriceModel create(String name) {
+        double volatility = Double.parseDouble(System.getProperty(VOLATILITY_PROPERTY, "0.8"));
+        return switch (name) {
+            case "gbm" -> new GeometricBrownianMotionModel(
+                    Double.parseDouble(System.getProperty(GeometricBrownianMotionModel.DRIFT_PROPERTY, "0")), volatility);
+            case "mean-reversion" -> new MeanReversionModel(
+                    Double.parseDouble(System.getProperty(MeanReversionModel.SPEED_PROPERTY, "365")), volatility);
+            default -> throw new IllegalArgumentException("Unknown price model: " + name);
+        };
+    }
+}
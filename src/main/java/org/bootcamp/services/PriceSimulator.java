@@ -0,0 +1,111 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.InstrumentRegistry;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Advances the values of many cryptocurrencies with a {@link PriceModel}.<br>
+ * Large sets of cryptocurrencies are split into chunks that are updated in parallel on the common
+ * fork-join pool; small sets are updated on the calling thread, where a parallel split would cost
+ * more than it saves. Every thread draws from its own {@link SplittableRandom}, split from a single
+ * root generator, so the threads never contend on a shared generator and a fixed seed gives
+ * independent streams for every thread.<br>
+ * The simulator keeps the exact value of every cryptocurrency, indexed by its ordinal, and only
+ * publishes it rounded to the tick size, so steps smaller than a tick still add up.
+ * When the current value of a cryptocurrency no longer matches the kept value, because it was
+ * set elsewhere, the walk starts again from the current value.
+ * @see ExchangeService
+ */
+public class PriceSimulator {
+    /**
+     * Cryptocurrencies updated by a single task; smaller sets are updated sequentially.
+     */
+    private static final int CHUNK_SIZE = 512;
+
+    private final PriceModel model;
+    /**
+     * Root generator, only used to split the generator of every thread.
+     */
+    private final SplittableRandom root;
+    private final ThreadLocal<SplittableRandom> randoms;
+    /**
+     * Exact value of every cryptocurrency, indexed by ordinal; NaN before its first step.
+     */
+    private double[] values;
+
+    /**
+     * Constructs a new PriceSimulator.
+     *
+     * @param model the model of the values
+     * @param seed the seed of the random generators
+     */
+    public PriceSimulator(PriceModel model, long seed) {
+        this.model = model;
+        this.root = new SplittableRandom(seed);
+        this.randoms = ThreadLocal.withInitial(this::split);
+        this.values = new double[0];
+    }
+
+    public PriceModel getModel() {
+        return model;
+    }
+
+    private synchronized SplittableRandom split() {
+        return root.split();
+    }
+
+    /**
+     * Moves the current value of every cryptocurrency by one step of the model.<br>
+     * A simulator must not advance from two threads at once.
+     *
+     * @param cryptoCurrencies the cryptocurrencies to update
+     * @param intervalSeconds the time elapsed since the previous step, in seconds
+     */
+    public void advance(CryptoCurrency[] cryptoCurrencies, double intervalSeconds) {
+        double interval = intervalSeconds / PriceModel.SECONDS_PER_YEAR;
+        int ordinals = InstrumentRegistry.getInstance().size();
+        if (values.length < ordinals) {
+            int length = values.length;
+            values = Arrays.copyOf(values, Math.max(ordinals, length * 2));
+            Arrays.fill(values, length, values.length, Double.NaN);
+        }
+        int chunks = (cryptoCurrencies.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1) {
+            advance(cryptoCurrencies, 0, cryptoCurrencies.length, interval);
+            return;
+        }
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * CHUNK_SIZE;
+            advance(cryptoCurrencies, from, Math.min(from + CHUNK_SIZE, cryptoCurrencies.length), interval);
+        });
+    }
+
+    private void advance(CryptoCurrency[] cryptoCurrencies, int from, int to, double interval) {
+        SplittableRandom random = randoms.get();
+        double[] values = this.values;
+        for (int i = from; i < to; i++) {
+            CryptoCurrency cryptoCurrency = cryptoCurrencies[i];
+            int ordinal = cryptoCurrency.getOrdinal();
+            long tickSize = cryptoCurrency.getTickSize();
+            long currentValue = cryptoCurrency.getCurrentValue();
+            double value = values[ordinal];
+            if (Double.isNaN(value) || publish(value, tickSize) != currentValue) {
+                value = currentValue;
+            }
+            value = Math.max(1, model.next(cryptoCurrency, value, interval, random));
+            values[ordinal] = value;
+            cryptoCurrency.updateCurrentValue(publish(value, tickSize));
+        }
+    }
+
+    /**
+     * Rounds an exact value to the nearest multiple of the tick size, and at least one tick.
+     */
+    private static long publish(double value, long tickSize) {
+        return Math.max(1, Math.round(value / tickSize)) * tickSize;
+    }
+}
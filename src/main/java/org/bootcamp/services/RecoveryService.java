@@ -0,0 +1,168 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.*;
+import org.bootcamp.persistence.Journal;
+import org.bootcamp.persistence.JournalListener;
+import org.bootcamp.persistence.Snapshot;
+import org.bootcamp.persistence.SnapshotStore;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The RecoveryService class rebuilds the state of the platform from the journal at startup.<br>
+ * The latest snapshot, if there is one, is loaded first and only the journal events recorded
+ * after it are replayed, so the time to restart depends on the size of the state rather than on
+ * the length of the history.<br>
+ * Users, deposits and purchases from the exchange are applied again as they were recorded.
+ * Orders are placed again in their order books, and the matching shards produce the same fills
+ * and settle them again, without recording any transaction; the transactions of the buyer and
+ * the seller are restored from the fill events instead, with the IDs and the times they were
+ * recorded with, like the transactions of the purchases. Cancellations are applied again
+ * once the orders recorded before them have been matched. None of the replayed events is
+ * recorded again. An order whose funds the wallet cannot cover stops the recovery, rather than
+ * being restored with funds that were never there. This class follows the singleton pattern.
+ * @see Journal
+ * @see SnapshotStore
+ * @see AccountService
+ * @see ExchangeService
+ * @see TradingService
+ */
+public class RecoveryService implements JournalListener {
+    /**
+     * Singleton instance of the RecoveryService class.
+     */
+    private static RecoveryService instance;
+
+    private final AccountService accountService;
+    private final ExchangeService exchangeService;
+    private final TradingService tradingService;
+    /**
+     * Orders restored from the snapshot and the journal, indexed by order ID, to find the
+     * buyer and the seller of the replayed fills. Only used during a recovery.
+     */
+    private final Map<Long, MarketOrder> restoredOrders;
+
+    /**
+     * Private constructor to initialize the RecoveryService with the services it restores.
+     */
+    private RecoveryService() {
+        accountService = AccountService.getInstance();
+        exchangeService = ExchangeService.getInstance();
+        tradingService = TradingService.getInstance();
+        restoredOrders = new HashMap<>();
+    }
+
+    /**
+     * Returns the singleton instance of the RecoveryService.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of RecoveryService
+     */
+    public static RecoveryService getInstance() {
+        if (instance == null) {
+            instance = new RecoveryService();
+        }
+        return instance;
+    }
+
+    /**
+     * Loads the latest snapshot and replays the journal events after it over the services.
+     *
+     * @return the number of events replayed
+     * @throws IllegalStateException if a replayed order is not covered by the wallet of its user
+     */
+    public long recover() {
+        Journal journal = Journal.getInstance();
+        long fromSequence = 0;
+        if (journal.isEnabled()) {
+            Snapshot snapshot = SnapshotStore.getInstance().loadLatest();
+            if (snapshot != null) {
+                restore(snapshot);
+                fromSequence = snapshot.sequence();
+                journal.advanceSequence(fromSequence);
+            }
+        }
+        try {
+            return journal.replay(this, fromSequence);
+        } finally {
+            restoredOrders.clear();
+        }
+    }
+
+    /**
+     * Applies a snapshot to the services, which must not hold any state yet.
+     *
+     * @param snapshot the snapshot to apply
+     */
+    private void restore(Snapshot snapshot) {
+        for (Snapshot.UserImage image : snapshot.users()) {
+            User user = accountService.restoreUser(image.name(), image.email(), image.passwordHash());
+            user.depositFiatMoney(image.fiatMoney());
+            for (Map.Entry<String, Long> holding : image.holdings().entrySet()) {
+                user.rechargeCryptoCurrency(exchangeService.resolveCryptoCurrency(holding.getKey()), holding.getValue());
+            }
+            for (Snapshot.TransactionImage transaction : image.transactions()) {
+                user.recordTransaction(new Transaction(transaction.transactionID(), transaction.action(), exchangeService.resolveCryptoCurrency(transaction.symbol()),
+                        transaction.amount(), transaction.price(), TransactionHistory.toDateTime(transaction.epochNanos())));
+            }
+        }
+        snapshot.inventory().forEach((symbol, quantity) -> exchangeService.restoreInventory(exchangeService.resolveCryptoCurrency(symbol), quantity));
+        for (Snapshot.OrderImage image : snapshot.orders()) {
+            MarketOrder order = new MarketOrder(image.orderID(), image.orderType(), accountService.findUser(image.email()),
+                    exchangeService.resolveCryptoCurrency(image.symbol()), image.amount(), image.price());
+            order.fill(image.amount() - image.remainingAmount(), image.price() - image.remainingPrice());
+            restoredOrders.put(order.getOrderID(), order);
+            tradingService.restoreRestingOrder(order);
+        }
+        tradingService.awaitIdle();
+    }
+
+    @Override
+    public void onRegister(long sequence, String name, String email, String passwordHash) {
+        accountService.restoreUser(name, email, passwordHash);
+    }
+
+    @Override
+    public void onDeposit(long sequence, String email, long amount) {
+        accountService.findUser(email).depositFiatMoney(amount);
+    }
+
+    @Override
+    public void onExchange(long sequence, String email, String symbol, long quantity, long cost, long transactionID, long epochNanos) {
+        exchangeService.restorePurchase(accountService.findUser(email), exchangeService.resolveCryptoCurrency(symbol), quantity, cost,
+                transactionID, TransactionHistory.toDateTime(epochNanos));
+    }
+
+    @Override
+    public void onOrder(long sequence, long orderID, OrderType orderType, String email, String symbol, long amount, long price) {
+        User user = accountService.findUser(email);
+        CryptoCurrency cryptoCurrency = exchangeService.resolveCryptoCurrency(symbol);
+        MarketOrder order = new MarketOrder(orderID, orderType, user, cryptoCurrency, amount, price);
+        restoredOrders.put(orderID, order);
+        tradingService.restoreOrder(order);
+    }
+
+    @Override
+    public void onCancel(long sequence, long orderID) {
+        tradingService.restoreCancel(orderID);
+    }
+
+    @Override
+    public void onFill(long sequence, long buyOrderID, long sellingOrderID, long quantity, long price,
+                       long buyTransactionID, long sellingTransactionID, long epochNanos) {
+        // The fill itself is settled again by the matching shard; only its transactions are restored
+        MarketOrder buyOrder = restoredOrders.get(buyOrderID);
+        MarketOrder sellingOrder = restoredOrders.get(sellingOrderID);
+        if (buyOrder == null || sellingOrder == null) {
+            return;
+        }
+        CryptoCurrency cryptoCurrency = sellingOrder.getCryptoCurrency();
+        LocalDateTime dateTime = TransactionHistory.toDateTime(epochNanos);
+        sellingOrder.getUser().recordTransaction(new Transaction(sellingTransactionID, TransactionAction.SELL, cryptoCurrency,
+                quantity, price, dateTime));
+        buyOrder.getUser().recordTransaction(new Transaction(buyTransactionID, TransactionAction.BUY, cryptoCurrency,
+                quantity, price, dateTime));
+    }
+}
@@ -0,0 +1,87 @@
+package org.bootcamp.services;
+
+import org.bootcamp.persistence.Snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Point where all the matching shards stop while a snapshot is taken.<br>
+ * The barrier is queued to every shard behind the orders already published. When a shard reaches
+ * it, the shard copies its own order books and waits until the barrier is released, which happens
+ * as soon as every shard has arrived and the cut has been taken, so the copy of the books and the
+ * state of the wallets at the cut reflect the same orders and fills.
+ * @see SnapshotService
+ * @see MatchingShard
+ */
+final class SnapshotBarrier {
+    private final CountDownLatch arrivals;
+    private final CountDownLatch release;
+    private final List<Snapshot.OrderImage> orders;
+
+    /**
+     * Constructs a barrier for the specified number of shards.
+     *
+     * @param shards the number of shards that have to arrive
+     */
+    SnapshotBarrier(int shards) {
+        this.arrivals = new CountDownLatch(shards);
+        this.release = new CountDownLatch(1);
+        this.orders = new ArrayList<>();
+    }
+
+    /**
+     * Called by a shard thread with the images of its resting orders. The thread waits here
+     * until the barrier is released.
+     *
+     * @param shardOrders the resting orders of the shard, in the order they have to be placed back
+     */
+    void arrive(List<Snapshot.OrderImage> shardOrders) {
+        synchronized (orders) {
+            orders.addAll(shardOrders);
+        }
+        arrivals.countDown();
+        awaitUninterruptibly(release);
+    }
+
+    /**
+     * Waits until every shard has arrived.
+     */
+    void awaitArrivals() {
+        awaitUninterruptibly(arrivals);
+    }
+
+    /**
+     * Lets the shards go on.
+     */
+    void release() {
+        release.countDown();
+    }
+
+    /**
+     * Returns the resting orders of all the shards. Only valid once every shard has arrived.
+     *
+     * @return the images of the resting orders
+     */
+    List<Snapshot.OrderImage> orders() {
+        synchronized (orders) {
+            return new ArrayList<>(orders);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
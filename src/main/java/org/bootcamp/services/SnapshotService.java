@@ -0,0 +1,140 @@
+package org.bootcamp.services;
+
+import org.bootcamp.models.SnapshotEpoch;
+import org.bootcamp.persistence.Journal;
+import org.bootcamp.persistence.Snapshot;
+import org.bootcamp.persistence.SnapshotStore;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SnapshotService class takes point-in-time images of the platform and follows the singleton pattern.<br>
+ * A snapshot holds the users with their wallets and transactions, the inventory of the exchange
+ * and the resting orders, together with the journal sequence it reflects, so a restart only has
+ * to load it and replay the journal events that came after it.<br>
+ * To take a consistent image the service closes the {@link CheckpointGate} and stops the matching
+ * shards at a {@link SnapshotBarrier} only for the cut: every shard copies its own order books,
+ * and once they have all arrived the journal sequence is read and a new {@link SnapshotEpoch}
+ * is started, then the shards are released. The users, wallets and transactions are copied after
+ * that while trading goes on, from the state the wallets and histories keep for the cut, and the
+ * copy is encoded and written to disk by a background thread.
+ * Snapshots are taken every {@value #INTERVAL_PROPERTY} seconds (default 300, 0 turns them off)
+ * as long as the journal is enabled.
+ * @see SnapshotStore
+ * @see RecoveryService
+ */
+public class SnapshotService {
+    /**
+     * System property with the interval in seconds between snapshots.
+     */
+    public static final String INTERVAL_PROPERTY = "snapshot.intervalSeconds";
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotService.class.getName());
+
+    /**
+     * Singleton instance of the SnapshotService class.
+     */
+    private static SnapshotService instance;
+
+    private final AccountService accountService;
+    private final ExchangeService exchangeService;
+    private final TradingService tradingService;
+    private final CheckpointGate gate;
+    /**
+     * Thread that writes the snapshots and takes the periodic ones.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Private constructor to initialize the SnapshotService and schedule the periodic snapshots.
+     */
+    private SnapshotService() {
+        accountService = AccountService.getInstance();
+        exchangeService = ExchangeService.getInstance();
+        tradingService = TradingService.getInstance();
+        gate = CheckpointGate.getInstance();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Long.getLong(INTERVAL_PROPERTY, 300);
+        if (Journal.getInstance().isEnabled() && interval > 0) {
+            executor.scheduleWithFixedDelay(this::saveSnapshot, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Returns the singleton instance of the SnapshotService.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of SnapshotService
+     */
+    public static SnapshotService getInstance() {
+        if (instance == null) {
+            instance = new SnapshotService();
+        }
+        return instance;
+    }
+
+    /**
+     * Takes a snapshot and writes it in the background.
+     *
+     * @return a future completed with the path of the snapshot file once it is on disk
+     */
+    public CompletableFuture<Path> takeSnapshot() {
+        Snapshot snapshot = capture();
+        return CompletableFuture.supplyAsync(() -> SnapshotStore.getInstance().save(snapshot), executor);
+    }
+
+    /**
+     * Copies the state of the services at a single point in time.<br>
+     * The gate holds back the account, exchange and order operations, and the barrier stops
+     * every shard once it has executed the orders queued before it and copied its books; the
+     * journal sequence read at that point separates the events included in the image from the
+     * ones to replay. The shards are released as soon as the epoch of the cut has started, and
+     * the gate once the inventory has been read, before the users are copied.
+     *
+     * @return the image of the state
+     */
+    synchronized Snapshot capture() {
+        long sequence;
+        long epoch;
+        List<Snapshot.OrderImage> orders;
+        Map<String, Long> inventory;
+        gate.close();
+        try {
+            SnapshotBarrier barrier = tradingService.pauseShards();
+            try {
+                sequence = Journal.getInstance().getNextSequence();
+                epoch = SnapshotEpoch.getInstance().advance();
+            } finally {
+                barrier.release();
+            }
+            orders = barrier.orders();
+            inventory = exchangeService.captureInventory();
+        } finally {
+            gate.open();
+        }
+        return new Snapshot(sequence, accountService.captureUsers(epoch), inventory, orders);
+    }
+
+    /**
+     * Takes and writes a periodic snapshot, logging any failure so the next ones are still taken.
+     */
+    private void saveSnapshot() {
+        try {
+            SnapshotStore.getInstance().save(capture());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Periodic snapshot failed", e);
+        }
+    }
+}
@@ -1,25 +1,74 @@
 package org.bootcamp.services;
 
+import org.bootcamp.metrics.LatencyRecorder;
+import org.bootcamp.metrics.ServiceMetrics;
 import org.bootcamp.models.*;
 import org.bootcamp.views.TradingServiceSubscriber;
 
-import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The trading service uses the observer pattern and the singleton pattern.
- * It hosts buy orders, searches for suitable buy and sell matches every 5 seconds.
- * When buy and sell matches are found, requests are processed and subscribers are notified.
+ * It hosts the market orders in one order book per cryptocurrency and matches every order
+ * as soon as it is placed, following the price-time priority.<br>
+ * Matching is sharded by cryptocurrency: every order book belongs to a single matching shard,
+ * whose thread is the only writer of the book. Cryptocurrencies are spread over the shards
+ * when they are first traded, so orders of different cryptocurrencies can be matched in parallel.
+ * The number of shards is taken from the {@value #SHARDS_PROPERTY} system property and
+ * defaults to the number of available processors.<br>
+ * Orders reach the shards through lock-free ring buffers. The size of every ring is taken from
+ * the {@value #RING_SIZE_PROPERTY} system property, and the way the shard threads wait for
+ * orders from the {@value #WAIT_STRATEGY_PROPERTY} system property: "blocking" (default),
+ * "yielding" or "busy-spin", from the least CPU use to the lowest latency.
+ * When buy and sell matches are found, requests are processed and subscribers are notified
+ * from the shard thread.
  * @see MarketOrder
+ * @see OrderBook
+ * @see MatchingShard
  */
 public class TradingService {
     /**
-     * List of market orders.
+     * System property with the number of matching shards.
      */
-    private final List<MarketOrder> orders;
+    public static final String SHARDS_PROPERTY = "trading.shards";
+
+    /**
+     * System property with the number of slots of the ring buffer of every shard.
+     */
+    public static final String RING_SIZE_PROPERTY = "trading.ringSize";
+
+    /**
+     * System property with the wait strategy of the shard threads.
+     * @see WaitStrategy#create(String)
+     */
+    public static final String WAIT_STRATEGY_PROPERTY = "trading.waitStrategy";
+
+    /**
+     * Matching shards, each one with its own thread.
+     */
+    private final MatchingShard[] shards;
+
+    /**
+     * Shard assigned to every traded cryptocurrency.
+     */
+    private final Map<CryptoCurrency, MatchingShard> shardAssignments;
+
+    /**
+     * Index of the shard that will receive the next cryptocurrency.
+     */
+    private final AtomicInteger nextShard;
+
+    /**
+     * Gate that keeps the reservation and the publication of an order together for the snapshots.
+     */
+    private final CheckpointGate gate;
 
     /**
      * Singleton instance of the TradingService.
@@ -31,17 +80,34 @@ public class TradingService {
      */
     private final List<TradingServiceSubscriber> exchangeServiceSubscribers;
 
+    /**
+     * Orders placed and not yet filled or cancelled, indexed by order ID.
+     */
+    private final Map<Long, MarketOrder> openOrders;
+
+    /**
+     * Latency of the notifications of the fills.
+     */
+    private final LatencyRecorder notifyLatency;
+
     /**
      * Private constructor to initialize the TradingService.<br>
-     * Initializes the list of orders and subscribers, and schedules a task to match orders at fixed intervals.
+     * Initializes the list of subscribers and starts the matching shards.
      */
     private TradingService() {
-        orders = new ArrayList<>();
-        exchangeServiceSubscribers = new ArrayList<>();
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-        Runnable tarea = this::matchOrders;
-
-        executor.scheduleAtFixedRate(tarea, 5, 5, TimeUnit.SECONDS);
+        exchangeServiceSubscribers = new CopyOnWriteArrayList<>();
+        int shardCount = Math.max(1, Integer.getInteger(SHARDS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+        int ringSize = Integer.getInteger(RING_SIZE_PROPERTY, 1 << 14);
+        String waitStrategy = System.getProperty(WAIT_STRATEGY_PROPERTY, "blocking");
+        shards = new MatchingShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new MatchingShard(this, i, ringSize, WaitStrategy.create(waitStrategy));
+        }
+        shardAssignments = new ConcurrentHashMap<>();
+        nextShard = new AtomicInteger();
+        gate = CheckpointGate.getInstance();
+        openOrders = new ConcurrentHashMap<>();
+        notifyLatency = ServiceMetrics.getInstance().getFillNotify();
     }
 
     /**
@@ -63,13 +129,14 @@ public class TradingService {
     }
 
     /**
-     * Notifies all subscribers with the matched market orders.
+     * Notifies all subscribers with a fill between two market orders.
      *
-     * @param buyOrder The market order for buying.
-     * @param sellingOrder The market order for selling.
+     * @param fill The fill executed between a buy order and a selling order.
      */
-    public void notifySubscribers(MarketOrder buyOrder, MarketOrder sellingOrder) {
-        exchangeServiceSubscribers.forEach(exchangeServiceSubscriber -> exchangeServiceSubscriber.update(buyOrder, sellingOrder));
+    public void notifySubscribers(Fill fill) {
+        long start = System.nanoTime();
+        exchangeServiceSubscribers.forEach(exchangeServiceSubscriber -> exchangeServiceSubscriber.update(fill));
+        notifyLatency.recordSince(start);
     }
 
 
@@ -87,72 +154,311 @@ public class TradingService {
     }
 
     /**
-     * Adds a new market order to the list of orders.
+     * Places a new market order in the order book of its cryptocurrency.<br>
+     * The order is queued to the matching shard of the cryptocurrency, which matches it against
+     * the resting orders of the opposite side, sweeping as many counter-orders as needed; the
+     * amount that could not be filled rests in the book until a counter-order arrives.
      *
      * @param order The market order to be added.
+     * @see #processOrders(MarketOrder, MarketOrder, Transfer, boolean)
+     * @see #notifySubscribers(Fill)
      */
     public void putOrder(MarketOrder order) {
-        orders.add(order);
-    }
-    
-    /**
-     * Matches buy and sell orders from the list of orders.
-     * Filters and sorts the orders by type, then iterates through buy orders to find matching sell orders.
-     * If a match is found, processes the orders and notifies subscribers.
-     * @see #processOrders(MarketOrder, MarketOrder)
-     * @see #notifySubscribers(MarketOrder, MarketOrder) 
-     */
-    public void matchOrders() {
-        List<MarketOrder> sellingOrders = orders.stream().filter((order) -> order.getOrderType() == OrderType.SELLING).sorted().toList();
-        List<MarketOrder> buyOrders = orders.stream().filter((order) -> order.getOrderType() == OrderType.BUY).sorted().toList();
-
-        for (MarketOrder buyOrder : buyOrders) {
-            boolean match = false;
-            Iterator<MarketOrder> sellingOrdersIterator = sellingOrders.iterator();
-            while (!match && sellingOrdersIterator.hasNext()){
-                MarketOrder sellingOrder = sellingOrdersIterator.next();
-                if (!buyOrder.getUser().equals(sellingOrder.getUser())){
-                    boolean exactAmount = sellingOrder.getAmount().compareTo(buyOrder.getAmount()) == 0;
-                    boolean sellingPriceMatches = sellingOrder.getPrice().compareTo(buyOrder.getPrice()) <= 0;
-                    if (exactAmount && sellingPriceMatches) {
-                        match = true;
-                        processOrders(buyOrder, sellingOrder);
-                        notifySubscribers(buyOrder, sellingOrder);
-                    }
+        openOrders.put(order.getOrderID(), order);
+        shardFor(order.getCryptoCurrency()).submit(order);
+    }
+
+    /**
+     * Places a market order on behalf of the user of a session.<br>
+     * The funds of the order are reserved from the wallet of the user first: buy orders reserve
+     * their price in fiat money and selling orders reserve their amount of cryptocurrency; the
+     * reservation is given back through the fills.
+     *
+     * @param session the session of the user placing the order
+     * @param orderType the type of order
+     * @param cryptoCurrency the cryptocurrency to trade
+     * @param amount the unscaled amount of cryptocurrency, must be positive
+     * @param price the unscaled total price of the order, in fiat money
+     * @return the placed order
+     * @throws AccountServiceException if the session has been closed or the user does not have enough funds
+     * @throws IllegalArgumentException if the exchange does not list the cryptocurrency
+     * @see #putOrder(MarketOrder)
+     */
+    public MarketOrder placeOrder(Session session, OrderType orderType, CryptoCurrency cryptoCurrency, long amount, long price) throws AccountServiceException {
+        User user = AccountService.getInstance().authenticate(session);
+        if (!ExchangeService.getInstance().isListed(cryptoCurrency)) {
+            throw new IllegalArgumentException(cryptoCurrency.getShorthandSymbol() + " is not listed");
+        }
+        MarketOrder order = new MarketOrder(orderType, user, cryptoCurrency, amount, price);
+        gate.enter();
+        try {
+            if (orderType == OrderType.BUY) {
+                if (!user.subtractFiatMoney(price)) {
+                    throw new AccountServiceException("User has not enough funds to complete the transaction.");
                 }
+            } else if (!user.subtractCryptoCurrency(cryptoCurrency, amount)) {
+                throw new AccountServiceException("User has not enough cryptocurrencies to complete the transaction.");
+            }
+            putOrder(order);
+            return order;
+        } finally {
+            gate.exit();
+        }
+    }
+
+    /**
+     * Cancels a resting market order of the user of a session and gives its reserved funds back:
+     * the pending price of a buy order, or the amount still to be sold of a selling order.<br>
+     * The order is found by its ID and removed from its price level in constant time by the
+     * matching shard of its cryptocurrency, after the commands already queued to the shard,
+     * and the funds go back to the wallet in a single transfer.
+     *
+     * @param session the session of the user who placed the order
+     * @param orderID the ID of the order
+     * @return a future completed with true if the order was cancelled, or false if it is not
+     * an open order of the user
+     * @throws AccountServiceException if the session has been closed
+     */
+    public CompletableFuture<Boolean> cancelOrder(Session session, long orderID) throws AccountServiceException {
+        User user = AccountService.getInstance().authenticate(session);
+        MarketOrder order = openOrders.get(orderID);
+        if (order == null || !order.getUser().equals(user)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        gate.enter();
+        try {
+            shardFor(order.getCryptoCurrency()).cancel(order, result);
+        } finally {
+            gate.exit();
+        }
+        return result;
+    }
+
+    /**
+     * Finds an order that has been placed and is not yet filled or cancelled.
+     *
+     * @param orderID the ID of the order
+     * @return the order, or null if there is no open order with that ID
+     */
+    public MarketOrder findOrder(long orderID) {
+        return openOrders.get(orderID);
+    }
+
+    /**
+     * Returns the orders of the user of a session that are not yet filled or cancelled.
+     *
+     * @param session the session of the user
+     * @return the open orders of the user
+     * @throws AccountServiceException if the session has been closed
+     */
+    public List<MarketOrder> getOpenOrders(Session session) throws AccountServiceException {
+        User user = AccountService.getInstance().authenticate(session);
+        List<MarketOrder> orders = new ArrayList<>();
+        for (MarketOrder order : openOrders.values()) {
+            if (order.getUser().equals(user)) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Forgets an order that has been filled. Called by the shard that owns the order.
+     *
+     * @param order the filled order
+     */
+    void closeOrder(MarketOrder order) {
+        openOrders.remove(order.getOrderID(), order);
+    }
+
+    /**
+     * Gives back the funds reserved by an order that has been removed from its book.
+     * Called by the shard that owns the order.
+     *
+     * @param order the cancelled order
+     * @param settlement the transfer of the shard
+     */
+    void releaseOrder(MarketOrder order, Transfer settlement) {
+        Wallet wallet = order.getUser().getWallet();
+        if (order.getOrderType() == OrderType.BUY) {
+            settlement.creditFiat(wallet, order.releaseRemainingPrice());
+            order.releaseRemainingAmount();
+        } else {
+            settlement.creditCrypto(wallet, order.getCryptoCurrency(), order.releaseRemainingAmount());
+            order.releaseRemainingPrice();
+        }
+        settlement.commit();
+        closeOrder(order);
+    }
+
+    /**
+     * Cancels an order restored from the journal, once the orders recorded before the
+     * cancellation have been matched again.
+     *
+     * @param orderID the ID of the cancelled order
+     */
+    void restoreCancel(long orderID) {
+        MarketOrder order = openOrders.get(orderID);
+        if (order != null) {
+            MatchingShard shard = shardFor(order.getCryptoCurrency());
+            shard.restoreCancel(order);
+            while (!shard.isIdle()) {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    /**
+     * Places a market order restored from the journal.<br>
+     * The funds reserved when the order was placed are taken again from the wallet of the user,
+     * and the order is matched again by the shard of its cryptocurrency. Orders reach every shard
+     * in the order they were recorded, so they produce the same fills as the first time.
+     * The method waits until the shard has matched the order, because the wallets are also
+     * updated by the events that follow it in the journal.<br>
+     * The events that credit a wallet are recorded before the credit is applied, so the funds of an
+     * order are always restored before it; an order the wallet cannot cover means the journal does
+     * not match the state, and it is not restored.
+     *
+     * @param order the restored order
+     * @throws IllegalStateException if the wallet of the user cannot cover the funds of the order
+     */
+    void restoreOrder(MarketOrder order) {
+        boolean reserved;
+        if (order.getOrderType() == OrderType.BUY) {
+            reserved = order.getUser().subtractFiatMoney(order.getPrice());
+        } else {
+            reserved = order.getUser().subtractCryptoCurrency(order.getCryptoCurrency(), order.getAmount());
+        }
+        if (!reserved) {
+            throw new IllegalStateException("The restored order " + order.getOrderID() + " of "
+                    + order.getUser().getEmail() + " is not covered by the wallet");
+        }
+        openOrders.put(order.getOrderID(), order);
+        MatchingShard shard = shardFor(order.getCryptoCurrency());
+        shard.restore(order);
+        while (!shard.isIdle()) {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    /**
+     * Rests a market order restored from a snapshot in its order book, without matching it.
+     *
+     * @param order the restored order, with its remaining amount and price
+     */
+    void restoreRestingOrder(MarketOrder order) {
+        openOrders.put(order.getOrderID(), order);
+        shardFor(order.getCryptoCurrency()).rest(order);
+    }
+
+    /**
+     * Waits until every shard has executed the commands queued so far.
+     */
+    void awaitIdle() {
+        for (MatchingShard shard : shards) {
+            while (!shard.isIdle()) {
+                LockSupport.parkNanos(10_000);
             }
         }
     }
 
     /**
-     * Processes matched buy and sell orders.
+     * Stops every shard at a snapshot barrier, once they have executed the orders queued so far.
+     *
+     * @return the barrier, with the resting orders of all the shards, that has to be released
+     */
+    SnapshotBarrier pauseShards() {
+        SnapshotBarrier barrier = new SnapshotBarrier(shards.length);
+        for (MatchingShard shard : shards) {
+            shard.pause(barrier);
+        }
+        barrier.awaitArrivals();
+        return barrier;
+    }
+
+    /**
+     * Returns the matching shard of a cryptocurrency, assigning one in turn the first time
+     * the cryptocurrency is traded.
+     *
+     * @param cryptoCurrency the traded cryptocurrency
+     * @return the shard that owns the order book of the cryptocurrency
+     */
+    private MatchingShard shardFor(CryptoCurrency cryptoCurrency) {
+        MatchingShard shard = shardAssignments.get(cryptoCurrency);
+        if (shard == null) {
+            shard = shardAssignments.computeIfAbsent(cryptoCurrency,
+                    assigned -> shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)]);
+        }
+        return shard;
+    }
+
+    /**
+     * Processes a fill between matched buy and sell orders.<br>
+     * The quantity exchanged is the smallest remaining amount of both orders, and it is paid
+     * at the unit price of the selling order. All the amounts are fixed-point longs, so the
+     * settlement does not allocate intermediate values.
      * Creates and records transactions for both the buyer and seller.
-     * Updates the users' fiat money and cryptocurrency balances.
-     * Removes the processed orders from the list of orders.
+     * Updates the users' fiat money and cryptocurrency balances, and gives back to the buyer
+     * the part of the reserved price that was not used once the buy order is filled. The funds
+     * were reserved when the orders were placed, so the settlement only credits the wallets,
+     * and all the credits are applied by a single transfer.<br>
+     * The fill is failure-atomic: every amount is computed and every leg is staged before the
+     * orders, the histories and the wallets are changed, so a fill that fails leaves them as they were.<br>
+     * It is called from the thread of the matching shard that owns the orders.
      *
      * @param buyOrder The market order for buying.
      * @param sellingOrder The market order for selling.
+     * @param settlement the transfer of the shard, reused to settle its fills
+     * @param record true to record the transactions of the fill, false for restored orders, whose
+     *               transactions are restored from the fill events of the journal
+     * @return the executed fill
      * @see User#recordTransaction(Transaction)
-     * @see User#depositFiatMoney(BigDecimal)
-     * @see User#rechargeCryptoCurrency(CryptoCurrency, BigDecimal)
+     * @see Transfer
      * @see MarketOrder
      * @see Transaction
      */
-    private void processOrders(MarketOrder buyOrder, MarketOrder sellingOrder) {
-        Transaction buyerTransaction = new Transaction(TransactionAction.BUY, buyOrder.getCryptoCurrency(), buyOrder.getAmount(), sellingOrder.getPrice());
-        Transaction sellerTransaction = new Transaction(TransactionAction.SELL, sellingOrder.getCryptoCurrency(), sellingOrder.getAmount(), sellingOrder.getPrice());
-
-        sellingOrder.getUser().recordTransaction(sellerTransaction);
-        buyOrder.getUser().recordTransaction(buyerTransaction);
-
-        sellingOrder.getUser().depositFiatMoney(sellingOrder.getPrice());
-        buyOrder.getUser().rechargeCryptoCurrency(buyOrder.getCryptoCurrency(), buyOrder.getAmount());
+    Fill processOrders(MarketOrder buyOrder, MarketOrder sellingOrder, Transfer settlement, boolean record) {
+        CryptoCurrency cryptoCurrency = sellingOrder.getCryptoCurrency();
+        long quantity = Math.min(buyOrder.getRemainingAmount(), sellingOrder.getRemainingAmount());
+        long value;
+        if (quantity == sellingOrder.getRemainingAmount()) {
+            value = sellingOrder.getRemainingPrice();
+        } else {
+            value = FixedPoint.multiply(quantity, cryptoCurrency.getQuantityScale(), sellingOrder.getUnitPrice(),
+                    cryptoCurrency.getPriceScale(), FixedPoint.FIAT_SCALE, RoundingMode.HALF_EVEN);
+        }
+        value = Math.min(value, buyOrder.getRemainingPrice());
+        boolean buyOrderFilled = quantity == buyOrder.getRemainingAmount();
+        long unusedPrice = buyOrderFilled ? FixedPoint.subtract(buyOrder.getRemainingPrice(), value) : 0;
 
-        if (sellingOrder.getPrice().compareTo(buyOrder.getPrice()) < 0) {
-            buyOrder.getUser().depositFiatMoney(buyOrder.getPrice().subtract(sellingOrder.getPrice()));
+        Transaction buyerTransaction = null;
+        Transaction sellerTransaction = null;
+        if (record) {
+            LocalDateTime now = LocalDateTime.now();
+            IdGenerator idGenerator = IdGenerator.getInstance();
+            buyerTransaction = new Transaction(idGenerator.nextId(), TransactionAction.BUY, cryptoCurrency, quantity, value, now);
+            sellerTransaction = new Transaction(idGenerator.nextId(), TransactionAction.SELL, cryptoCurrency, quantity, value, now);
+        }
+        try {
+            settlement.creditFiat(sellingOrder.getUser().getWallet(), value)
+                    .creditCrypto(buyOrder.getUser().getWallet(), cryptoCurrency, quantity)
+                    .creditFiat(buyOrder.getUser().getWallet(), unusedPrice);
+        } catch (RuntimeException e) {
+            settlement.clear();
+            throw e;
         }
 
-        orders.remove(buyOrder);
-        orders.remove(sellingOrder);
+        buyOrder.fill(quantity, value);
+        sellingOrder.fill(quantity, value);
+        if (buyOrderFilled) {
+            buyOrder.releaseRemainingPrice();
+        }
+        if (record) {
+            sellingOrder.getUser().recordTransaction(sellerTransaction);
+            buyOrder.getUser().recordTransaction(buyerTransaction);
+        }
+        settlement.commit();
+        return new Fill(buyOrder, sellingOrder, quantity, value, buyerTransaction, sellerTransaction);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package org.bootcamp.services;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Strategy used by the consumer of an order ring buffer while there are no commands to drain.<br>
+ * It trades latency for CPU use: blocking parks the consumer thread, yielding gives the CPU
+ * back to the scheduler, and busy spin keeps the core for the lowest latency.
+ * Every ring buffer needs its own instance, since it may keep track of the waiting consumer.
+ * @see OrderRingBuffer
+ * @see BlockingWaitStrategy
+ * @see YieldingWaitStrategy
+ * @see BusySpinWaitStrategy
+ */
+public interface WaitStrategy {
+    /**
+     * Waits until the condition holds. Implementations may return earlier,
+     * so callers must check the condition again.
+     *
+     * @param condition the condition that ends the wait
+     */
+    void await(BooleanSupplier condition);
+
+    /**
+     * Wakes up the consumer after a producer has published a command.
+     * Producers call it on every publication, so it must not take locks.
+     */
+    void signal();
+
+    /**
+     * Creates the wait strategy with the specified name.
+     *
+     * @param name one of "blocking", "yielding" or "busy-spin"
+     * @return a new wait strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static WaitStrategy create(String name) {
+        return switch (name) {
+            case "blocking" -> new BlockingWaitStrategy();
+            case "yielding" -> new YieldingWaitStrategy();
+            case "busy-spin" -> new BusySpinWaitStrategy();
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package org.bootcamp.services;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wait strategy that spins for a while and then yields the CPU on every check.<br>
+ * It keeps a low latency without burning a whole core when the market is quiet.
+ * @see WaitStrategy
+ */
+public final class YieldingWaitStrategy implements WaitStrategy {
+    /**
+     * Number of checks done before starting to yield.
+     */
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public void await(BooleanSupplier condition) {
+        int tries = 0;
+        while (!condition.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+            if (tries < SPIN_TRIES) {
+                tries++;
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public void signal() {
+    }
+}
@@ -0,0 +1,35 @@
+package org.bootcamp.simulation;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.OrderType;
+
+import java.util.SplittableRandom;
+
+/**
+ * Strategy of a trader that provides liquidity.<br>
+ * Every action cancels the quotes left by the previous action and quotes a cryptocurrency on both
+ * sides of its current value, a buy order below it and a selling order above it, so the book
+ * always has resting orders for the random traders to cross. The selling side is only quoted
+ * while the trader holds the cryptocurrency.
+ * @see TraderStrategy
+ */
+public class MarketMakerStrategy implements TraderStrategy {
+    /**
+     * Distance of each quote from the current value, in basis points.
+     */
+    private static final int HALF_SPREAD_BPS = 20;
+
+    @Override
+    public void act(Trader trader, SplittableRandom random) {
+        trader.cancelQuotes();
+        CryptoCurrency cryptoCurrency = trader.pickCryptoCurrency(random);
+        // Between 0.001 and 0.05 units of the cryptocurrency
+        long unit = Math.max(1, SimulationMath.unit(cryptoCurrency) / 1_000);
+        long quantity = unit * random.nextInt(1, 51);
+        long value = cryptoCurrency.getCurrentValue();
+        trader.quote(OrderType.BUY, cryptoCurrency, quantity, SimulationMath.deviate(value, -HALF_SPREAD_BPS));
+        if (trader.getWallet().checkCryptoFunds(cryptoCurrency, quantity)) {
+            trader.quote(OrderType.SELLING, cryptoCurrency, quantity, SimulationMath.deviate(value, HALF_SPREAD_BPS));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.bootcamp.simulation;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.OrderType;
+
+import java.util.SplittableRandom;
+
+/**
+ * Strategy of a trader that takes liquidity at random.<br>
+ * Every action picks a cryptocurrency and either buys it from the exchange, or places a buy or a
+ * selling order for a small quantity at a unit price within one percent of the current value, so
+ * most orders cross the quotes of the market makers. A trader that does not hold enough of the
+ * cryptocurrency to sell buys instead.
+ * @see TraderStrategy
+ */
+public class RandomTraderStrategy implements TraderStrategy {
+    /**
+     * Percentage of the actions that buy from the exchange.
+     */
+    private static final int PURCHASE_PERCENT = 5;
+    /**
+     * Largest deviation of the unit price from the current value, in basis points.
+     */
+    private static final int MAX_DEVIATION_BPS = 100;
+
+    @Override
+    public void act(Trader trader, SplittableRandom random) {
+        CryptoCurrency cryptoCurrency = trader.pickCryptoCurrency(random);
+        // Between 0.0001 and 0.01 units of the cryptocurrency
+        long unit = Math.max(1, SimulationMath.unit(cryptoCurrency) / 10_000);
+        long quantity = unit * random.nextInt(1, 101);
+        int roll = random.nextInt(100);
+        if (roll < PURCHASE_PERCENT) {
+            trader.purchase(cryptoCurrency, quantity);
+            return;
+        }
+        long unitPrice = SimulationMath.deviate(cryptoCurrency.getCurrentValue(), random.nextInt(-MAX_DEVIATION_BPS, MAX_DEVIATION_BPS + 1));
+        if (roll % 2 == 0 && trader.getWallet().checkCryptoFunds(cryptoCurrency, quantity)) {
+            trader.placeOrder(OrderType.SELLING, cryptoCurrency, quantity, unitPrice);
+        } else {
+            trader.placeOrder(OrderType.BUY, cryptoCurrency, quantity, unitPrice);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.bootcamp.simulation;
+
+import org.bootcamp.metrics.LatencyHistogram;
+import org.bootcamp.metrics.ServiceMetrics;
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.CryptoCurrencyException;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.PasswordHash;
+import org.bootcamp.models.Session;
+import org.bootcamp.persistence.Journal;
+import org.bootcamp.services.AccountService;
+import org.bootcamp.services.AccountServiceException;
+import org.bootcamp.services.ExchangeService;
+import org.bootcamp.services.TradingService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless load generator that drives the services with simulated traders instead of the console.<br>
+ * It registers the users through the AccountService, funds them with fiat money and with a share of
+ * the inventory of the exchange, and starts agent threads that make the traders act at a target
+ * rate: every agent owns a slice of the traders and paces their actions on a fixed schedule, so the
+ * load does not slow down when the platform does. After a warm-up the metrics are reset, and at the
+ * end the sustained throughput, the fill latency percentiles, the latencies of the services and the
+ * heap use are reported.<br>
+ * The simulation runs on a fresh platform: the journal is turned off unless {@value Journal#ENABLED_PROPERTY}
+ * is set, the passwords of the users are hashed with a single iteration unless
+ * {@value PasswordHash#ITERATIONS_PROPERTY} is set, and no snapshot is restored or taken. It is
+ * configured with system properties:
+ * <ul>
+ *   <li>{@value #USERS_PROPERTY} - number of simulated users (default 1000)</li>
+ *   <li>{@value #AGENTS_PROPERTY} - number of agent threads (default the number of processors)</li>
+ *   <li>{@value #RATE_PROPERTY} - target actions per second of all the agents (default 20000)</li>
+ *   <li>{@value #DURATION_PROPERTY} - measured seconds (default 30)</li>
+ *   <li>{@value #WARMUP_PROPERTY} - seconds of warm-up before measuring (default 5)</li>
+ *   <li>{@value #STRATEGIES_PROPERTY} - comma separated strategies given to the users in turn
+ *   (default "random,market-maker")</li>
+ *   <li>{@value #DEPOSIT_PROPERTY} - fiat money deposited to every user (default 1000000)</li>
+ *   <li>{@value #SEED_PROPERTY} - seed of the random generators (default random)</li>
+ * </ul>
+ * @see TraderStrategy
+ * @see SimulationMetrics
+ */
+public class Simulation {
+    /**
+     * System property with the number of simulated users.
+     */
+    public static final String USERS_PROPERTY = "simulation.users";
+    /**
+     * System property with the number of agent threads.
+     */
+    public static final String AGENTS_PROPERTY = "simulation.agents";
+    /**
+     * System property with the target actions per second of all the agents.
+     */
+    public static final String RATE_PROPERTY = "simulation.rate";
+    /**
+     * System property with the measured seconds.
+     */
+    public static final String DURATION_PROPERTY = "simulation.durationSeconds";
+    /**
+     * System property with the seconds of warm-up.
+     */
+    public static final String WARMUP_PROPERTY = "simulation.warmupSeconds";
+    /**
+     * System property with the strategies of the users.
+     * @see TraderStrategy#create(String)
+     */
+    public static final String STRATEGIES_PROPERTY = "simulation.strategies";
+    /**
+     * System property with the fiat money deposited to every user.
+     */
+    public static final String DEPOSIT_PROPERTY = "simulation.deposit";
+    /**
+     * System property with the seed of the random generators.
+     */
+    public static final String SEED_PROPERTY = "simulation.seed";
+
+    /**
+     * Largest delay an agent catches up with before it skips the actions it missed.
+     */
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Logger LOGGER = Logger.getLogger(Simulation.class.getName());
+
+    private final int userCount;
+    private final int agentCount;
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final TraderStrategy[] strategies;
+    private final long deposit;
+    private final SplittableRandom random;
+    private final SimulationMetrics metrics;
+    private volatile boolean running;
+
+    /**
+     * Constructs a simulation from the system properties.
+     */
+    public Simulation() {
+        userCount = Math.max(1, Integer.getInteger(USERS_PROPERTY, 1000));
+        agentCount = Math.max(1, Integer.getInteger(AGENTS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+        rate = Math.max(1, Integer.getInteger(RATE_PROPERTY, 20_000));
+        durationSeconds = Math.max(1, Integer.getInteger(DURATION_PROPERTY, 30));
+        warmupSeconds = Math.max(0, Integer.getInteger(WARMUP_PROPERTY, 5));
+        strategies = Arrays.stream(System.getProperty(STRATEGIES_PROPERTY, "random,market-maker").split(","))
+                .map(String::trim).map(TraderStrategy::create).toArray(TraderStrategy[]::new);
+        deposit = FixedPoint.toFiat(new BigDecimal(System.getProperty(DEPOSIT_PROPERTY, "1000000")));
+        String seed = System.getProperty(SEED_PROPERTY);
+        random = seed == null ? new SplittableRandom() : new SplittableRandom(Long.parseLong(seed));
+        metrics = new SimulationMetrics();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty(Journal.ENABLED_PROPERTY) == null) {
+            System.setProperty(Journal.ENABLED_PROPERTY, "false");
+        }
+        if (System.getProperty(PasswordHash.ITERATIONS_PROPERTY) == null) {
+            System.setProperty(PasswordHash.ITERATIONS_PROPERTY, "1");
+        }
+        new Simulation().run();
+        // The exchange keeps a non-daemon thread for the price fluctuations
+        System.exit(0);
+    }
+
+    /**
+     * Creates the traders, runs the agents for the warm-up and the measured time and prints the report.
+     *
+     * @throws AccountServiceException if a user cannot be registered or funded
+     * @throws InterruptedException if the thread is interrupted while waiting for the agents
+     */
+    public void run() throws AccountServiceException, InterruptedException {
+        Trader[] traders = createTraders();
+        TradingService tradingService = TradingService.getInstance();
+        tradingService.subscribe(metrics);
+        Thread[] agents = new Thread[agentCount];
+        long intervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) * agentCount / rate);
+        running = true;
+        for (int i = 0; i < agentCount; i++) {
+            Trader[] slice = slice(traders, i);
+            SplittableRandom agentRandom = random.split();
+            agents[i] = new Thread(() -> drive(slice, agentRandom, intervalNanos), "simulation-agent-" + i);
+            agents[i].start();
+        }
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        metrics.reset();
+        ServiceMetrics.getInstance().intervalSnapshot();
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        running = false;
+        for (Thread agent : agents) {
+            agent.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        tradingService.unSubscribe(metrics);
+        report(elapsed);
+    }
+
+    /**
+     * Registers the users, deposits their fiat money and buys them a share of half the inventory
+     * of the exchange; the other half is left for the purchases of the traders.
+     *
+     * @return the traders
+     * @throws AccountServiceException if a user cannot be registered or funded
+     */
+    private Trader[] createTraders() throws AccountServiceException {
+        ExchangeService exchangeService = ExchangeService.getInstance();
+        AccountService accountService = AccountService.getInstance();
+        CryptoCurrency[] cryptoCurrencies = exchangeService.getAvailableCryptoCurrencies().stream()
+                .sorted(Comparator.comparingInt(CryptoCurrency::getOrdinal)).toArray(CryptoCurrency[]::new);
+        long[] shares = new long[cryptoCurrencies.length];
+        for (int i = 0; i < cryptoCurrencies.length; i++) {
+            shares[i] = exchangeService.getAvailableQuantity(cryptoCurrencies[i]) / 2 / userCount;
+        }
+        Trader[] traders = new Trader[userCount];
+        for (int i = 0; i < userCount; i++) {
+            Session session = accountService.registerUser("Trader " + i, "trader" + i + "@simulation.local", "simulation");
+            accountService.deposit(session, deposit);
+            for (int j = 0; j < cryptoCurrencies.length; j++) {
+                if (shares[j] > 0) {
+                    try {
+                        exchangeService.buyFromExchange(session, cryptoCurrencies[j], shares[j]);
+                    } catch (CryptoCurrencyException e) {
+                        // The exchange ran out, the trader starts with fiat money only
+                    }
+                }
+            }
+            traders[i] = new Trader(session, strategies[i % strategies.length], metrics, cryptoCurrencies);
+        }
+        return traders;
+    }
+
+    /**
+     * Returns the traders owned by an agent: every agentCount-th trader from the index of the agent.
+     */
+    private Trader[] slice(Trader[] traders, int agent) {
+        Trader[] slice = new Trader[(traders.length - agent + agentCount - 1) / agentCount];
+        for (int i = 0; i < slice.length; i++) {
+            slice[i] = traders[agent + i * agentCount];
+        }
+        return slice;
+    }
+
+    /**
+     * Makes a random trader of a slice act once per interval until the simulation stops.
+     */
+    private void drive(Trader[] traders, SplittableRandom random, long intervalNanos) {
+        if (traders.length == 0) {
+            return;
+        }
+        long next = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            try {
+                traders[random.nextInt(traders.length)].act(random);
+                metrics.acted();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Agent action failed", e);
+            }
+            next = Math.max(next + intervalNanos, now - MAX_LAG_NANOS);
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("Simulation of %d users, %d agents, target %d actions/s, %.1f s measured%n",
+                userCount, agentCount, rate, seconds);
+        System.out.printf("Actions: %d (%.0f/s) - orders %d, purchases %d, cancels %d, rejected %d%n",
+                metrics.getActions(), metrics.getActions() / seconds,
+                metrics.getOrders(), metrics.getPurchases(), metrics.getCancels(), metrics.getRejections());
+        System.out.printf("Fills: %d (%.0f/s)%n", metrics.getFills(), metrics.getFills() / seconds);
+        LatencyHistogram latencies = metrics.latencies();
+        if (latencies.getCount() > 0) {
+            System.out.printf("Fill latency: %s%n", latencies);
+        }
+        ServiceMetrics.getInstance().intervalSnapshot().forEach((name, histogram) -> {
+            if (histogram.getCount() > 0) {
+                System.out.printf("%s: %s%n", name, histogram);
+            }
+        });
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        long collections = 0;
+        long collectionMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, collector.getCollectionCount());
+            collectionMillis += Math.max(0, collector.getCollectionTime());
+        }
+        System.out.printf("Heap: used %d MB, peak %d MB, committed %d MB, max %d MB; GC: %d collections, %d ms%n",
+                heap.getUsed() >> 20, peak >> 20, heap.getCommitted() >> 20, heap.getMax() >> 20, collections, collectionMillis);
+    }
+}
@@ -0,0 +1,34 @@
+package org.bootcamp.simulation;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.FixedPoint;
+
+/**
+ * Fixed-point helpers shared by the trader strategies.
+ */
+final class SimulationMath {
+
+    private SimulationMath() {
+    }
+
+    /**
+     * Returns one unit of a cryptocurrency.
+     *
+     * @param cryptoCurrency the cryptocurrency
+     * @return the unscaled quantity of one unit, with the quantity scale of the cryptocurrency
+     */
+    static long unit(CryptoCurrency cryptoCurrency) {
+        return FixedPoint.powerOfTen(cryptoCurrency.getQuantityScale());
+    }
+
+    /**
+     * Moves an unscaled value by a number of basis points, keeping it positive.
+     *
+     * @param value the unscaled value
+     * @param basisPoints the deviation, in hundredths of a percent
+     * @return the moved value
+     */
+    static long deviate(long value, int basisPoints) {
+        return Math.max(1, value + value / 10_000 * basisPoints);
+    }
+}
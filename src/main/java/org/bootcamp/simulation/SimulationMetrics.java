@@ -0,0 +1,147 @@
+package org.bootcamp.simulation;
+
+import org.bootcamp.metrics.LatencyHistogram;
+import org.bootcamp.metrics.LatencyRecorder;
+import org.bootcamp.models.Fill;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.views.TradingServiceSubscriber;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the actions of the simulated traders and measures the fill latency.<br>
+ * The fill latency of an order is the time from the call that placed it to the first fill that it
+ * took as the incoming order; orders filled while resting in the book are not measured, since their
+ * wait depends on the other traders. The fills are reported by the matching shards, so a fill may
+ * arrive before the call that placed the order returns: the placement and the first fill of every
+ * order meet in a map, whichever comes first, and the order leaves the map once it is completed or
+ * cancelled. The latencies are recorded in a {@link LatencyRecorder}, so the shard threads never wait
+ * for each other to record them.
+ * @see Trader
+ * @see Simulation
+ */
+final class SimulationMetrics implements TradingServiceSubscriber {
+    /**
+     * Time of an event that has not happened yet.
+     */
+    private static final long PENDING = Long.MIN_VALUE;
+
+    private final LongAdder actions = new LongAdder();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder purchases = new LongAdder();
+    private final LongAdder cancels = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    /**
+     * Placement time and first fill time of the orders being measured, indexed by order ID.
+     */
+    private final Map<Long, long[]> timings = new ConcurrentHashMap<>();
+    private final LatencyRecorder latencies = new LatencyRecorder("simulation.fill");
+
+    void acted() {
+        actions.increment();
+    }
+
+    void orderPlaced(MarketOrder order, long start) {
+        orders.increment();
+        boolean filled = order.isFilled();
+        timings.compute(order.getOrderID(), (orderID, timing) -> {
+            if (timing == null) {
+                return filled ? null : new long[]{start, PENDING};
+            }
+            // The order took its first fill before this call returned
+            latencies.record(timing[1] - start);
+            timing[0] = start;
+            return filled ? null : timing;
+        });
+    }
+
+    void cancelled(long orderID) {
+        cancels.increment();
+        timings.remove(orderID);
+    }
+
+    void purchased() {
+        purchases.increment();
+    }
+
+    void rejected() {
+        rejections.increment();
+    }
+
+    @Override
+    public void update(Fill fill) {
+        long now = System.nanoTime();
+        fills.increment();
+        MarketOrder buyOrder = fill.getBuyOrder();
+        MarketOrder sellingOrder = fill.getSellingOrder();
+        // IDs grow with time, so the incoming order is the newer one
+        boolean buyIncoming = buyOrder.getOrderID() > sellingOrder.getOrderID();
+        MarketOrder incoming = buyIncoming ? buyOrder : sellingOrder;
+        MarketOrder resting = buyIncoming ? sellingOrder : buyOrder;
+        boolean incomingCompleted = buyIncoming ? fill.isBuyOrderCompleted() : fill.isSellingOrderCompleted();
+        boolean restingCompleted = buyIncoming ? fill.isSellingOrderCompleted() : fill.isBuyOrderCompleted();
+        timings.compute(incoming.getOrderID(), (orderID, timing) -> {
+            if (timing == null) {
+                // The call that placed the order has not returned yet
+                return new long[]{PENDING, now};
+            }
+            if (timing[0] != PENDING && timing[1] == PENDING) {
+                latencies.record(now - timing[0]);
+                timing[1] = now;
+            }
+            return incomingCompleted && timing[0] != PENDING ? null : timing;
+        });
+        if (restingCompleted) {
+            timings.remove(resting.getOrderID());
+        }
+    }
+
+    /**
+     * Forgets the counts and the latencies measured so far, at the end of the warm-up.
+     */
+    synchronized void reset() {
+        actions.reset();
+        orders.reset();
+        purchases.reset();
+        cancels.reset();
+        rejections.reset();
+        fills.reset();
+        latencies.intervalSnapshot();
+    }
+
+    long getActions() {
+        return actions.sum();
+    }
+
+    long getOrders() {
+        return orders.sum();
+    }
+
+    long getPurchases() {
+        return purchases.sum();
+    }
+
+    long getCancels() {
+        return cancels.sum();
+    }
+
+    long getRejections() {
+        return rejections.sum();
+    }
+
+    long getFills() {
+        return fills.sum();
+    }
+
+    /**
+     * Returns the fill latencies measured since the last reset.
+     *
+     * @return a histogram of the latencies, in nanoseconds
+     */
+    synchronized LatencyHistogram latencies() {
+        return latencies.intervalSnapshot();
+    }
+}
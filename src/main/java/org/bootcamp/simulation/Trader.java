@@ -0,0 +1,146 @@
+package org.bootcamp.simulation;
+
+import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.CryptoCurrencyException;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.OrderType;
+import org.bootcamp.models.Session;
+import org.bootcamp.models.Wallet;
+import org.bootcamp.services.AccountServiceException;
+import org.bootcamp.services.ExchangeService;
+import org.bootcamp.services.TradingService;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A simulated user of the platform.<br>
+ * It places orders and buys from the exchange with its own session, the same way the console does,
+ * and reports every action to the metrics of the simulation. Orders that are rejected for lack
+ * of funds are counted, not thrown.<br>
+ * A trader is only used by the agent thread that owns it.
+ * @see TraderStrategy
+ * @see SimulationMetrics
+ */
+public final class Trader {
+    private final Session session;
+    private final TraderStrategy strategy;
+    private final SimulationMetrics metrics;
+    private final CryptoCurrency[] cryptoCurrencies;
+    /**
+     * IDs of the orders the trader is quoting, to cancel them before quoting again.
+     */
+    private long[] quotes;
+    private int quoteCount;
+
+    Trader(Session session, TraderStrategy strategy, SimulationMetrics metrics, CryptoCurrency[] cryptoCurrencies) {
+        this.session = session;
+        this.strategy = strategy;
+        this.metrics = metrics;
+        this.cryptoCurrencies = cryptoCurrencies;
+        this.quotes = new long[2];
+    }
+
+    /**
+     * Makes the next action of the trader with its strategy.
+     *
+     * @param random the random generator of the agent thread
+     */
+    void act(SplittableRandom random) {
+        strategy.act(this, random);
+    }
+
+    public Wallet getWallet() {
+        return session.getUser().getWallet();
+    }
+
+    /**
+     * Picks one of the traded cryptocurrencies at random.
+     *
+     * @param random the random generator of the agent thread
+     * @return the cryptocurrency
+     */
+    public CryptoCurrency pickCryptoCurrency(SplittableRandom random) {
+        return cryptoCurrencies[random.nextInt(cryptoCurrencies.length)];
+    }
+
+    /**
+     * Places a market order.
+     *
+     * @param orderType the type of the order
+     * @param cryptoCurrency the cryptocurrency to trade
+     * @param amount the unscaled amount of cryptocurrency
+     * @param unitPrice the unscaled unit price, with the price scale of the cryptocurrency
+     * @return the placed order, or null if the order was rejected
+     */
+    public MarketOrder placeOrder(OrderType orderType, CryptoCurrency cryptoCurrency, long amount, long unitPrice) {
+        long price = FixedPoint.multiply(unitPrice, cryptoCurrency.getPriceScale(), amount,
+                cryptoCurrency.getQuantityScale(), FixedPoint.FIAT_SCALE, RoundingMode.HALF_EVEN);
+        if (amount <= 0 || price <= 0) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            MarketOrder order = TradingService.getInstance().placeOrder(session, orderType, cryptoCurrency, amount, price);
+            metrics.orderPlaced(order, start);
+            return order;
+        } catch (AccountServiceException | IllegalArgumentException e) {
+            metrics.rejected();
+            return null;
+        }
+    }
+
+    /**
+     * Places a market order that is cancelled by the next call to {@link #cancelQuotes()}.
+     *
+     * @param orderType the type of the order
+     * @param cryptoCurrency the cryptocurrency to trade
+     * @param amount the unscaled amount of cryptocurrency
+     * @param unitPrice the unscaled unit price, with the price scale of the cryptocurrency
+     */
+    public void quote(OrderType orderType, CryptoCurrency cryptoCurrency, long amount, long unitPrice) {
+        MarketOrder order = placeOrder(orderType, cryptoCurrency, amount, unitPrice);
+        if (order != null) {
+            if (quoteCount == quotes.length) {
+                quotes = Arrays.copyOf(quotes, quoteCount * 2);
+            }
+            quotes[quoteCount++] = order.getOrderID();
+        }
+    }
+
+    /**
+     * Cancels the quoted orders that are still open. The cancellations are not awaited.
+     */
+    public void cancelQuotes() {
+        TradingService tradingService = TradingService.getInstance();
+        for (int i = 0; i < quoteCount; i++) {
+            if (tradingService.findOrder(quotes[i]) == null) {
+                continue;
+            }
+            try {
+                tradingService.cancelOrder(session, quotes[i]);
+                metrics.cancelled(quotes[i]);
+            } catch (AccountServiceException e) {
+                metrics.rejected();
+            }
+        }
+        quoteCount = 0;
+    }
+
+    /**
+     * Buys a quantity of cryptocurrency from the exchange at its current value.
+     *
+     * @param cryptoCurrency the cryptocurrency to buy
+     * @param quantity the unscaled quantity to buy
+     */
+    public void purchase(CryptoCurrency cryptoCurrency, long quantity) {
+        try {
+            ExchangeService.getInstance().buyFromExchange(session, cryptoCurrency, quantity);
+            metrics.purchased();
+        } catch (AccountServiceException | CryptoCurrencyException e) {
+            metrics.rejected();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.bootcamp.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Behaviour of a simulated trader.<br>
+ * Every time the agent that owns a trader is due to act, it hands the trader to its strategy,
+ * which places orders, cancels them or buys from the exchange through the services. A strategy
+ * is shared by every trader that uses it and by every agent thread, so it must not keep state of
+ * its own: the state of a trader lives in the {@link Trader}.
+ * @see RandomTraderStrategy
+ * @see MarketMakerStrategy
+ * @see Simulation
+ */
+public interface TraderStrategy {
+    /**
+     * Makes the next action of a trader.
+     *
+     * @param trader the trader that acts
+     * @param random the random generator of the agent thread
+     */
+    void act(Trader trader, SplittableRandom random);
+
+    /**
+     * Creates the strategy with the specified name.
+     *
+     * @param name one of "random" or "market-maker"
+     * @return a new strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static TraderStrategy create(String name) {
+        return switch (name) {
+            case "random" -> new RandomTraderStrategy();
+            case "market-maker" -> new MarketMakerStrategy();
+            default -> throw new IllegalArgumentException("Unknown trader strategy: " + name);
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package org.bootcamp.views;
+
+import java.io.PrintStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the output of the views to the console from a dedicated thread and follows the singleton
+ * pattern.<br>
+ * The views only queue their texts, which never blocks, so the notifications sent from the threads
+ * of the services do not wait for the terminal. The renderer thread writes everything queued at
+ * once as a single frame, and waits for the next frame before writing again, so a burst of
+ * notifications is coalesced into a few writes at a capped refresh rate; a text queued while the
+ * console is idle is written at once. If the console falls so far behind that
+ * {@value #MAX_PENDING} texts are waiting, new texts are dropped and the number of dropped texts is
+ * shown in the next frame.<br>
+ * The renderer is configured with a system property:
+ * <ul>
+ *   <li>{@value #REFRESH_RATE_PROPERTY} - frames written per second at most (default 20)</li>
+ * </ul>
+ * @see View
+ */
+public class ConsoleRenderer {
+    /**
+     * System property with the frames written per second at most.
+     */
+    public static final String REFRESH_RATE_PROPERTY = "console.refreshRate";
+
+    /**
+     * Texts waiting to be written before new ones are dropped.
+     */
+    private static final int MAX_PENDING = 10_000;
+
+    /**
+     * Singleton instance of the ConsoleRenderer.
+     */
+    private static ConsoleRenderer instance;
+
+    /**
+     * Texts queued by the views, in order.
+     */
+    private final Queue<String> pending;
+    private final AtomicInteger pendingCount;
+    /**
+     * Texts dropped since the last frame.
+     */
+    private final AtomicLong dropped;
+    /**
+     * Minimum time between two frames, in nanoseconds.
+     */
+    private final long frameNanos;
+    private final PrintStream out;
+    /**
+     * Reused buffer of the frame being written.
+     */
+    private final StringBuilder frame;
+    private final Thread thread;
+
+    /**
+     * Private constructor to initialize the ConsoleRenderer and start its thread.
+     */
+    private ConsoleRenderer() {
+        pending = new ConcurrentLinkedQueue<>();
+        pendingCount = new AtomicInteger();
+        dropped = new AtomicLong();
+        frameNanos = 1_000_000_000L / Math.max(1, Integer.getInteger(REFRESH_RATE_PROPERTY, 20));
+        out = System.out;
+        frame = new StringBuilder();
+        thread = new Thread(this::run, "console-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the singleton instance of the ConsoleRenderer.<br>
+     * If the instance does not exist, it creates a new one.
+     *
+     * @return the singleton instance of ConsoleRenderer
+     */
+    public static synchronized ConsoleRenderer getInstance() {
+        if (instance == null) {
+            instance = new ConsoleRenderer();
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a text to be written as it is.
+     *
+     * @param text the text
+     */
+    public void print(String text) {
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.offer(text);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queues a text to be written in its own line.
+     *
+     * @param text the text
+     */
+    public void println(String text) {
+        print(text + System.lineSeparator());
+    }
+
+    /**
+     * Writes the queued texts from the calling thread, waiting for the frame being written.<br>
+     * Used before the console is closed, so nothing queued is lost.
+     */
+    public void flush() {
+        render();
+    }
+
+    /**
+     * Loop of the renderer thread: waits for texts, writes them as a frame and waits for the next frame.
+     */
+    private void run() {
+        while (true) {
+            while (pending.isEmpty()) {
+                LockSupport.park(this);
+            }
+            long nextFrame = System.nanoTime() + frameNanos;
+            render();
+            long remaining;
+            while ((remaining = nextFrame - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+
+    private synchronized void render() {
+        int count = 0;
+        String text;
+        while ((text = pending.poll()) != null) {
+            frame.append(text);
+            count++;
+        }
+        pendingCount.addAndGet(-count);
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            frame.append(View.ERROR_CODE).append("(").append(lost).append(" messages dropped, the console is falling behind)")
+                    .append(View.DEFAULT_CODE).append(System.lineSeparator());
+        }
+        if (frame.length() > 0) {
+            out.print(frame);
+            out.flush();
+            frame.setLength(0);
+        }
+    }
+}
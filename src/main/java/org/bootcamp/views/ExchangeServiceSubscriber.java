@@ -1,18 +1,48 @@
 package org.bootcamp.views;
 
-import org.bootcamp.models.CryptoCurrency;
-import java.util.List;
+import org.bootcamp.models.Tick;
+
+import java.util.concurrent.Flow;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Interface for subscribers to an exchange service.
- * Implementing classes should define the behavior for updating the list of cryptocurrencies.
+ * Implementing classes should define the behavior for a price update of a cryptocurrency.<br>
+ * The ticks are delivered on a delivery thread of the exchange service, one at a time, and only
+ * the latest tick of each cryptocurrency is kept while the subscriber is busy.
+ * @see org.bootcamp.services.MarketDataPublisher
  */
-public interface ExchangeServiceSubscriber {
+public interface ExchangeServiceSubscriber extends Flow.Subscriber<Tick> {
+
+    /**
+     * Updates the value of a cryptocurrency.
+     *
+     * @param tick The latest price update of the cryptocurrency.
+     */
+    void update(Tick tick);
 
     /**
-     * Updates the list of cryptocurrencies.
+     * Requests every tick; the publisher conflates them, so they cannot pile up.
      *
-     * @param cryptoCurrencies The list of cryptocurrencies to update.
+     * @param subscription the subscription to the exchange service
      */
-    void update(List<CryptoCurrency> cryptoCurrencies);
+    @Override
+    default void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    default void onNext(Tick tick) {
+        update(tick);
+    }
+
+    @Override
+    default void onError(Throwable throwable) {
+        Logger.getLogger(ExchangeServiceSubscriber.class.getName()).log(Level.SEVERE, "Price updates failed", throwable);
+    }
+
+    @Override
+    default void onComplete() {
+    }
 }
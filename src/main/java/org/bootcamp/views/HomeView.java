@@ -25,7 +25,7 @@ public class HomeView extends View {
         showInfo("3. View transaction history");
         showInfo("4. Go to market");
         showInfo("5. Logout");
-        System.out.print("Enter your choice: ");
+        renderer.print("Enter your choice: ");
         return getChoice();
     }
 
@@ -51,4 +51,14 @@ public class HomeView extends View {
         return getBigDecimal();
     }
 
+    /**
+     * Asks the user whether to show the next page of the transaction history.
+     *
+     * @return true if the user wants to see older transactions, false otherwise
+     */
+    public boolean getShowMoreInput() {
+        requestMessage("Show older transactions? (y/n): ");
+        return getString().trim().equalsIgnoreCase("y");
+    }
+
 }
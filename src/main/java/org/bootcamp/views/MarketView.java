@@ -1,6 +1,8 @@
 package org.bootcamp.views;
 
 import org.bootcamp.models.CryptoCurrency;
+import org.bootcamp.models.FixedPoint;
+import org.bootcamp.models.MarketOrder;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -14,7 +16,7 @@ public class MarketView extends View {
     /**
      * Prompts the user to choose an option from a list of available actions.<br>
      * The options include enabling/disabling notifications about cryptocurrency fluctuations,
-     * buying from the exchange, placing buy or sell orders, and going back to the profile.
+     * buying from the exchange, placing buy or sell orders, cancelling orders, and going back to the profile.
      *
      * @return The user's choice as an integer.
      */
@@ -24,8 +26,9 @@ public class MarketView extends View {
         showInfo("1. Buy from exchange");
         showInfo("2. Place buy order");
         showInfo("3. Place sell order");
-        showInfo("4. Back to profile");
-        System.out.print("Enter your choice: ");
+        showInfo("4. Cancel order");
+        showInfo("5. Back to profile");
+        renderer.print("Enter your choice: ");
         return getChoice();
     }
 
@@ -42,7 +45,7 @@ public class MarketView extends View {
             CryptoCurrency currency = cryptoCurrencies.get(i);
             showInfo((i + 1) + ". " + currency.getDisplayName());
         }
-        System.out.print("Enter your choice: ");
+        renderer.print("Enter your choice: ");
         int choice = getChoice();
         if (choice > 0 && choice <= cryptoCurrencies.size()) {
             return cryptoCurrencies.get(--choice);
@@ -51,6 +54,30 @@ public class MarketView extends View {
         }
     }
 
+    /**
+     * Prompts the user to select one of their open orders from a provided list.
+     *
+     * @param orders The open orders of the user.
+     * @return The selected order, or null if the choice is invalid.
+     */
+    public MarketOrder getOrderChoice(List<MarketOrder> orders) {
+        showInfo("Select the order to cancel:");
+        for (int i = 0; i < orders.size(); i++) {
+            MarketOrder order = orders.get(i);
+            CryptoCurrency cryptoCurrency = order.getCryptoCurrency();
+            showInfo((i + 1) + ". " + order.getOrderType() + " " +
+                    cryptoCurrency.quantityToBigDecimal(order.getRemainingAmount()) + " " + cryptoCurrency.getShorthandSymbol() +
+                    " for $" + FixedPoint.fiatToBigDecimal(order.getRemainingPrice()) + " (" + order.getOrderID() + ")");
+        }
+        renderer.print("Enter your choice: ");
+        int choice = getChoice();
+        if (choice > 0 && choice <= orders.size()) {
+            return orders.get(--choice);
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Prompts the user to input the selling price they are willing to accept.<br>
      * The method requests the selling price and returns it as a BigDecimal.
@@ -20,7 +20,7 @@ public class RootView extends View {
         showInfo("1. Register");
         showInfo("2. Login");
         showInfo("3. Quit");
-        System.out.print("Enter your choice: ");
+        renderer.print("Enter your choice: ");
         return getChoice();
     }
 
@@ -1,17 +1,18 @@
 package org.bootcamp.views;
 
-import org.bootcamp.models.MarketOrder;
+import org.bootcamp.models.Fill;
 
 /**
  * Interface for subscribers to a trading service.<br>
- * Implementing classes should define the behavior for updating with new market orders.
+ * Implementing classes should define the behavior for updating with the fills of market orders.
  */
 public interface TradingServiceSubscriber {
     /**
-     * Updates with new market orders.
+     * Updates with a new fill between market orders.<br>
+     * It is called once for every fill, so an order can be reported several times
+     * before it is completed.
      *
-     * @param buyOrder The market order for buying.
-     * @param sellingOrder The market order for selling.
+     * @param fill The fill between the buy order and the selling order.
      */
-    void update(MarketOrder buyOrder, MarketOrder sellingOrder);
+    void update(Fill fill);
 }
@@ -30,6 +30,10 @@ public abstract class View {
      * Scanner object for reading user input from the console.
      */
     private final Scanner scanner = new Scanner(System.in);
+    /**
+     * Renderer that writes the output of the view without blocking the calling thread.
+     */
+    protected final ConsoleRenderer renderer = ConsoleRenderer.getInstance();
 
     /**
      * Displays an error message in red.
@@ -37,7 +41,7 @@ public abstract class View {
      * @param errorMessage The error message to be displayed.
      */
     public void showError(String errorMessage) {
-        System.out.println(ERROR_CODE + errorMessage + DEFAULT_CODE);
+        renderer.println(ERROR_CODE + errorMessage + DEFAULT_CODE);
     }
 
     /**
@@ -46,7 +50,7 @@ public abstract class View {
      * @param message The informational message to be displayed.
      */
     public void showInfo(String message) {
-        System.out.println(INFO_CODE + message + DEFAULT_CODE);
+        renderer.println(INFO_CODE + message + DEFAULT_CODE);
     }
 
     /**
@@ -55,7 +59,7 @@ public abstract class View {
      * @param message The message to be displayed.
      */
     public void requestMessage(String message) {
-        System.out.print(INFO_CODE + message + DEFAULT_CODE);
+        renderer.print(INFO_CODE + message + DEFAULT_CODE);
     }
 
     /**
@@ -64,13 +68,14 @@ public abstract class View {
      * @param message The success message to be displayed.
      */
     public void showSuccessMessage(String message) {
-        System.out.println(SUCCESS_CODE + message + DEFAULT_CODE);
+        renderer.println(SUCCESS_CODE + message + DEFAULT_CODE);
     }
 
     /**
-     * Closes the scanner object.
+     * Writes the pending output and closes the scanner object.
      */
     public void close() {
+        renderer.flush();
         scanner.close();
     }
 